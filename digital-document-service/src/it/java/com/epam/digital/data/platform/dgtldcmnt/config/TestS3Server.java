@@ -0,0 +1,214 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.config;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Value;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * In-process stand-in of the S3 API of ceph for the requests that the AWS client and the
+ * pre-signed URLs send for single objects: PUT, server-side copy, GET, HEAD and DELETE with the
+ * If-Match conditions. The signatures aren't verified.
+ */
+public class TestS3Server implements AutoCloseable {
+
+  private static final String COPY_SOURCE_HEADER = "x-amz-copy-source";
+  private static final String COPY_SOURCE_IF_MATCH_HEADER = "x-amz-copy-source-if-match";
+  private static final String USER_METADATA_PREFIX = "x-amz-meta-";
+
+  private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+  private final HttpServer server;
+
+  private TestS3Server(HttpServer server) {
+    this.server = server;
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  public static TestS3Server start() throws IOException {
+    return new TestS3Server(
+        HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0));
+  }
+
+  public String getEndpoint() {
+    return "http://localhost:" + server.getAddress().getPort();
+  }
+
+  public Optional<StoredObject> getObject(String bucket, String key) {
+    return Optional.ofNullable(objects.get(bucket + "/" + key));
+  }
+
+  public Set<String> getKeys() {
+    return Set.copyOf(objects.keySet());
+  }
+
+  public void clear() {
+    objects.clear();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (exchange) {
+      // the path is /bucket/key, the key may contain slashes
+      var path = exchange.getRequestURI().getPath().substring(1);
+      switch (exchange.getRequestMethod()) {
+        case "PUT":
+          var copySource = exchange.getRequestHeaders().getFirst(COPY_SOURCE_HEADER);
+          if (copySource == null) {
+            put(exchange, path);
+          } else {
+            copy(exchange, path, copySource);
+          }
+          break;
+        case "GET":
+        case "HEAD":
+          get(exchange, path);
+          break;
+        case "DELETE":
+          objects.remove(path);
+          exchange.sendResponseHeaders(204, -1);
+          break;
+        default:
+          sendError(exchange, 405, "MethodNotAllowed");
+      }
+    }
+  }
+
+  private void put(HttpExchange exchange, String path) throws IOException {
+    var content = exchange.getRequestBody().readAllBytes();
+    var object = new StoredObject(content, DigestUtils.md5Hex(content),
+        exchange.getRequestHeaders().getFirst("Content-Type"),
+        getUserMetadata(exchange));
+    objects.put(path, object);
+    exchange.getResponseHeaders().set("ETag", quote(object.getETag()));
+    exchange.sendResponseHeaders(200, -1);
+  }
+
+  private void copy(HttpExchange exchange, String path, String copySource) throws IOException {
+    var sourcePath = URLDecoder.decode(copySource, StandardCharsets.UTF_8);
+    var source = objects.get(sourcePath.startsWith("/") ? sourcePath.substring(1) : sourcePath);
+    if (source == null) {
+      sendError(exchange, 404, "NoSuchKey");
+      return;
+    }
+    var ifMatch = exchange.getRequestHeaders().getFirst(COPY_SOURCE_IF_MATCH_HEADER);
+    if (ifMatch != null && !unquote(ifMatch).equals(source.getETag())) {
+      sendError(exchange, 412, "PreconditionFailed");
+      return;
+    }
+    var object = new StoredObject(source.getContent(), source.getETag(),
+        exchange.getRequestHeaders().getFirst("Content-Type"), getUserMetadata(exchange));
+    objects.put(path, object);
+    sendXml(exchange, 200, "<CopyObjectResult><LastModified>"
+        + DateTimeFormatter.ISO_INSTANT.format(ZonedDateTime.now(ZoneOffset.UTC))
+        + "</LastModified><ETag>" + quote(object.getETag()) + "</ETag></CopyObjectResult>");
+  }
+
+  private void get(HttpExchange exchange, String path) throws IOException {
+    var object = objects.get(path);
+    if (object == null) {
+      sendError(exchange, 404, "NoSuchKey");
+      return;
+    }
+    var ifMatch = exchange.getRequestHeaders().getFirst("If-Match");
+    if (ifMatch != null && !unquote(ifMatch).equals(object.getETag())) {
+      sendError(exchange, 412, "PreconditionFailed");
+      return;
+    }
+    var headers = exchange.getResponseHeaders();
+    headers.set("ETag", quote(object.getETag()));
+    headers.set("Last-Modified",
+        DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC)));
+    if (object.getContentType() != null) {
+      headers.set("Content-Type", object.getContentType());
+    }
+    object.getUserMetadata().forEach((name, value) -> headers.set(USER_METADATA_PREFIX + name,
+        value));
+    if ("HEAD".equals(exchange.getRequestMethod())) {
+      headers.set("Content-Length", String.valueOf(object.getContent().length));
+      exchange.sendResponseHeaders(200, -1);
+      return;
+    }
+    exchange.sendResponseHeaders(200, object.getContent().length);
+    exchange.getResponseBody().write(object.getContent());
+  }
+
+  private Map<String, String> getUserMetadata(HttpExchange exchange) {
+    var userMetadata = new HashMap<String, String>();
+    exchange.getRequestHeaders().forEach((name, values) -> {
+      var lowerCaseName = name.toLowerCase(Locale.ROOT);
+      if (lowerCaseName.startsWith(USER_METADATA_PREFIX)) {
+        userMetadata.put(lowerCaseName.substring(USER_METADATA_PREFIX.length()), values.get(0));
+      }
+    });
+    return userMetadata;
+  }
+
+  private void sendError(HttpExchange exchange, int status, String code) throws IOException {
+    if ("HEAD".equals(exchange.getRequestMethod())) {
+      exchange.sendResponseHeaders(status, -1);
+      return;
+    }
+    sendXml(exchange, status, "<Error><Code>" + code + "</Code><Message>" + code
+        + "</Message></Error>");
+  }
+
+  private void sendXml(HttpExchange exchange, int status, String body) throws IOException {
+    var bytes = ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>" + body)
+        .getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().set("Content-Type", "application/xml");
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+  }
+
+  private static String quote(String eTag) {
+    return "\"" + eTag + "\"";
+  }
+
+  private static String unquote(String eTag) {
+    return eTag.replace("\"", "");
+  }
+
+  @Value
+  public static class StoredObject {
+
+    byte[] content;
+    String eTag;
+    String contentType;
+    Map<String, String> userMetadata;
+  }
+}
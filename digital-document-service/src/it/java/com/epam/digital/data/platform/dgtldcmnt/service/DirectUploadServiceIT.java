@@ -0,0 +1,196 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.epam.digital.data.platform.dgtldcmnt.cache.ProcessFilesUsageCache;
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties.ContentConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.config.TestS3Server;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DirectUploadDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephDirectUploadStorage;
+import com.epam.digital.data.platform.dgtldcmnt.util.unit.FractionalDataSize;
+import com.epam.digital.data.platform.starter.errorhandling.exception.ValidationException;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProviderImpl;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Duration;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DirectUploadServiceIT {
+
+  private static final String BUCKET = "bucket";
+  private static final String ROOT_PROCESS_INSTANCE_ID = "testProcessInstanceId";
+  private static final String CONTENT_TYPE = "application/pdf";
+
+  private static TestS3Server s3Server;
+
+  private final FormDataFileKeyProviderImpl keyProvider = new FormDataFileKeyProviderImpl();
+  private DirectUploadService service;
+
+  @BeforeAll
+  static void startS3Server() throws IOException {
+    s3Server = TestS3Server.start();
+  }
+
+  @AfterAll
+  static void stopS3Server() {
+    s3Server.close();
+  }
+
+  @BeforeEach
+  void init() {
+    s3Server.clear();
+    var amazonS3 = amazonS3();
+    var cephStorageConfiguration = mock(FileDataCephStorageConfiguration.class);
+    when(cephStorageConfiguration.getBucket()).thenReturn(BUCKET);
+    var storage = new CephDirectUploadStorage(amazonS3, amazonS3, keyProvider,
+        cephStorageConfiguration, true);
+    service = new DirectUploadService(storage, mock(ProcessFilesUsageCache.class),
+        new DigitalDocumentsConfigurationProperties(FractionalDataSize.parse("100MB"),
+            FractionalDataSize.parse("100MB"), new ContentConfigurationProperties("")),
+        Duration.ofMinutes(5));
+  }
+
+  @Test
+  void shouldCompleteDocumentUploadedWithPresignedRequest() throws IOException {
+    var data = "test content".getBytes();
+    var dto = uploadDocumentDto(data.length);
+    var upload = service.init(dto);
+
+    upload(upload, data);
+    var metadata = service.getStagedMetadata(dto, upload.getId());
+    dto.setSize(metadata.getContentLength());
+    try (var content = service.openStaged(ROOT_PROCESS_INSTANCE_ID, upload.getId(),
+        metadata.getETag())) {
+      dto.setFileInputStream(content);
+      var result = service.complete(dto, upload.getId(), metadata.getETag(),
+          DigestUtils.sha256Hex(data));
+
+      assertThat(result.getId()).isEqualTo(upload.getId());
+      assertThat(result.getSize()).isEqualTo(data.length);
+      assertThat(result.getChecksum()).isEqualTo(DigestUtils.sha256Hex(data));
+    }
+
+    var document = s3Server.getObject(BUCKET,
+        keyProvider.generateKey(ROOT_PROCESS_INSTANCE_ID, upload.getId())).orElseThrow();
+    assertThat(document.getContent()).isEqualTo(data);
+    assertThat(document.getContentType()).isEqualTo(CONTENT_TYPE);
+    assertThat(document.getUserMetadata()).containsValue(DigestUtils.sha256Hex(data));
+    assertThat(s3Server.getKeys()).hasSize(1);
+  }
+
+  @Test
+  void shouldRejectDocumentOfOtherSizeThanDeclared() throws IOException {
+    var dto = uploadDocumentDto("test content".length());
+    var upload = service.init(dto);
+
+    upload(upload, "larger test content".getBytes());
+
+    assertThrows(ValidationException.class, () -> service.getStagedMetadata(dto, upload.getId()));
+    service.discard(ROOT_PROCESS_INSTANCE_ID, upload.getId());
+
+    assertThat(s3Server.getKeys()).isEmpty();
+  }
+
+  @Test
+  void shouldRejectDocumentReplacedBeforeItIsRead() throws IOException {
+    var dto = uploadDocumentDto("verified content".length());
+    var upload = service.init(dto);
+
+    upload(upload, "verified content".getBytes());
+    var metadata = service.getStagedMetadata(dto, upload.getId());
+    upload(upload, "replaced content".getBytes());
+
+    assertThrows(ValidationException.class,
+        () -> service.openStaged(ROOT_PROCESS_INSTANCE_ID, upload.getId(), metadata.getETag()));
+    service.discard(ROOT_PROCESS_INSTANCE_ID, upload.getId());
+
+    assertThat(s3Server.getKeys()).isEmpty();
+  }
+
+  @Test
+  void shouldRejectDocumentReplacedAfterItIsVerified() throws IOException {
+    var data = "verified content".getBytes();
+    var dto = uploadDocumentDto(data.length);
+    var upload = service.init(dto);
+
+    upload(upload, data);
+    var metadata = service.getStagedMetadata(dto, upload.getId());
+    dto.setSize(metadata.getContentLength());
+    try (var content = service.openStaged(ROOT_PROCESS_INSTANCE_ID, upload.getId(),
+        metadata.getETag())) {
+      dto.setFileInputStream(content);
+      upload(upload, "replaced content".getBytes());
+
+      assertThrows(ValidationException.class, () -> service.complete(dto, upload.getId(),
+          metadata.getETag(), DigestUtils.sha256Hex(data)));
+    }
+    service.discard(ROOT_PROCESS_INSTANCE_ID, upload.getId());
+
+    assertThat(s3Server.getKeys()).isEmpty();
+  }
+
+  private void upload(DirectUploadDto upload, byte[] data) throws IOException {
+    var connection = (HttpURLConnection) new URL(upload.getUrl()).openConnection();
+    connection.setRequestMethod(upload.getMethod());
+    upload.getHeaders().forEach(connection::setRequestProperty);
+    connection.setDoOutput(true);
+    try (var outputStream = connection.getOutputStream()) {
+      outputStream.write(data);
+    }
+    assertThat(connection.getResponseCode()).isEqualTo(200);
+    connection.disconnect();
+  }
+
+  private UploadDocumentFromUserFormDto uploadDocumentDto(long size) {
+    return UploadDocumentFromUserFormDto.builder()
+        .filename("test.pdf")
+        .contentType(CONTENT_TYPE)
+        .size(size)
+        .rootProcessInstanceId(ROOT_PROCESS_INSTANCE_ID)
+        .taskId("testTaskId")
+        .fieldName("testFieldName")
+        .formKey("testFormKey")
+        .originRequestUrl("test.com")
+        .build();
+  }
+
+  private AmazonS3 amazonS3() {
+    return AmazonS3ClientBuilder.standard()
+        .withEndpointConfiguration(new EndpointConfiguration(s3Server.getEndpoint(), "us-east-1"))
+        .withCredentials(new AWSStaticCredentialsProvider(new BasicAWSCredentials("key", "secret")))
+        .withPathStyleAccessEnabled(true)
+        .build();
+  }
+}
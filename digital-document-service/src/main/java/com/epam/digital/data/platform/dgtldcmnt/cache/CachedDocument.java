@@ -0,0 +1,64 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContent;
+import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A document kept in {@link DocumentContentCache}. The content is reference counted: the cache
+ * holds a reference while the document is cached and every download holds one while it is sent,
+ * the content is closed when the last reference is released.
+ */
+@Getter
+@RequiredArgsConstructor
+public class CachedDocument implements AutoCloseable {
+
+  private final FileMetadataDto metadata;
+  private final DocumentContent content;
+  @Getter(lombok.AccessLevel.NONE)
+  private final AtomicInteger references = new AtomicInteger(1);
+
+  /**
+   * Takes a reference to the content unless it has already been closed.
+   *
+   * @return false if the last reference has already been released
+   */
+  boolean retain() {
+    int count;
+    do {
+      count = references.get();
+      if (count == 0) {
+        return false;
+      }
+    } while (!references.compareAndSet(count, count + 1));
+    return true;
+  }
+
+  /**
+   * Releases a reference to the content, the content is closed with the last one.
+   */
+  @Override
+  public void close() {
+    if (references.decrementAndGet() == 0) {
+      content.close();
+    }
+  }
+}
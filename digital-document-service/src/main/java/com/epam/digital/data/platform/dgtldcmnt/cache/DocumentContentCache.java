@@ -0,0 +1,158 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContent;
+import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Node-local cache of the content of small documents that are downloaded repeatedly, e.g. the
+ * scanned documents and signatures an officer opens while working on a task. The least recently
+ * used documents are evicted when the total size of the cached content exceeds the configured
+ * bound. The content is kept on the heap or in temporary files depending on its size, see
+ * {@link com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory}.
+ * <p>
+ * The documents are reference counted, see {@link CachedDocument}, so the content of an evicted
+ * document is closed, and its file deleted, only after the downloads that are still reading it
+ * have been completed.
+ * <p>
+ * The documents are never changed under their ids, so an entry only has to be removed when the
+ * document is deleted. The other instances of the service don't see the deletion, so the entries
+ * also expire after the configured time without access.
+ */
+@Slf4j
+@Component
+public class DocumentContentCache {
+
+  private final Cache<Key, CachedDocument> documents;
+  private final long maxEntrySize;
+  private final AtomicLong cachedBytes = new AtomicLong();
+
+  public DocumentContentCache(MeterRegistry meterRegistry,
+      @Value("${digital-documents.content-cache.ttl:5m}") Duration ttl,
+      @Value("${digital-documents.content-cache.max-size:64MB}") DataSize maxSize,
+      @Value("${digital-documents.content-cache.max-entry-size:4MB}") DataSize maxEntrySize) {
+    this.maxEntrySize = Math.min(maxEntrySize.toBytes(), maxSize.toBytes());
+    this.documents = CacheBuilder.newBuilder()
+        .expireAfterAccess(ttl)
+        .maximumWeight(maxSize.toBytes())
+        .<Key, CachedDocument>weigher(
+            (key, document) -> (int) Math.max(1, document.getContent().getLength()))
+        .removalListener(this::onRemoval)
+        .recordStats()
+        .build();
+    GuavaCacheMetrics.monitor(meterRegistry, documents, "document-contents");
+    Gauge.builder("digital-documents.content-cache.size", cachedBytes, AtomicLong::get)
+        .description("Total size of the cached document content")
+        .baseUnit("bytes")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Checks if a document is small enough to be cached.
+   *
+   * @param contentLength the length of the document
+   * @return true if the document may be cached
+   */
+  public boolean isCacheable(long contentLength) {
+    return contentLength >= 0 && contentLength <= maxEntrySize;
+  }
+
+  /**
+   * Get a cached document. The caller gets a reference to the document and must close it when the
+   * content isn't read anymore.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @param id                    id of the document.
+   * @return the cached document or empty if it isn't cached.
+   */
+  public Optional<CachedDocument> get(String rootProcessInstanceId, String id) {
+    return Optional.ofNullable(documents.getIfPresent(new Key(rootProcessInstanceId, id)))
+        // the document may have been evicted and closed meanwhile
+        .filter(CachedDocument::retain);
+  }
+
+  /**
+   * Put a document to the cache. The content is owned by the cache afterwards and is closed when
+   * the document is evicted and the references to it are closed, so it must not be closed by the
+   * caller.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @param id                    id of the document.
+   * @param metadata              metadata of the document.
+   * @param content               content of the document.
+   * @return the reference of the caller to the cached document that must be closed when the
+   * content isn't read anymore.
+   */
+  public CachedDocument put(String rootProcessInstanceId, String id, FileMetadataDto metadata,
+      DocumentContent content) {
+    var document = new CachedDocument(metadata, content);
+    document.retain();
+    cachedBytes.addAndGet(content.getLength());
+    documents.put(new Key(rootProcessInstanceId, id), document);
+    return document;
+  }
+
+  /**
+   * Remove a deleted document from the cache.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @param id                    id of the document.
+   */
+  public void invalidate(String rootProcessInstanceId, String id) {
+    documents.invalidate(new Key(rootProcessInstanceId, id));
+  }
+
+  /**
+   * Remove all documents of the process instance from the cache, e.g. after all its documents
+   * have been deleted.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   */
+  public void invalidate(String rootProcessInstanceId) {
+    documents.asMap().keySet()
+        .removeIf(key -> key.rootProcessInstanceId.equals(rootProcessInstanceId));
+  }
+
+  private void onRemoval(RemovalNotification<Key, CachedDocument> notification) {
+    var document = notification.getValue();
+    cachedBytes.addAndGet(-document.getContent().getLength());
+    document.close();
+    log.debug("Document {} removed from content cache, cause {}", notification.getKey().id,
+        notification.getCause());
+  }
+
+  @lombok.Value
+  private static class Key {
+
+    String rootProcessInstanceId;
+    String id;
+  }
+}
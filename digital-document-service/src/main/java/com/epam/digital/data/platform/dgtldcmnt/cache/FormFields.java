@@ -0,0 +1,112 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import org.apache.commons.io.FilenameUtils;
+
+/**
+ * The fields of a ui form confirmed by the form validation service.
+ * <p>
+ * For the file fields the largest accepted file is kept for every content type and file
+ * extension. A file field limits the size of a file from above, so a file of the same type that
+ * isn't larger than an accepted one is accepted too.
+ * <p>
+ * The form isn't versioned, so after the constraints of a file field have been tightened, the
+ * files that aren't valid anymore are still accepted until the accepted files expire, i.e. for no
+ * longer than the configured time after they have been accepted, unless the form is invalidated.
+ */
+public class FormFields {
+
+  /**
+   * The field names that are known to exist in the form.
+   */
+  @Getter
+  private final Set<String> existingFields = ConcurrentHashMap.newKeySet();
+  private final Map<FileKind, AcceptedFile> maxAcceptedFiles = new ConcurrentHashMap<>();
+  private final long acceptedFileTtlNanos;
+
+  FormFields(Duration acceptedFileTtl) {
+    this.acceptedFileTtlNanos = acceptedFileTtl.toNanos();
+  }
+
+  /**
+   * Check if a file is known to be valid for the field.
+   *
+   * @param fieldName   the field name of the form.
+   * @param contentType content type of the file.
+   * @param fileName    name of the file.
+   * @param size        size of the file.
+   * @return true if a file of the same type and not smaller has been accepted for the field
+   * recently.
+   */
+  public boolean isFileAccepted(String fieldName, String contentType, String fileName,
+      long size) {
+    var maxAcceptedFile = maxAcceptedFiles.get(new FileKind(fieldName, contentType, fileName));
+    return Objects.nonNull(maxAcceptedFile) && !isExpired(maxAcceptedFile, System.nanoTime())
+        && size <= maxAcceptedFile.size;
+  }
+
+  /**
+   * Remember that a file has been accepted for the field.
+   *
+   * @param fieldName   the field name of the form.
+   * @param contentType content type of the file.
+   * @param fileName    name of the file.
+   * @param size        size of the file.
+   */
+  public void fileAccepted(String fieldName, String contentType, String fileName, long size) {
+    existingFields.add(fieldName);
+    var now = System.nanoTime();
+    // a larger file accepted earlier is kept until it expires
+    maxAcceptedFiles.merge(new FileKind(fieldName, contentType, fileName),
+        new AcceptedFile(size, now), (accepted, file) ->
+            !isExpired(accepted, now) && accepted.size > file.size ? accepted : file);
+  }
+
+  private boolean isExpired(AcceptedFile acceptedFile, long now) {
+    return now - acceptedFile.acceptedAt >= acceptedFileTtlNanos;
+  }
+
+  @lombok.Value
+  private static class AcceptedFile {
+
+    long size;
+    long acceptedAt;
+  }
+
+  @lombok.Value
+  private static class FileKind {
+
+    String fieldName;
+    String contentType;
+    String extension;
+
+    FileKind(String fieldName, String contentType, String fileName) {
+      this.fieldName = fieldName;
+      this.contentType = contentType;
+      this.extension = Objects.toString(FilenameUtils.getExtension(fileName), "")
+          .toLowerCase(Locale.ROOT);
+    }
+  }
+}
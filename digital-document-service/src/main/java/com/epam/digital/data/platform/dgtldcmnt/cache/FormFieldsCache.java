@@ -0,0 +1,87 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the ui form fields confirmed by the form validation service. The fields of a form
+ * change only when the form is deployed, so a form is kept in the cache for the configured time or
+ * until it is invalidated. The accepted files of a form expire after a shorter configured time,
+ * so a tightened file field constraint is applied within that time, see {@link FormFields}.
+ */
+@Slf4j
+@Component
+public class FormFieldsCache {
+
+  private final Cache<String, FormFields> forms;
+  private final Duration acceptedFilesTtl;
+
+  public FormFieldsCache(MeterRegistry meterRegistry,
+      @Value("${digital-documents.form-fields-cache.ttl:10m}") Duration ttl,
+      @Value("${digital-documents.form-fields-cache.max-size:500}") long maxSize,
+      @Value("${digital-documents.form-fields-cache.accepted-files-ttl:1m}")
+      Duration acceptedFilesTtl) {
+    this.acceptedFilesTtl = acceptedFilesTtl;
+    this.forms = CacheBuilder.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(maxSize)
+        .recordStats()
+        .build();
+    GuavaCacheMetrics.monitor(meterRegistry, forms, "form-fields");
+  }
+
+  /**
+   * Get the confirmed fields of the form.
+   *
+   * @param formKey key of the form.
+   * @return the fields of the form, the newly confirmed fields are added to it.
+   */
+  public FormFields getForm(String formKey) {
+    try {
+      return forms.get(formKey, () -> new FormFields(acceptedFilesTtl));
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Unable to create form fields", e);
+    }
+  }
+
+  /**
+   * Remove the fields of the form from the cache, e.g. after the form has been deployed.
+   *
+   * @param formKey key of the form.
+   */
+  public void invalidate(String formKey) {
+    log.info("Invalidating cached fields of form {}", formKey);
+    forms.invalidate(formKey);
+  }
+
+  /**
+   * Remove the fields of all forms from the cache.
+   */
+  public void invalidateAll() {
+    log.info("Invalidating cached fields of all forms");
+    forms.invalidateAll();
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint that invalidates the cached form fields after the forms have been deployed.
+ * <p>
+ * {@code DELETE /actuator/formfields} invalidates all forms,
+ * {@code DELETE /actuator/formfields/{formKey}} invalidates one form.
+ */
+@Component
+@Endpoint(id = "formfields")
+@RequiredArgsConstructor
+public class FormFieldsCacheEndpoint {
+
+  private final FormFieldsCache formFieldsCache;
+
+  @DeleteOperation
+  public void invalidateAll() {
+    formFieldsCache.invalidateAll();
+  }
+
+  @DeleteOperation
+  public void invalidate(@Selector String formKey) {
+    formFieldsCache.invalidate(formKey);
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The sizes of the documents stored in a process instance summed up per form field.
+ * <p>
+ * The documents are tracked by id, so a document that is reported more than once is counted once.
+ * The size of a document being uploaded is reserved in its field by comparing and adding it under
+ * the lock of the usage, so the concurrent uploads into the same field can't exceed the limit
+ * together. The reservations are kept when the stored documents are listed again.
+ */
+public class ProcessFilesUsage {
+
+  private final Map<String, FileUsage> files = new HashMap<>();
+  private final Map<FieldKey, Long> storedUsages = new HashMap<>();
+  private final Map<FieldKey, Long> reservedUsages = new HashMap<>();
+
+  static ProcessFilesUsage of(List<FileMetadataDto> metadata) {
+    var usage = new ProcessFilesUsage();
+    usage.reload(metadata);
+    return usage;
+  }
+
+  /**
+   * Get the total size of the documents uploaded into the form field including the reserved ones.
+   *
+   * @param formKey   key of the form.
+   * @param fieldName the field name of the form.
+   * @return total size of the documents in bytes.
+   */
+  public synchronized long getUsage(String formKey, String fieldName) {
+    var fieldKey = new FieldKey(formKey, fieldName);
+    return storedUsages.getOrDefault(fieldKey, 0L) + reservedUsages.getOrDefault(fieldKey, 0L);
+  }
+
+  synchronized boolean tryReserve(String formKey, String fieldName, long size,
+      long maxTotalSize) {
+    if (getUsage(formKey, fieldName) + size > maxTotalSize) {
+      return false;
+    }
+    reservedUsages.merge(new FieldKey(formKey, fieldName), size, Long::sum);
+    return true;
+  }
+
+  synchronized void release(String formKey, String fieldName, long size) {
+    reservedUsages.merge(new FieldKey(formKey, fieldName), -size, Long::sum);
+  }
+
+  synchronized void reload(List<FileMetadataDto> metadata) {
+    files.clear();
+    storedUsages.clear();
+    metadata.forEach(md -> fileAdded(md.getId(), md.getFormKey(), md.getFieldName(),
+        md.getContentLength()));
+  }
+
+  synchronized void fileAdded(String id, String formKey, String fieldName, long size) {
+    var fileUsage = new FileUsage(new FieldKey(formKey, fieldName), size);
+    // a document stored without id can't be reported again, so it is just counted
+    if (Objects.isNull(id) || Objects.isNull(files.putIfAbsent(id, fileUsage))) {
+      storedUsages.merge(fileUsage.getFieldKey(), size, Long::sum);
+    }
+  }
+
+  synchronized void fileRemoved(String id) {
+    var fileUsage = files.remove(id);
+    if (Objects.nonNull(fileUsage)) {
+      storedUsages.merge(fileUsage.getFieldKey(), -fileUsage.getSize(), Long::sum);
+    }
+  }
+
+  @lombok.Value
+  private static class FieldKey {
+
+    String formKey;
+    String fieldName;
+  }
+
+  @lombok.Value
+  private static class FileUsage {
+
+    FieldKey fieldKey;
+    long size;
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import com.epam.digital.data.platform.storage.file.service.FormDataFileStorageService;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the document sizes per form field of the process instances. The usage of a process
+ * instance is loaded from the storage once and then updated when its documents are saved or
+ * deleted, so checking the total size of the documents doesn't list the storage on every upload.
+ * An upload reserves its size atomically in the usage and releases it after it has been stored or
+ * has failed.
+ * <p>
+ * The other instances of the service don't update this cache, so it is authoritative only for the
+ * uploads far from the limit. The usage is listed from the storage again in place, keeping the
+ * reservations, after the configured time and before any reservation that would bring the field
+ * close to the limit.
+ */
+@Slf4j
+@Component
+public class ProcessFilesUsageCache {
+
+  private final FormDataFileStorageService formDataFileStorageService;
+  private final LoadingCache<String, ProcessFilesUsage> usages;
+  private final double nearLimitRatio;
+
+  public ProcessFilesUsageCache(FormDataFileStorageService formDataFileStorageService,
+      MeterRegistry meterRegistry,
+      @Value("${digital-documents.files-usage-cache.ttl:30s}") Duration ttl,
+      @Value("${digital-documents.files-usage-cache.max-size:1000}") long maxSize,
+      @Value("${digital-documents.files-usage-cache.near-limit-ratio:0.8}")
+      double nearLimitRatio) {
+    this.formDataFileStorageService = formDataFileStorageService;
+    this.nearLimitRatio = nearLimitRatio;
+    this.usages = CacheBuilder.newBuilder()
+        .refreshAfterWrite(ttl)
+        .maximumSize(maxSize)
+        .recordStats()
+        .build(new CacheLoader<>() {
+          @Override
+          public ProcessFilesUsage load(String rootProcessInstanceId) {
+            return loadUsage(rootProcessInstanceId);
+          }
+
+          @Override
+          public ListenableFuture<ProcessFilesUsage> reload(String rootProcessInstanceId,
+              ProcessFilesUsage usage) {
+            reloadUsage(rootProcessInstanceId, usage);
+            return Futures.immediateFuture(usage);
+          }
+        });
+    GuavaCacheMetrics.monitor(meterRegistry, usages, "process-files-usage");
+  }
+
+  /**
+   * Get the usage of the process instance loading it from the storage if it isn't cached.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @return the usage of the process instance.
+   */
+  public ProcessFilesUsage getUsage(String rootProcessInstanceId) {
+    try {
+      return usages.getUnchecked(rootProcessInstanceId);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Reserve the size of a document being uploaded into the form field if the total size of the
+   * documents of the field doesn't exceed the limit with it.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @param formKey               key of the form the document is uploaded to.
+   * @param fieldName             the field name the document is uploaded to.
+   * @param size                  size of the document.
+   * @param maxTotalSize          maximum total size of the documents of the field.
+   * @return the reservation that must be closed after the document has been stored or has failed,
+   * or empty if the limit would be exceeded.
+   */
+  public Optional<Reservation> reserve(String rootProcessInstanceId, String formKey,
+      String fieldName, long size, long maxTotalSize) {
+    var usage = getUsage(rootProcessInstanceId);
+    synchronized (usage) {
+      if (usage.getUsage(formKey, fieldName) + size > maxTotalSize * nearLimitRatio) {
+        reloadUsage(rootProcessInstanceId, usage);
+      }
+      if (!usage.tryReserve(formKey, fieldName, size, maxTotalSize)) {
+        return Optional.empty();
+      }
+    }
+    return Optional.of(new Reservation(usage, formKey, fieldName, size));
+  }
+
+  /**
+   * Add a saved document to the usage of the process instance if it is cached.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @param id                    id of the document.
+   * @param formKey               key of the form the document has been uploaded to.
+   * @param fieldName             the field name the document has been uploaded to.
+   * @param size                  size of the saved document.
+   */
+  public void fileAdded(String rootProcessInstanceId, String id, String formKey,
+      String fieldName, long size) {
+    var usage = usages.getIfPresent(rootProcessInstanceId);
+    if (Objects.nonNull(usage)) {
+      usage.fileAdded(id, formKey, fieldName, size);
+    }
+  }
+
+  /**
+   * Remove a deleted document from the usage of the process instance if it is cached.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @param id                    id of the document.
+   */
+  public void fileRemoved(String rootProcessInstanceId, String id) {
+    var usage = usages.getIfPresent(rootProcessInstanceId);
+    if (Objects.nonNull(usage)) {
+      usage.fileRemoved(id);
+    }
+  }
+
+  /**
+   * Remove the usage of the process instance, e.g. after all its documents have been deleted.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   */
+  public void invalidate(String rootProcessInstanceId) {
+    usages.invalidate(rootProcessInstanceId);
+  }
+
+  private ProcessFilesUsage loadUsage(String rootProcessInstanceId) {
+    log.debug("Loading files usage of process {}", rootProcessInstanceId);
+    return ProcessFilesUsage.of(formDataFileStorageService.getMetadata(rootProcessInstanceId));
+  }
+
+  private void reloadUsage(String rootProcessInstanceId, ProcessFilesUsage usage) {
+    // the storage is listed under the lock, so the documents saved or deleted meanwhile are
+    // applied after the listing
+    synchronized (usage) {
+      log.debug("Reloading files usage of process {}", rootProcessInstanceId);
+      usage.reload(formDataFileStorageService.getMetadata(rootProcessInstanceId));
+    }
+  }
+
+  /**
+   * Size of a document reserved in the usage of its form field.
+   */
+  public static class Reservation implements AutoCloseable {
+
+    private final ProcessFilesUsage usage;
+    private final String formKey;
+    private final String fieldName;
+    private final long size;
+    private boolean released;
+
+    private Reservation(ProcessFilesUsage usage, String formKey, String fieldName, long size) {
+      this.usage = usage;
+      this.formKey = formKey;
+      this.fieldName = fieldName;
+      this.size = size;
+    }
+
+    @Override
+    public void close() {
+      if (!released) {
+        released = true;
+        usage.release(formKey, fieldName, size);
+      }
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.compression;
+
+import com.epam.digital.data.platform.dgtldcmnt.exception.FileCompressionException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs the CPU-heavy compression jobs on a dedicated bounded pool, so a burst of large uploads
+ * can't take the request threads the downloads and the metadata calls need. A job that is
+ * rejected because the pool and its queue are full, or that doesn't complete before its deadline,
+ * isn't waited for and the document is stored as it has been uploaded. The result of a job that
+ * completes after its deadline is closed if it is closeable, so the temporary files it holds are
+ * deleted.
+ */
+@Slf4j
+@Component
+public class CompressionExecutor {
+
+  private static final String METRIC_PREFIX = "digital-documents.compression";
+
+  private final ThreadPoolTaskExecutor executor;
+  private final MeterRegistry meterRegistry;
+  private final long deadlineNanos;
+  private final Timer queueWait;
+  private final Counter rejections;
+  private final Counter timeouts;
+
+  public CompressionExecutor(
+      @Qualifier("compressionExecutor") ThreadPoolTaskExecutor executor,
+      MeterRegistry meterRegistry,
+      @Value("${digital-documents.compression.deadline:30s}") Duration deadline) {
+    this.executor = executor;
+    this.meterRegistry = meterRegistry;
+    this.deadlineNanos = deadline.toNanos();
+    this.queueWait = meterRegistry.timer(METRIC_PREFIX + ".queue-wait");
+    this.rejections = meterRegistry.counter(METRIC_PREFIX + ".rejected");
+    this.timeouts = meterRegistry.counter(METRIC_PREFIX + ".timeouts");
+  }
+
+  /**
+   * Runs a compression job and waits for its result until the deadline. The job must not share
+   * its input with the caller, as it may still be running after the caller stopped waiting.
+   *
+   * @param compressorName the name of the compressor the run time is recorded for
+   * @param job            the compression job
+   * @return the result of the job or empty if it has been rejected or timed out
+   * @throws FileCompressionException if the job failed with a checked exception
+   */
+  public <T> Optional<T> execute(String compressorName, Callable<T> job) {
+    var runTime = meterRegistry.timer(METRIC_PREFIX + ".run", "compressor", compressorName);
+    var submitted = System.nanoTime();
+    var result = new CompletableFuture<T>();
+    Future<?> task;
+    try {
+      task = executor.submit(() -> {
+        queueWait.record(System.nanoTime() - submitted, TimeUnit.NANOSECONDS);
+        try {
+          result.complete(runTime.recordCallable(job));
+        } catch (Throwable e) {
+          result.completeExceptionally(e);
+        }
+      });
+    } catch (TaskRejectedException e) {
+      rejections.increment();
+      log.warn("Compression with {} rejected, the pool is saturated", compressorName);
+      return Optional.empty();
+    }
+    try {
+      return Optional.ofNullable(result.get(deadlineNanos, TimeUnit.NANOSECONDS));
+    } catch (TimeoutException e) {
+      abandon(task, result, compressorName);
+      timeouts.increment();
+      log.warn("Compression with {} didn't complete in {} ms", compressorName,
+          TimeUnit.NANOSECONDS.toMillis(deadlineNanos));
+      return Optional.empty();
+    } catch (InterruptedException e) {
+      abandon(task, result, compressorName);
+      Thread.currentThread().interrupt();
+      throw new FileCompressionException("Compression has been interrupted", e);
+    } catch (ExecutionException e) {
+      var cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new FileCompressionException("Failed to compress file", cause);
+    }
+  }
+
+  /**
+   * Cancels a job nobody waits for. A job that isn't interrupted in time may still complete, its
+   * result is closed then, also if it has completed right after the caller stopped waiting.
+   */
+  private <T> void abandon(Future<?> task, CompletableFuture<T> result, String compressorName) {
+    task.cancel(true);
+    result.thenAccept(lateResult -> {
+      if (lateResult instanceof AutoCloseable) {
+        log.debug("Closing result of compression with {} completed after its deadline",
+            compressorName);
+        try {
+          ((AutoCloseable) lateResult).close();
+        } catch (Exception e) {
+          log.warn("Unable to close result of compression with {}", compressorName, e);
+        }
+      }
+    });
+  }
+}
@@ -20,11 +20,14 @@ import com.epam.digital.data.platform.dgtldcmnt.dto.ImageCompressorParameters;
 import com.epam.digital.data.platform.dgtldcmnt.dto.ImageEntry;
 import com.epam.digital.data.platform.dgtldcmnt.exception.FileCompressionException;
 import com.epam.digital.data.platform.dgtldcmnt.util.ImageProcessingUtils;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.cos.COSStream;
+import org.apache.pdfbox.io.MemoryUsageSetting;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDResources;
@@ -35,25 +38,55 @@ import org.apache.tika.metadata.TikaCoreProperties;
 import org.apache.tika.mime.MediaType;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 import org.springframework.util.unit.DataSize;
 
+import javax.imageio.ImageIO;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Implementation of ImageCompressor that compresses PDF files by optimizing embedded images.
  * <p>
- * This implementation processes the PDF document and its embedded images entirely in memory
- * for improved efficiency and security.
+ * The parsed document is kept in memory up to the configured size and in a scratch file in the
+ * content buffer directory above it, so the heap usage doesn't depend on the document size. The
+ * compressed document is written to a temporary file that is deleted once its stream is closed.
+ * <p>
+ * The images of a document are resized and encoded in parallel on a shared bounded pool, no more
+ * than the configured number of images of one document at a time. The document itself isn't
+ * thread-safe, so the images are read from it and added to it one at a time, and its resources
+ * are updated only after all the images are compressed. Only the encoded bytes of the JPEG and
+ * JPEG 2000 images are copied from the document one at a time, they are decoded in parallel
+ * unless they need the color space or the masks of the document, the other images are decoded
+ * while they are read. Once the images of a document have used
+ * up the configured CPU time, the rest of them are left as they are.
+ * <p>
+ * Before an image is decoded, its size after compression is estimated from its stream
+ * dictionary, and the images that aren't expected to get noticeably smaller are left as they are:
+ * the small ones, the bi-level scans that are encoded more compactly than JPEG can do it and the
+ * ones whose predicted saving is below the configured ratio.
  */
 @Slf4j
 @Component
@@ -61,6 +94,19 @@ import java.util.Objects;
 public class PdfImageCompressor implements ImageCompressor {
 
   private static final List<MediaType> SUPPORTED_TYPES = List.of(MediaType.parse("application/pdf"));
+  private static final String TEMP_FILE_PREFIX = "compressed-pdf-";
+  private static final String SKIPPED_METRIC = "digital-documents.compression.pdf-images.skipped";
+  private static final String SKIP_REASON_SMALL = "small";
+  private static final String SKIP_REASON_BILEVEL = "bilevel";
+  private static final String SKIP_REASON_LOW_SAVING = "low-saving";
+  private static final String SKIP_REASON_CPU_BUDGET = "cpu-budget";
+  private static final List<COSName> BILEVEL_FILTERS = List.of(COSName.JBIG2_DECODE, COSName.CCITTFAX_DECODE);
+  private static final List<COSName> SELF_CONTAINED_FILTERS = List.of(COSName.DCT_DECODE, COSName.JPX_DECODE);
+  private static final List<String> SELF_CONTAINED_COLOR_SPACES = List.of(COSName.DEVICERGB.getName(), COSName.DEVICEGRAY.getName());
+  /**
+   * The expected size of a JPEG image, about 2.4 bits per pixel for a photo at the usual quality.
+   */
+  private static final double JPEG_BYTES_PER_PIXEL = 0.3;
 
   @Qualifier("default-detector")
   private final Detector defaultDetector;
@@ -78,14 +124,33 @@ public class PdfImageCompressor implements ImageCompressor {
   @Value("${digital-documents.compression-params.min-compressible-file-size:1MB}")
   private final DataSize minCompressibleFileSize;
 
+  @Qualifier("pdfImageExecutor")
+  private final ThreadPoolTaskExecutor pdfImageExecutor;
+  private final MeterRegistry meterRegistry;
+  @Value("${digital-documents.compression.pdf-images.parallelism:4}")
+  private final int parallelism;
+  @Value("${digital-documents.compression.pdf-images.cpu-budget:60s}")
+  private final Duration cpuBudget;
+  @Value("${digital-documents.compression.pdf.max-main-memory:16MB}")
+  private final DataSize maxMainMemory;
+  @Value("${digital-documents.compression.pdf.max-storage:512MB}")
+  private final DataSize maxStorage;
+  @Value("${digital-documents.content-buffer.directory:${java.io.tmpdir}}")
+  private final String scratchDirectory;
+  @Value("${digital-documents.compression.pdf-images.min-size:16KB}")
+  private final DataSize minImageSize;
+  @Value("${digital-documents.compression.pdf-images.min-saving-ratio:0.2}")
+  private final double minSavingRatio;
+
   /**
    * Compresses PDF by reducing the quality and dimensions of embedded images.
-   * All processing is done in-memory.
+   * A document larger than the maximum scratch storage is returned as is.
    *
    * @param fileName    the name of the file to be compressed, cannot be null
    * @param inputStream the input stream containing the PDF to be compressed, cannot be null
    * @param parameters  compression parameters that control the compression process, can be null for default settings
-   * @return an input stream containing the compressed PDF data
+   * @return an input stream containing the compressed PDF data, it must be closed to delete the
+   * temporary file
    * @throws FileCompressionException if any error occurs during compression
    */
   @Override
@@ -101,27 +166,31 @@ public class PdfImageCompressor implements ImageCompressor {
 
     PDDocument document;
     try {
+      if (maxStorage.toBytes() >= 0 && inputStream.available() > maxStorage.toBytes()) {
+        log.warn("PDF compression for file '{}' skipped, it exceeds scratch storage of {}. Original data preserved.", fileName, maxStorage);
+        return inputStream;
+      }
       inputStream.mark(inputStream.available() + 1);
-      document = PDDocument.load(inputStream);
+      document = PDDocument.load(inputStream, getMemoryUsageSetting());
       inputStream.reset();
     } catch (IOException ex) {
       throw new FileCompressionException("Failed to compress PDF file", ex);
     }
 
-    try {
+    try (document) {
       Map<ImageEntry, List<PDResources>> images = collectImagesFromPdf(document);
+      var newImages = compressImageEntries(fileName, document, images.keySet(), imageMaxWidth, imageMaxHeight, compressionQuality);
       for (var imageEntry : images.entrySet()) {
-        var oldImage = imageEntry.getKey();
+        var newImage = newImages.get(imageEntry.getKey());
+        if (newImage == null) {
+          continue;
+        }
         var resources = imageEntry.getValue();
-        var newImage = compressImageEntry(document, oldImage, imageMaxWidth, imageMaxHeight, compressionQuality);
         for (var resource : resources) {
           resource.put(newImage.getCOSName(), newImage.getImage());
         }
       }
-      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-      document.save(outputStream);
-      document.close();
-      return new BufferedInputStream(new ByteArrayInputStream(outputStream.toByteArray()));
+      return save(document);
     } catch (IOException e) {
       log.warn("PDF compression for file '{}' skipped due to: {}. Original data preserved.", fileName, e.getMessage());
       return inputStream;
@@ -150,6 +219,26 @@ public class PdfImageCompressor implements ImageCompressor {
     }
   }
 
+  private MemoryUsageSetting getMemoryUsageSetting() {
+    return MemoryUsageSetting.setupMixed(maxMainMemory.toBytes(), maxStorage.toBytes())
+      .setTempDir(Path.of(scratchDirectory).toFile());
+  }
+
+  /**
+   * Saves the document to a temporary file. The file is deleted once the returned stream is
+   * closed, or right after it is opened where the platform allows it.
+   */
+  private BufferedInputStream save(PDDocument document) throws IOException {
+    var file = Files.createTempFile(Path.of(scratchDirectory), TEMP_FILE_PREFIX, null);
+    try {
+      document.save(file.toFile());
+      return new BufferedInputStream(Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE));
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+  }
+
   private Map<ImageEntry, List<PDResources>> collectImagesFromPdf(PDDocument document) throws IOException {
     Map<ImageEntry, List<PDResources>> images = new LinkedHashMap<>();
     for (PDPage page : document.getPages()) {
@@ -173,10 +262,124 @@ public class PdfImageCompressor implements ImageCompressor {
     return images;
   }
 
+  /**
+   * Compresses the images on the PDF image pool.
+   *
+   * @return the compressed images by the original ones, the images that were left as they are
+   * are missing
+   */
+  private Map<ImageEntry, ImageEntry> compressImageEntries(String fileName, PDDocument document,
+    Collection<ImageEntry> entries, int imageMaxWidth, int imageMaxHeight, int compressionQuality) {
+    var budget = new CpuBudget(cpuBudget.toNanos());
+    var inFlight = new Semaphore(parallelism);
+    var futures = new LinkedHashMap<ImageEntry, Future<ImageEntry>>();
+    try {
+      for (var entry : entries) {
+        Optional<String> skipReason;
+        synchronized (document) {
+          skipReason = getSkipReason(entry.getImage(), imageMaxWidth, imageMaxHeight);
+        }
+        if (skipReason.isPresent()) {
+          meterRegistry.counter(SKIPPED_METRIC, "reason", skipReason.get()).increment();
+          continue;
+        }
+        inFlight.acquire();
+        try {
+          futures.put(entry, pdfImageExecutor.submit(() -> {
+            try {
+              if (budget.isExceeded()) {
+                meterRegistry.counter(SKIPPED_METRIC, "reason", SKIP_REASON_CPU_BUDGET).increment();
+                return null;
+              }
+              return budget.measure(() -> compressImageEntry(document, entry, imageMaxWidth, imageMaxHeight, compressionQuality));
+            } finally {
+              inFlight.release();
+            }
+          }));
+        } catch (RuntimeException e) {
+          inFlight.release();
+          throw e;
+        }
+      }
+      Map<ImageEntry, ImageEntry> newImages = new HashMap<>();
+      for (var future : futures.entrySet()) {
+        var newImage = future.getValue().get();
+        if (newImage != null) {
+          newImages.put(future.getKey(), newImage);
+        }
+      }
+      if (newImages.size() < futures.size()) {
+        log.warn("CPU budget of PDF compression for file '{}' used up, {} of {} images left uncompressed",
+          fileName, futures.size() - newImages.size(), futures.size());
+      }
+      return newImages;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futures.values().forEach(future -> future.cancel(true));
+      throw new FileCompressionException("PDF compression has been interrupted", e);
+    } catch (ExecutionException e) {
+      futures.values().forEach(future -> future.cancel(true));
+      var cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new FileCompressionException("Failed to compress PDF file", cause);
+    }
+  }
+
+  /**
+   * Estimates the size of the image after compression without decoding it. An image with a soft
+   * mask is written as PNG, so its encoded size is only scaled down by the resize. The others are
+   * written as JPEG and are expected to take the smaller of the scaled encoded size and the
+   * typical JPEG size of the resized image.
+   *
+   * @return the reason to leave the image as it is or empty if it should be compressed
+   */
+  private Optional<String> getSkipReason(PDImageXObject image, int imageMaxWidth, int imageMaxHeight) {
+    COSStream stream = image.getCOSObject();
+    long length = stream.getLength();
+    if (length < minImageSize.toBytes()) {
+      return Optional.of(SKIP_REASON_SMALL);
+    }
+    List<COSName> filters = image.getStream().getFilters();
+    if (image.getBitsPerComponent() == 1 || filters.stream().anyMatch(BILEVEL_FILTERS::contains)) {
+      return Optional.of(SKIP_REASON_BILEVEL);
+    }
+    int width = image.getWidth();
+    int height = image.getHeight();
+    if (length <= 0 || width <= 0 || height <= 0) {
+      return Optional.empty();
+    }
+    var dims = ImageProcessingUtils.calculateNewImageDimensions(width, height, imageMaxWidth, imageMaxHeight);
+    double pixelRatio = (double) dims.getWidth() * dims.getHeight() / ((double) width * height);
+    double predictedLength;
+    if (stream.containsKey(COSName.SMASK)) {
+      predictedLength = length * pixelRatio;
+    } else {
+      predictedLength = Math.min(length * pixelRatio, dims.getWidth() * dims.getHeight() * JPEG_BYTES_PER_PIXEL);
+    }
+    if (1 - predictedLength / length < minSavingRatio) {
+      return Optional.of(SKIP_REASON_LOW_SAVING);
+    }
+    return Optional.empty();
+  }
+
   private ImageEntry compressImageEntry(
     PDDocument document, ImageEntry entry, int imageMaxWidth, int imageMaxHeight, int compressionQuality) {
     try {
-      BufferedImage inputImage = entry.getImage().getImage();
+      BufferedImage inputImage = null;
+      byte[] encodedImage;
+      synchronized (document) {
+        encodedImage = getSelfContainedImage(entry.getImage());
+      }
+      if (encodedImage != null) {
+        inputImage = readImage(entry, encodedImage);
+      }
+      if (inputImage == null) {
+        synchronized (document) {
+          inputImage = entry.getImage().getImage();
+        }
+      }
       boolean hasAlpha = inputImage.getColorModel().hasAlpha();
 
       ImageProcessingUtils.ImageDimensions dims =
@@ -195,11 +398,79 @@ public class PdfImageCompressor implements ImageCompressor {
         imageBytes = ImageProcessingUtils.writeImageAsPng(resized);
       }
 
-      PDImageXObject newImage = PDImageXObject.createFromByteArray(
-        document, imageBytes, entry.getCOSName().getName());
+      PDImageXObject newImage;
+      synchronized (document) {
+        newImage = PDImageXObject.createFromByteArray(
+          document, imageBytes, entry.getCOSName().getName());
+      }
       return new ImageEntry(entry.getCOSName(), newImage);
     } catch (IOException e) {
       throw new FileCompressionException("Failed to compress PDF file", e);
     }
   }
+
+  /**
+   * Copies the encoded bytes of a JPEG or JPEG 2000 image that can be decoded without the
+   * document, i.e. it has no masks, no decode array and an RGB or gray color space.
+   *
+   * @return the encoded image or null if it must be decoded with the document
+   */
+  private static byte[] getSelfContainedImage(PDImageXObject image) throws IOException {
+    COSStream stream = image.getCOSObject();
+    List<COSName> filters = image.getStream().getFilters();
+    if (filters.size() != 1 || !SELF_CONTAINED_FILTERS.contains(filters.get(0)) || image.isStencil()
+      || stream.containsKey(COSName.SMASK) || stream.containsKey(COSName.MASK) || stream.containsKey(COSName.DECODE)
+      || !SELF_CONTAINED_COLOR_SPACES.contains(image.getColorSpace().getName())) {
+      return null;
+    }
+    try (var rawInputStream = stream.createRawInputStream()) {
+      return rawInputStream.readAllBytes();
+    }
+  }
+
+  /**
+   * Decodes a self-contained image with ImageIO.
+   *
+   * @return the decoded image or null if ImageIO can't decode it, e.g. JPEG 2000 without a plugin
+   * or a CMYK JPEG, so it must be decoded with the document
+   */
+  private static BufferedImage readImage(ImageEntry entry, byte[] encodedImage) {
+    try {
+      return ImageIO.read(new ByteArrayInputStream(encodedImage));
+    } catch (IOException e) {
+      log.debug("Unable to decode image {} without the document", entry.getCOSName().getName(), e);
+      return null;
+    }
+  }
+
+  /**
+   * CPU time the images of one document may take. The time of an image is added once the image
+   * is compressed, so the budget may be exceeded by the images compressed at the same time.
+   */
+  @RequiredArgsConstructor
+  private static class CpuBudget {
+
+    private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+    private final long limitNanos;
+    private final AtomicLong usedNanos = new AtomicLong();
+
+    boolean isExceeded() {
+      return usedNanos.get() >= limitNanos;
+    }
+
+    <T> T measure(Supplier<T> job) {
+      var start = currentThreadTime();
+      try {
+        return job.get();
+      } finally {
+        usedNanos.addAndGet(currentThreadTime() - start);
+      }
+    }
+
+    private static long currentThreadTime() {
+      return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported()
+        ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+  }
 }
\ No newline at end of file
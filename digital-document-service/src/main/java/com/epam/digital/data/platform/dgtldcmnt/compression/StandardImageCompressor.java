@@ -33,11 +33,16 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.unit.DataSize;
 
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import java.awt.image.BufferedImage;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 
@@ -96,23 +101,34 @@ public class StandardImageCompressor implements ImageCompressor {
 
     try {
       inputStream.mark(Integer.MAX_VALUE);
-      BufferedImage inputImage = ImageIO.read(inputStream);
-      inputStream.reset();
-      if (inputImage == null) {
-        throw new FileCompressionException("Unable to read image from input stream");
+      BufferedImage inputImage;
+      ImageProcessingUtils.ImageDimensions dims;
+      try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+        ImageReader reader = getImageReader(imageInputStream);
+        try {
+          reader.setInput(imageInputStream, true, true);
+          // the dimensions are read from the header, the image isn't decoded yet
+          int originalWidth = reader.getWidth(0);
+          int originalHeight = reader.getHeight(0);
+          dims = ImageProcessingUtils.calculateNewImageDimensions(
+            originalWidth, originalHeight, imageMaxWidth, imageMaxHeight);
+
+          // Skip if no changes needed
+          if (dims.getWidth() == originalWidth
+            && dims.getHeight() == originalHeight
+            && compressionQuality == 100) {
+            inputStream.reset();
+            return inputStream;
+          }
+
+          inputImage = readImage(reader, originalWidth, originalHeight, dims);
+        } finally {
+          reader.dispose();
+        }
       }
+      inputStream.reset();
 
       boolean hasAlpha = inputImage.getColorModel().hasAlpha();
-      ImageProcessingUtils.ImageDimensions dims =
-        ImageProcessingUtils.calculateNewImageDimensions(inputImage, imageMaxWidth, imageMaxHeight);
-
-      // Skip if no changes needed
-      if (dims.getWidth() == inputImage.getWidth()
-        && dims.getHeight() == inputImage.getHeight()
-        && compressionQuality == 100) {
-        return inputStream;
-      }
-
       BufferedImage resized = ImageProcessingUtils.resizeImage(
         inputImage, dims, hasAlpha);
 
@@ -125,6 +141,32 @@ public class StandardImageCompressor implements ImageCompressor {
     }
   }
 
+  private ImageReader getImageReader(ImageInputStream imageInputStream) {
+    Iterator<ImageReader> readers = imageInputStream == null
+      ? Collections.emptyIterator() : ImageIO.getImageReaders(imageInputStream);
+    if (!readers.hasNext()) {
+      throw new FileCompressionException("Unable to read image from input stream");
+    }
+    return readers.next();
+  }
+
+  /**
+   * Decodes the image with source subsampling, so only about as many pixels as the target
+   * dimensions need are decoded and kept in memory instead of the whole image at full resolution.
+   */
+  private BufferedImage readImage(ImageReader reader, int originalWidth, int originalHeight,
+    ImageProcessingUtils.ImageDimensions dims) throws IOException {
+    int subsampling = ImageProcessingUtils.calculateSourceSubsampling(
+      originalWidth, originalHeight, dims);
+    ImageReadParam param = reader.getDefaultReadParam();
+    if (subsampling > 1) {
+      log.debug("Decoding {}x{} image with subsampling {} for target size {}x{}", originalWidth,
+        originalHeight, subsampling, dims.getWidth(), dims.getHeight());
+      param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+    }
+    return reader.read(0, param);
+  }
+
   /**
    * Compresses an image with specified compression quality.
    *
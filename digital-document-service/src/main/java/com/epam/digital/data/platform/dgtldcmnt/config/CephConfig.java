@@ -16,17 +16,34 @@
 
 package com.epam.digital.data.platform.dgtldcmnt.config;
 
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
 import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.epam.digital.data.platform.integration.ceph.config.S3ConfigProperties;
 import com.epam.digital.data.platform.integration.ceph.factory.CephS3Factory;
+import com.epam.digital.data.platform.dgtldcmnt.storage.ReadHedger;
 import com.epam.digital.data.platform.integration.ceph.metric.MicrometerMetricsCollector;
 import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProviderImpl;
 import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
  * The configurations that contain and configures beans for form data file storage service.
@@ -62,4 +79,96 @@ public class CephConfig {
   public FileDataCephStorageConfiguration cephStorageConfiguration() {
     return new FileDataCephStorageConfiguration();
   }
+
+  /**
+   * Low-level S3 client of the ceph storage. It is used for the operations that aren't provided
+   * by the file storage services, e.g. multipart uploads, and is configured with the same
+   * {@link S3ConfigProperties} as the clients of {@link CephS3Factory}.
+   */
+  @Bean
+  @Primary
+  public AmazonS3 cephAmazonS3(FileDataCephStorageConfiguration cephStorageConfiguration,
+      @Autowired(required = false) RequestMetricCollector collector) {
+    return amazonS3(cephStorageConfiguration, cephStorageConfiguration.getHttpEndpoint(),
+        collector);
+  }
+
+  /**
+   * S3 client that only signs the URLs the clients are redirected to, so it is configured with
+   * the ceph endpoint that is reachable by the clients. It never sends requests itself. The
+   * scheme of the public endpoint, if there is one, takes precedence over the client protocol.
+   */
+  @Bean
+  public AmazonS3 cephPresigningAmazonS3(FileDataCephStorageConfiguration cephStorageConfiguration,
+      @Value("${digital-documents.download-redirect.public-endpoint:${ceph.http-endpoint}}")
+      String publicEndpoint) {
+    return amazonS3(cephStorageConfiguration, publicEndpoint, null);
+  }
+
+  /**
+   * Hedges the document reads made with the low-level S3 client against the alternate gateways,
+   * with the same settings as the reads of the file storage services.
+   */
+  @Bean
+  @ConditionalOnProperty(prefix = "digital-documents.hedged-reads", name = "enabled",
+      havingValue = "true")
+  public ReadHedger<AmazonS3> amazonS3ReadHedger(AmazonS3 amazonS3,
+      FileDataCephStorageConfiguration cephStorageConfiguration, MeterRegistry meterRegistry,
+      @Qualifier("hedgedReadExecutor") ThreadPoolTaskExecutor executor,
+      @Autowired(required = false) RequestMetricCollector collector,
+      @Value("${digital-documents.hedged-reads.endpoints}") List<String> endpoints,
+      @Value("${digital-documents.hedged-reads.percentile:0.95}") double percentile,
+      @Value("${digital-documents.hedged-reads.min-delay:20ms}") Duration minDelay,
+      @Value("${digital-documents.hedged-reads.initial-delay:200ms}") Duration initialDelay,
+      @Value("${digital-documents.hedged-reads.max-hedge-ratio:0.05}") double maxHedgeRatio) {
+    var alternates = endpoints.stream()
+        .map(endpoint -> amazonS3(cephStorageConfiguration, endpoint, collector))
+        .collect(Collectors.toList());
+    return new ReadHedger<>(amazonS3, alternates, executor, meterRegistry, percentile, minDelay,
+        initialDelay, maxHedgeRatio);
+  }
+
+  private AmazonS3 amazonS3(FileDataCephStorageConfiguration cephStorageConfiguration,
+      String endpoint, RequestMetricCollector collector) {
+    var s3ConfigProperties = s3ConfigProperties();
+    var clientConfiguration = Objects.isNull(s3ConfigProperties.getClient())
+        ? new ClientConfiguration() : new ClientConfiguration(s3ConfigProperties.getClient());
+    var options = s3ConfigProperties.getOptions();
+    var pathStyleAccess = Objects.isNull(options)
+        || !Boolean.FALSE.equals(options.getPathStyleAccess());
+    var credentials = new BasicAWSCredentials(cephStorageConfiguration.getAccessKey(),
+        cephStorageConfiguration.getSecretKey());
+    return AmazonS3ClientBuilder.standard()
+        .withEndpointConfiguration(new EndpointConfiguration(endpoint, null))
+        .withClientConfiguration(clientConfiguration)
+        .withCredentials(new AWSStaticCredentialsProvider(credentials))
+        .withPathStyleAccessEnabled(pathStyleAccess)
+        .withMetricsCollector(collector)
+        .build();
+  }
+
+  @Bean
+  public FormDataFileKeyProvider formDataFileKeyProvider() {
+    return new FormDataFileKeyProviderImpl();
+  }
+
+  @Bean
+  public ThreadPoolTaskExecutor multipartUploadExecutor(
+      @Value("${digital-documents.multipart-upload.pool-size:16}") int poolSize) {
+    var executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setThreadNamePrefix("multipart-upload-");
+    return executor;
+  }
+
+  @Bean
+  public ThreadPoolTaskExecutor parallelDownloadExecutor(
+      @Value("${digital-documents.parallel-download.pool-size:16}") int poolSize) {
+    var executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setThreadNamePrefix("parallel-download-");
+    return executor;
+  }
 }
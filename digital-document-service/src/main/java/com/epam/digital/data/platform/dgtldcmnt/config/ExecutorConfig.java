@@ -0,0 +1,130 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.config;
+
+import java.util.concurrent.ThreadPoolExecutor.AbortPolicy;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * The configurations of the executors that run blocking remote calls of a request concurrently,
+ * the CPU-heavy work off the request threads and the asynchronous responses.
+ */
+@Configuration
+public class ExecutorConfig {
+
+  /**
+   * Bounded executor for the remote calls made while a document is uploaded. When the pool and
+   * the queue are full, the call is made in the request thread.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor remoteCallExecutor(
+      @Value("${digital-documents.remote-calls.pool-size:32}") int poolSize,
+      @Value("${digital-documents.remote-calls.queue-capacity:256}") int queueCapacity) {
+    var executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("remote-call-");
+    executor.setRejectedExecutionHandler(new CallerRunsPolicy());
+    executor.setTaskDecorator(requestContextTaskDecorator());
+    return executor;
+  }
+
+  /**
+   * Bounded executor for the compression of the uploaded documents. When the pool and the queue
+   * are full, the compression is rejected and the document is stored uncompressed.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor compressionExecutor(
+      @Value("${digital-documents.compression.pool-size:4}") int poolSize,
+      @Value("${digital-documents.compression.queue-capacity:16}") int queueCapacity) {
+    var executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("compression-");
+    executor.setRejectedExecutionHandler(new AbortPolicy());
+    return executor;
+  }
+
+  /**
+   * Bounded executor for the images of the compressed PDF documents, shared by all the documents
+   * being compressed. When the pool and the queue are full, the image is compressed in the thread
+   * that compresses the document.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor pdfImageExecutor(
+      @Value("${digital-documents.compression.pdf-images.pool-size:4}") int poolSize,
+      @Value("${digital-documents.compression.pdf-images.queue-capacity:64}") int queueCapacity) {
+    var executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("pdf-image-");
+    executor.setRejectedExecutionHandler(new CallerRunsPolicy());
+    return executor;
+  }
+
+  /**
+   * Bounded executor for the asynchronous responses, e.g. the streamed archives of the documents.
+   * The executors declared here disable the one Spring Boot would configure, so without it every
+   * asynchronous response would start a new thread. When the pool and the queue are full, the
+   * response is written in the request thread.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor mvcAsyncExecutor(
+      @Value("${digital-documents.async-requests.pool-size:16}") int poolSize,
+      @Value("${digital-documents.async-requests.queue-capacity:64}") int queueCapacity) {
+    var executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("mvc-async-");
+    executor.setRejectedExecutionHandler(new CallerRunsPolicy());
+    return executor;
+  }
+
+  /**
+   * Runs a task with the request attributes and the security context of the thread that
+   * submitted it, so the feign clients send the same headers as in the request thread.
+   */
+  private TaskDecorator requestContextTaskDecorator() {
+    return runnable -> {
+      var requestAttributes = RequestContextHolder.getRequestAttributes();
+      var securityContext = SecurityContextHolder.getContext();
+      return () -> {
+        var previousRequestAttributes = RequestContextHolder.getRequestAttributes();
+        var previousSecurityContext = SecurityContextHolder.getContext();
+        RequestContextHolder.setRequestAttributes(requestAttributes);
+        SecurityContextHolder.setContext(securityContext);
+        try {
+          runnable.run();
+        } finally {
+          RequestContextHolder.setRequestAttributes(previousRequestAttributes);
+          SecurityContextHolder.setContext(previousSecurityContext);
+        }
+      };
+    };
+  }
+}
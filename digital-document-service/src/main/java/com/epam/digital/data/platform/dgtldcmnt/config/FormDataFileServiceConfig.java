@@ -1,14 +1,26 @@
 package com.epam.digital.data.platform.dgtldcmnt.config;
 
+import com.epam.digital.data.platform.dgtldcmnt.storage.HedgingCephService;
 import com.epam.digital.data.platform.integration.ceph.factory.CephS3Factory;
 import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
 import com.epam.digital.data.platform.storage.file.factory.FormDataFileStorageServiceFactory;
+import com.epam.digital.data.platform.storage.file.repository.CephFormDataFileRepository;
 import com.epam.digital.data.platform.storage.file.repository.FormDataFileRepository;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
 import com.epam.digital.data.platform.storage.file.service.FormDataFileStorageService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 /**
  * The configurations that contain and configures beans for form data file storage service.
@@ -25,8 +37,58 @@ public class FormDataFileServiceConfig {
   @Bean
   public FormDataFileStorageService formDataFileStorageService(
       FormDataFileStorageServiceFactory factory,
-      FileDataCephStorageConfiguration config) {
-    return factory.fromDataFileStorageService(config);
+      FileDataCephStorageConfiguration config,
+      FormDataFileKeyProvider keyProvider,
+      ObjectProvider<HedgingCephService> hedgingCephService) {
+    var cephService = hedgingCephService.getIfAvailable();
+    if (cephService == null) {
+      return factory.fromDataFileStorageService(config);
+    }
+    return FormDataFileStorageService.builder()
+        .keyProvider(keyProvider)
+        .repository(CephFormDataFileRepository.builder()
+            .cephService(cephService)
+            .cephBucketName(config.getBucket())
+            .build())
+        .build();
+  }
+
+  /**
+   * Ceph service that hedges the reads of the form data files against the alternate gateways.
+   */
+  @Bean
+  @ConditionalOnProperty(prefix = "digital-documents.hedged-reads", name = "enabled",
+      havingValue = "true")
+  public HedgingCephService hedgingCephService(CephS3Factory cephS3Factory,
+      FileDataCephStorageConfiguration config, MeterRegistry meterRegistry,
+      @Qualifier("hedgedReadExecutor") ThreadPoolTaskExecutor executor,
+      @Value("${digital-documents.hedged-reads.endpoints}") List<String> endpoints,
+      @Value("${digital-documents.hedged-reads.percentile:0.95}") double percentile,
+      @Value("${digital-documents.hedged-reads.min-delay:20ms}") Duration minDelay,
+      @Value("${digital-documents.hedged-reads.initial-delay:200ms}") Duration initialDelay,
+      @Value("${digital-documents.hedged-reads.max-hedge-ratio:0.05}") double maxHedgeRatio) {
+    var primary = cephS3Factory.createCephService(config.getHttpEndpoint(),
+        config.getAccessKey(), config.getSecretKey());
+    var alternates = endpoints.stream()
+        .map(endpoint -> cephS3Factory.createCephService(endpoint, config.getAccessKey(),
+            config.getSecretKey()))
+        .collect(Collectors.toList());
+    return new HedgingCephService(primary, alternates, executor, meterRegistry, percentile,
+        minDelay, initialDelay, maxHedgeRatio);
+  }
+
+  @Bean
+  @ConditionalOnProperty(prefix = "digital-documents.hedged-reads", name = "enabled",
+      havingValue = "true")
+  public ThreadPoolTaskExecutor hedgedReadExecutor(
+      @Value("${digital-documents.hedged-reads.pool-size:32}") int poolSize,
+      @Value("${digital-documents.hedged-reads.queue-capacity:64}") int queueCapacity) {
+    var executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("hedged-read-");
+    return executor;
   }
 
   @Bean
@@ -17,14 +17,19 @@
 package com.epam.digital.data.platform.dgtldcmnt.config;
 
 import com.epam.digital.data.platform.bpms.client.config.FeignConfig;
+import java.time.Duration;
 import javax.servlet.MultipartConfigElement;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
 import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.AsyncTaskExecutor;
 import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
@@ -34,6 +39,10 @@ public class GeneralConfig implements WebMvcConfigurer {
 
   private final MultipartProperties multipartProperties;
   private final DigitalDocumentsConfigurationProperties digitalDocumentsProperties;
+  @Qualifier("mvcAsyncExecutor")
+  private final AsyncTaskExecutor mvcAsyncExecutor;
+  @Value("${digital-documents.async-requests.timeout:10m}")
+  private final Duration asyncRequestTimeout;
 
   @Bean
   @Primary
@@ -44,4 +53,10 @@ public class GeneralConfig implements WebMvcConfigurer {
         DataSize.ofBytes(digitalDocumentsProperties.getMaxTotalFileSize().toBytes()));
     return this.multipartProperties.createMultipartConfig();
   }
+
+  @Override
+  public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+    configurer.setTaskExecutor(mvcAsyncExecutor);
+    configurer.setDefaultTimeout(asyncRequestTimeout.toMillis());
+  }
 }
@@ -0,0 +1,161 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.content;
+
+import com.epam.digital.data.platform.dgtldcmnt.wrapper.CompressingInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Negotiates the content coding of the downloaded documents. The documents of the compressible
+ * media types are compressed with gzip or deflate, whichever the client prefers, while they are
+ * sent, unless they are small enough for the compression not to pay off.
+ */
+@Slf4j
+@Component
+public class ContentEncodingNegotiator {
+
+  public static final String GZIP = "gzip";
+  public static final String DEFLATE = "deflate";
+  /**
+   * The supported content codings in the order of the server preference.
+   */
+  private static final List<String> SUPPORTED_ENCODINGS = List.of(GZIP, DEFLATE);
+  private static final String ANY = "*";
+  private static final String QUALITY_PARAMETER = "q=";
+
+  private final boolean enabled;
+  private final Set<MediaType> mediaTypes;
+  private final long minSize;
+  private final int bufferSize;
+
+  public ContentEncodingNegotiator(
+      @Value("${digital-documents.content-encoding.enabled:true}") boolean enabled,
+      @Value("${digital-documents.content-encoding.media-types:text/csv}") List<String> mediaTypes,
+      @Value("${digital-documents.content-encoding.min-size:1KB}") DataSize minSize,
+      @Value("${digital-documents.content-encoding.buffer-size:8KB}") DataSize bufferSize) {
+    this.enabled = enabled;
+    this.mediaTypes = mediaTypes.stream()
+        .filter(StringUtils::hasText)
+        .map(MediaType::parseMediaType)
+        .collect(Collectors.toSet());
+    this.minSize = minSize.toBytes();
+    this.bufferSize = Math.toIntExact(bufferSize.toBytes());
+  }
+
+  /**
+   * Parses the Accept-Encoding header of a download request. A malformed coding is ignored.
+   *
+   * @param headers the request headers
+   * @return the supported content codings the client accepts, the most preferred first, or an
+   * empty list if the content must not be encoded
+   */
+  public List<String> getAcceptedEncodings(HttpHeaders headers) {
+    var acceptEncoding = headers.get(HttpHeaders.ACCEPT_ENCODING);
+    if (!enabled || Objects.isNull(acceptEncoding)) {
+      return List.of();
+    }
+    var qualities = new HashMap<String, Double>();
+    for (var value : acceptEncoding) {
+      for (var coding : value.split(",")) {
+        var parts = coding.split(";");
+        var name = parts[0].trim().toLowerCase(Locale.ROOT);
+        if (name.isEmpty()) {
+          continue;
+        }
+        var quality = 1.0;
+        for (int i = 1; i < parts.length; i++) {
+          var parameter = parts[i].trim();
+          if (parameter.startsWith(QUALITY_PARAMETER)) {
+            try {
+              quality = Double.parseDouble(parameter.substring(QUALITY_PARAMETER.length()));
+            } catch (NumberFormatException e) {
+              log.debug("Ignoring malformed content coding {}", coding);
+              quality = 0;
+            }
+          }
+        }
+        qualities.put(name, quality);
+      }
+    }
+    var result = new ArrayList<String>();
+    for (var encoding : SUPPORTED_ENCODINGS) {
+      if (getQuality(qualities, encoding) > 0) {
+        result.add(encoding);
+      }
+    }
+    // the sort is stable, so the server preference is kept for the same quality
+    result.sort(Comparator.comparingDouble(
+        (String encoding) -> getQuality(qualities, encoding)).reversed());
+    return result;
+  }
+
+  private static double getQuality(Map<String, Double> qualities, String encoding) {
+    return qualities.getOrDefault(encoding, qualities.getOrDefault(ANY, 0.0));
+  }
+
+  /**
+   * @param contentType the content type of a document
+   * @param length      the length of the document
+   * @return true if the document is worth being compressed
+   */
+  public boolean isCompressible(String contentType, long length) {
+    if (!enabled || length < minSize || Objects.isNull(contentType)) {
+      return false;
+    }
+    MediaType mediaType;
+    try {
+      mediaType = MediaType.parseMediaType(contentType);
+    } catch (IllegalArgumentException e) {
+      return false;
+    }
+    return mediaTypes.stream().anyMatch(type -> type.includes(mediaType));
+  }
+
+  /**
+   * Compresses the content while it is read.
+   *
+   * @param content  the content of a document
+   * @param encoding one of the accepted content codings
+   * @return stream with the encoded content
+   */
+  public InputStream encode(InputStream content, String encoding) {
+    switch (encoding) {
+      case GZIP:
+        return CompressingInputStream.gzip(content, bufferSize);
+      case DEFLATE:
+        return CompressingInputStream.deflate(content, bufferSize);
+      default:
+        throw new IllegalArgumentException("Unsupported content coding " + encoding);
+    }
+  }
+}
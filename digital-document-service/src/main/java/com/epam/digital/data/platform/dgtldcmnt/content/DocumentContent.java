@@ -0,0 +1,176 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.content;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Buffered content of an uploaded document that can be read any number of times. Small documents
+ * are kept on the heap, larger ones are spooled to a temporary file that is read with positional
+ * reads, so the heap usage doesn't depend on the document size.
+ * <p>
+ * Every stream over a spooled content reads the file through its own channel, so a reader that is
+ * interrupted, e.g. a compression job past its deadline, doesn't close the file for the others.
+ * The content must be closed when it isn't needed anymore to close the channels that are still
+ * open and delete the temporary file.
+ *
+ * @see DocumentContentFactory
+ */
+@Slf4j
+public class DocumentContent implements AutoCloseable {
+
+  private final ByteBuffer data;
+  private final Path file;
+  private final Set<FileChannel> channels = ConcurrentHashMap.newKeySet();
+  private volatile boolean closed;
+  @Getter
+  private final long length;
+  /**
+   * SHA-256 digest of the content as a hex string.
+   */
+  @Getter
+  private final String checksum;
+
+  private DocumentContent(ByteBuffer data, Path file, long length, String checksum) {
+    this.data = data;
+    this.file = file;
+    this.length = length;
+    this.checksum = checksum;
+  }
+
+  static DocumentContent inMemory(byte[] data, String checksum) {
+    return new DocumentContent(ByteBuffer.wrap(data).asReadOnlyBuffer(), null, data.length,
+        checksum);
+  }
+
+  static DocumentContent spooled(Path file, String checksum) throws IOException {
+    return new DocumentContent(null, file, Files.size(file), checksum);
+  }
+
+  /**
+   * Opens a new stream over the whole content. Every stream has its own position, so the content
+   * may be read by several consumers one after another or at the same time.
+   *
+   * @return stream that supports mark and reset without buffering the read data
+   */
+  public BufferedInputStream newInputStream() {
+    return new DocumentContentInputStream(this, 0, length);
+  }
+
+  /**
+   * Opens a new stream over a region of the content.
+   *
+   * @param offset the position of the first byte of the region
+   * @param length the length of the region
+   * @return stream that supports mark and reset without buffering the read data
+   */
+  public BufferedInputStream newInputStream(long offset, long length) {
+    return new DocumentContentInputStream(this, offset, offset + length);
+  }
+
+  /**
+   * @return the temporary file the content has been spooled to or empty if it is kept in memory
+   */
+  public Optional<Path> getFile() {
+    return Optional.ofNullable(file);
+  }
+
+  /**
+   * @return true if the content has been spooled to a temporary file
+   */
+  public boolean isSpooled() {
+    return Objects.nonNull(file);
+  }
+
+  /**
+   * Reads a byte of the content kept in memory.
+   */
+  byte get(long position) {
+    return data.get(Math.toIntExact(position));
+  }
+
+  /**
+   * Reads the bytes of the content kept in memory.
+   */
+  void get(long position, byte[] b, int off, int len) {
+    var region = data.duplicate();
+    region.position(Math.toIntExact(position));
+    region.get(b, off, len);
+  }
+
+  /**
+   * Reads the bytes of the spooled content with positional reads of the channel.
+   */
+  static void read(FileChannel channel, long position, byte[] b, int off, int len)
+      throws IOException {
+    var buffer = ByteBuffer.wrap(b, off, len);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position() - off) < 0) {
+        throw new EOFException("Spooled document content has been truncated");
+      }
+    }
+  }
+
+  /**
+   * Opens a channel over the spooled content, it is closed with the content if it is still open.
+   */
+  FileChannel openChannel() throws IOException {
+    var channel = FileChannel.open(file, StandardOpenOption.READ);
+    channels.add(channel);
+    if (closed) {
+      closeChannel(channel);
+      throw new IOException("Document content has been closed");
+    }
+    return channel;
+  }
+
+  void closeChannel(FileChannel channel) {
+    channels.remove(channel);
+    try {
+      channel.close();
+    } catch (IOException e) {
+      log.warn("Unable to close channel of spooled document content {}", file, e);
+    }
+  }
+
+  @Override
+  public void close() {
+    if (Objects.isNull(file)) {
+      return;
+    }
+    closed = true;
+    channels.forEach(this::closeChannel);
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Unable to delete spooled document content {}", file, e);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.content;
+
+import com.epam.digital.data.platform.dgtldcmnt.wrapper.Sha256DigestCalculatingInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.binary.Hex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Creates {@link DocumentContent} from a one-pass input stream. The content is kept in memory
+ * while it fits into the configured threshold and is spooled to a temporary file otherwise. The
+ * SHA-256 digest of the content is calculated while it is buffered.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentContentFactory {
+
+  private static final String TEMP_FILE_PREFIX = "document-content-";
+
+  @Value("${digital-documents.content-buffer.in-memory-threshold:1MB}")
+  private final DataSize inMemoryThreshold;
+  @Value("${digital-documents.content-buffer.directory:${java.io.tmpdir}}")
+  private final String directory;
+
+  /**
+   * Reads the whole input stream into a new {@link DocumentContent}. The input stream is not
+   * closed.
+   *
+   * @param inputStream the stream with the document data
+   * @return buffered document content
+   * @throws UncheckedIOException if the stream can't be read or the temporary file can't be
+   *                              written
+   */
+  public DocumentContent spool(InputStream inputStream) {
+    var sha256DigestCalculatingIS = new Sha256DigestCalculatingInputStream(inputStream);
+    var threshold = (int) Math.min(inMemoryThreshold.toBytes(), Integer.MAX_VALUE - 8);
+    try {
+      var head = sha256DigestCalculatingIS.readNBytes(threshold + 1);
+      if (head.length <= threshold) {
+        return DocumentContent.inMemory(head,
+            Hex.encodeHexString(sha256DigestCalculatingIS.getDigest()));
+      }
+      var file = Files.createTempFile(Path.of(directory), TEMP_FILE_PREFIX, null);
+      try {
+        try (var outputStream = Files.newOutputStream(file)) {
+          outputStream.write(head);
+          sha256DigestCalculatingIS.transferTo(outputStream);
+        }
+        log.debug("Document content spooled to {}", file);
+        return DocumentContent.spooled(file,
+            Hex.encodeHexString(sha256DigestCalculatingIS.getDigest()));
+      } catch (IOException | RuntimeException e) {
+        Files.deleteIfExists(file);
+        throw e;
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to buffer document content", e);
+    }
+  }
+}
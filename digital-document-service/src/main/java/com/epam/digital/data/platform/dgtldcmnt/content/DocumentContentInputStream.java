@@ -0,0 +1,156 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.content;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.util.Objects;
+import javax.annotation.concurrent.NotThreadSafe;
+import lombok.Getter;
+
+/**
+ * {@link BufferedInputStream} over {@link DocumentContent}. It reads directly from the content, so
+ * {@link #mark(int)} and {@link #reset()} only move the position and never copy the read data,
+ * whatever the read limit is.
+ * <p>
+ * A spooled content is read through a channel the stream opens on the first read. The small reads
+ * are served from a chunk read ahead, the large ones are read from the file directly. Closing the
+ * stream closes the channel, it is opened again if the stream is read after that.
+ */
+@NotThreadSafe
+public class DocumentContentInputStream extends BufferedInputStream {
+
+  private static final int CHUNK_SIZE = 8192;
+
+  @Getter
+  private final DocumentContent documentContent;
+  private final long end;
+  private long position;
+  private long markPosition = -1;
+  private FileChannel channel;
+  private byte[] chunk;
+  private long chunkStart;
+  private int chunkLength;
+
+  DocumentContentInputStream(DocumentContent documentContent, long start, long end) {
+    super(InputStream.nullInputStream(), 1);
+    this.documentContent = documentContent;
+    this.position = start;
+    this.end = end;
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (position >= end) {
+      return -1;
+    }
+    if (!documentContent.isSpooled()) {
+      return documentContent.get(position++) & 0xFF;
+    }
+    if (!isInChunk()) {
+      var length = (int) Math.min(CHUNK_SIZE, end - position);
+      if (Objects.isNull(chunk)) {
+        chunk = new byte[CHUNK_SIZE];
+      }
+      DocumentContent.read(getChannel(), position, chunk, 0, length);
+      chunkStart = position;
+      chunkLength = length;
+    }
+    return chunk[(int) (position++ - chunkStart)] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    Objects.checkFromIndexSize(off, len, b.length);
+    if (len == 0) {
+      return 0;
+    }
+    if (position >= end) {
+      return -1;
+    }
+    var count = (int) Math.min(len, end - position);
+    if (!documentContent.isSpooled()) {
+      documentContent.get(position, b, off, count);
+    } else if (isInChunk()) {
+      count = (int) Math.min(count, chunkStart + chunkLength - position);
+      System.arraycopy(chunk, (int) (position - chunkStart), b, off, count);
+    } else {
+      DocumentContent.read(getChannel(), position, b, off, count);
+    }
+    position += count;
+    return count;
+  }
+
+  @Override
+  public long skip(long n) {
+    var skipped = Math.max(0, Math.min(n, end - position));
+    position += skipped;
+    return skipped;
+  }
+
+  @Override
+  public int available() {
+    return (int) Math.min(Integer.MAX_VALUE, end - position);
+  }
+
+  @Override
+  public boolean markSupported() {
+    return true;
+  }
+
+  @Override
+  public void mark(int readlimit) {
+    markPosition = position;
+  }
+
+  @Override
+  public void reset() throws IOException {
+    if (markPosition < 0) {
+      throw new IOException("Resetting to invalid mark");
+    }
+    position = markPosition;
+  }
+
+  @Override
+  public void close() {
+    // the content is owned and released by DocumentContent, only the channel of the stream is
+    // closed
+    if (Objects.nonNull(channel)) {
+      documentContent.closeChannel(channel);
+      channel = null;
+    }
+  }
+
+  private boolean isInChunk() {
+    return Objects.nonNull(chunk) && position >= chunkStart
+        && position < chunkStart + chunkLength;
+  }
+
+  private FileChannel getChannel() throws IOException {
+    if (Objects.nonNull(channel) && !channel.isOpen()) {
+      // the channel is closed when a read of the stream is interrupted
+      documentContent.closeChannel(channel);
+      channel = null;
+    }
+    if (Objects.isNull(channel)) {
+      channel = documentContent.openChannel();
+    }
+    return channel;
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletRequestEvent;
+import javax.servlet.ServletRequestListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Closes the references to the cached document content a download response has been built from
+ * when its request is destroyed, i.e. after the response content has been streamed from it. The
+ * file of an evicted document is therefore deleted only once none of the downloads reads it.
+ */
+@Slf4j
+@Component
+public class ContentReferenceReleaser implements ServletRequestListener {
+
+  private static final String REFERENCES_ATTR = ContentReferenceReleaser.class.getName()
+      + ".references";
+
+  /**
+   * Registers a reference to be closed when the request is destroyed.
+   *
+   * @param request   the download request
+   * @param reference the reference to the document content
+   */
+  @SuppressWarnings("unchecked")
+  public static void releaseAfter(ServletRequest request, AutoCloseable reference) {
+    var references = (List<AutoCloseable>) request.getAttribute(REFERENCES_ATTR);
+    if (Objects.isNull(references)) {
+      references = new ArrayList<>();
+      request.setAttribute(REFERENCES_ATTR, references);
+    }
+    references.add(reference);
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void requestDestroyed(ServletRequestEvent event) {
+    var references = (List<AutoCloseable>) event.getServletRequest()
+        .getAttribute(REFERENCES_ATTR);
+    if (Objects.isNull(references)) {
+      return;
+    }
+    for (var reference : references) {
+      try {
+        reference.close();
+      } catch (Exception e) {
+        log.warn("Unable to release document content", e);
+      }
+    }
+  }
+}
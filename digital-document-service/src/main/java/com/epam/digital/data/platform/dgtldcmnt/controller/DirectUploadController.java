@@ -0,0 +1,218 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.controller;
+
+import com.epam.digital.data.platform.dgtldcmnt.dto.DirectUploadCompleteRequestDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DirectUploadDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DirectUploadRequestDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentMetadataDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
+import com.epam.digital.data.platform.dgtldcmnt.facade.DocumentFacade;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.enums.ParameterIn;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.ExampleObject;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import javax.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * The endpoints of the documents the clients upload directly to the ceph storage with pre-signed
+ * requests. They exist only if the direct uploads are enabled, as the pre-signed requests have to
+ * be sent to a ceph endpoint reachable by the clients.
+ */
+@RestController
+@RequestMapping("/documents")
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "digital-documents.direct-upload", name = "enabled",
+    havingValue = "true")
+@Tag(description = "Digital document service Rest API", name = "digital-document-service-api")
+public class DirectUploadController {
+
+  private final DocumentFacade documentFacade;
+
+  /**
+   * Endpoint that initiates direct upload of document to the storage.
+   *
+   * @param rootProcessInstanceId specified id of root process instance.
+   * @param taskId                specified task id.
+   * @param fieldName             specified filed name.
+   * @param requestDto            declared metadata of the document.
+   * @param authentication        object with authentication data.
+   * @return {@link DirectUploadDto} with the pre-signed upload request.
+   */
+  @PostMapping("/{rootProcessInstanceId}/{taskId}/{fieldName}/direct-uploads")
+  @Operation(summary = "Initiate direct upload of document to the storage",
+      description = "### Endpoint purpose:\n This endpoint allows to upload a large document directly to the storage instead of sending it through the service. It returns a short-lived pre-signed request the document has to be uploaded with. Once the document is uploaded, the upload must be completed with the returned id.\n"
+          + "### Authorization:\n This endpoint requires valid user authentication. To access this endpoint, the request must include a valid access token in the _X-Access-Token_ header, otherwise, the API will return a _401 Unauthorized_ status code. Also if _rootProcessInstanceId_ not in task, which retrieved by _taskId_, or task is suspended, or assignee of task is not the same as provided in _X-Access-Token_ then _403_ status code returned.\n"
+          + "### Validation:\n The declared file name, media type and size are validated the same way as for the upload through the service. The content of the document is validated when the upload is completed. The document must be uploaded with exactly the declared size and the returned headers.",
+      parameters = @Parameter(
+          in = ParameterIn.HEADER,
+          name = "X-Access-Token",
+          description = "Token used for endpoint security",
+          required = true,
+          schema = @Schema(type = "string")
+      ),
+      requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true,
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+              schema = @Schema(implementation = DirectUploadRequestDto.class),
+              examples = {
+                  @ExampleObject(value = "{\n"
+                      + "  \"filename\": \"my-file-name.pdf\",\n"
+                      + "  \"contentType\": \"application/pdf\",\n"
+                      + "  \"size\": 52428800\n"
+                      + "}")
+              })),
+      responses = {
+          @ApiResponse(
+              description = "Direct upload initiated, returns the pre-signed upload request",
+              responseCode = "200",
+              content = @Content(schema = @Schema(implementation = DirectUploadDto.class))),
+          @ApiResponse(
+              responseCode = "401",
+              description = "Unauthorized",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              description = "Forbidden. Validation of rootProcessInstanceId or taskId not passed.",
+              responseCode = "403",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              responseCode = "415",
+              description = "Unsupported Media Type",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              description = "Declared document is not valid or its size is more than allowed",
+              responseCode = "422",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              responseCode = "500",
+              description = "Internal server error",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          )
+      })
+  public DirectUploadDto initDirectUpload(
+      @PathVariable("rootProcessInstanceId") String rootProcessInstanceId,
+      @PathVariable("taskId") String taskId,
+      @PathVariable("fieldName") String fieldName,
+      @Valid @RequestBody DirectUploadRequestDto requestDto,
+      Authentication authentication) {
+    var uploadDocumentDto = UploadDocumentFromUserFormDto.builder()
+        .filename(requestDto.getFilename())
+        .contentType(requestDto.getContentType())
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .fieldName(fieldName)
+        .size(requestDto.getSize())
+        .taskId(taskId)
+        .build();
+    return documentFacade.validateAndInitDirectUpload(uploadDocumentDto, authentication);
+  }
+
+  /**
+   * Endpoint that completes direct upload of document to the storage.
+   *
+   * @param rootProcessInstanceId specified id of root process instance.
+   * @param taskId                specified task id.
+   * @param fieldName             specified filed name.
+   * @param id                    id of the direct upload.
+   * @param requestDto            metadata of the uploaded document.
+   * @param authentication        object with authentication data.
+   * @return {@link DocumentMetadataDto} with metadata of the stored document.
+   */
+  @PostMapping("/{rootProcessInstanceId}/{taskId}/{fieldName}/direct-uploads/{id}")
+  @Operation(summary = "Complete direct upload of document to the storage",
+      description = "### Endpoint purpose:\n This endpoint completes the upload of a document that has been uploaded directly to the storage. The uploaded document is validated, its checksum is verified if provided and the document is stored as part of a specified process instance. The uploaded document is deleted if it is not valid.\n"
+          + "### Authorization:\n This endpoint requires valid user authentication. To access this endpoint, the request must include a valid access token in the _X-Access-Token_ header, otherwise, the API will return a _401 Unauthorized_ status code. Also if _rootProcessInstanceId_ not in task, which retrieved by _taskId_, or task is suspended, or assignee of task is not the same as provided in _X-Access-Token_ then _403_ status code returned.\n"
+          + "### Validation:\n The uploaded document is validated the same way as for the upload through the service. If the document has not been uploaded, its size differs from the declared one, its checksum doesn't match or it is not valid, a _422 Unprocessable Entity_ status code is returned.",
+      parameters = @Parameter(
+          in = ParameterIn.HEADER,
+          name = "X-Access-Token",
+          description = "Token used for endpoint security",
+          required = true,
+          schema = @Schema(type = "string")
+      ),
+      requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true,
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+              schema = @Schema(implementation = DirectUploadCompleteRequestDto.class),
+              examples = {
+                  @ExampleObject(value = "{\n"
+                      + "  \"filename\": \"my-file-name.pdf\",\n"
+                      + "  \"contentType\": \"application/pdf\",\n"
+                      + "  \"checksum\": \"039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81\"\n"
+                      + "}")
+              })),
+      responses = {
+          @ApiResponse(
+              description = "Document uploaded, returns uploaded document metadata",
+              responseCode = "200",
+              content = @Content(schema = @Schema(implementation = DocumentMetadataDto.class))),
+          @ApiResponse(
+              responseCode = "401",
+              description = "Unauthorized",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              description = "Forbidden. Validation of rootProcessInstanceId or taskId not passed.",
+              responseCode = "403",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              description = "Uploaded document is missing or not valid",
+              responseCode = "422",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              responseCode = "500",
+              description = "Internal server error",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          )
+      })
+  public DocumentMetadataDto completeDirectUpload(
+      @RequestHeader(DocumentController.X_FORWARDED_HOST_HEADER) String originRequestUrl,
+      @PathVariable("rootProcessInstanceId") String rootProcessInstanceId,
+      @PathVariable("taskId") String taskId,
+      @PathVariable("fieldName") String fieldName,
+      @PathVariable("id") String id,
+      @Valid @RequestBody DirectUploadCompleteRequestDto requestDto,
+      Authentication authentication) {
+    var uploadDocumentDto = UploadDocumentFromUserFormDto.builder()
+        .filename(requestDto.getFilename())
+        .contentType(requestDto.getContentType())
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .originRequestUrl(originRequestUrl)
+        .fieldName(fieldName)
+        .taskId(taskId)
+        .build();
+    return documentFacade.validateAndCompleteDirectUpload(uploadDocumentDto, id,
+        requestDto.getChecksum(), authentication);
+  }
+}
@@ -16,8 +16,8 @@
 
 package com.epam.digital.data.platform.dgtldcmnt.controller;
 
-import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DeleteDocumentDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentArchiveRequestDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentMetadataDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentMetadataSearchRequestDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.GetDocumentDto;
@@ -39,12 +39,12 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Objects;
 import javax.servlet.annotation.MultipartConfig;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -59,6 +59,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequestMapping("/documents")
@@ -69,8 +70,8 @@ public class DocumentController {
 
   public static final String X_FORWARDED_HOST_HEADER = "x-forwarded-host";
 
-  private final DigitalDocumentsConfigurationProperties digitalDocumentsProperties;
   private final DocumentFacade documentFacade;
+  private final DocumentResponseFactory documentResponseFactory;
 
   /**
    * Endpoint for uploading document.
@@ -149,20 +150,23 @@ public class DocumentController {
       @RequestParam(required = false, name = "imageMaxHeight") Integer imageMaxHeight,
       @RequestParam(required = false, name = "compressionQuality") Integer compressionQuality,
       Authentication authentication) throws IOException {
-    var uploadDocumentDto = UploadDocumentFromUserFormDto.builder()
-        .filename(Objects.isNull(filename) ? file.getOriginalFilename() : filename)
-        .fileInputStream(new BufferedInputStream(file.getInputStream()))
-        .contentType(file.getContentType())
-        .rootProcessInstanceId(rootProcessInstanceId)
-        .originRequestUrl(originRequestUrl)
-        .fieldName(fieldName)
-        .size(file.getSize())
-        .taskId(taskId)
-        .imageMaxWidth(imageMaxWidth)
-        .imageMaxHeight(imageMaxHeight)
-        .compressionQuality(compressionQuality)
-        .build();
-    return documentFacade.validateAndPut(uploadDocumentDto, authentication);
+    // the upload is buffered by the facade once it is authorized and the memory is reserved
+    try (var inputStream = file.getInputStream()) {
+      var uploadDocumentDto = UploadDocumentFromUserFormDto.builder()
+          .filename(Objects.isNull(filename) ? file.getOriginalFilename() : filename)
+          .fileInputStream(new BufferedInputStream(inputStream))
+          .contentType(file.getContentType())
+          .rootProcessInstanceId(rootProcessInstanceId)
+          .originRequestUrl(originRequestUrl)
+          .fieldName(fieldName)
+          .size(file.getSize())
+          .taskId(taskId)
+          .imageMaxWidth(imageMaxWidth)
+          .imageMaxHeight(imageMaxHeight)
+          .compressionQuality(compressionQuality)
+          .build();
+      return documentFacade.validateAndPut(uploadDocumentDto, authentication);
+    }
   }
 
   /**
@@ -192,6 +196,20 @@ public class DocumentController {
               responseCode = "200",
               content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE))
           ,
+          @ApiResponse(
+              description = "Requested byte ranges of the document are returned",
+              responseCode = "206",
+              content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+          ),
+          @ApiResponse(
+              description = "Document is not modified since the version with the provided ETag",
+              responseCode = "304"
+          ),
+          @ApiResponse(
+              description = "Large document is downloaded from the storage by the short-lived "
+                  + "URL in the Location header",
+              responseCode = "307"
+          ),
           @ApiResponse(
               responseCode = "401",
               description = "Unauthorized",
@@ -207,6 +225,11 @@ public class DocumentController {
               responseCode = "404",
               content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
           ),
+          @ApiResponse(
+              description = "None of the requested byte ranges is satisfiable",
+              responseCode = "416",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
           @ApiResponse(
               responseCode = "500",
               description = "Internal server error",
@@ -218,25 +241,22 @@ public class DocumentController {
       @PathVariable("taskId") String taskId,
       @PathVariable("fieldName") String fieldName,
       @PathVariable("id") String id,
+      @RequestHeader HttpHeaders headers,
+      HttpServletRequest request,
       Authentication authentication) {
     var getDocumentDto = GetDocumentDto.builder()
         .rootProcessInstanceId(rootProcessInstanceId)
         .fieldName(fieldName)
         .taskId(taskId)
         .id(id)
+        .ranges(documentResponseFactory.getRanges(headers))
+        .ifRange(headers.getFirst(HttpHeaders.IF_RANGE))
+        .ifNoneMatch(documentResponseFactory.getIfNoneMatch(headers))
+        .acceptedEncodings(documentResponseFactory.getAcceptedEncodings(headers))
+        .redirectAllowed(true)
         .build();
     var documentDto = documentFacade.validateAndGet(getDocumentDto, authentication);
-    var contentDisposition = ContentDisposition.builder(
-            digitalDocumentsProperties.getContent().getDispositionType())
-        .filename(documentDto.getName()).build();
-    var headers = new HttpHeaders();
-    headers.setContentDisposition(contentDisposition);
-    var resource = new InputStreamResource(documentDto.getContent());
-    return ResponseEntity.ok()
-        .contentType(MediaType.valueOf(documentDto.getContentType()))
-        .contentLength(documentDto.getSize())
-        .headers(headers)
-        .body(resource);
+    return documentResponseFactory.toResponse(documentDto, request);
   }
 
   @PostMapping("/{rootProcessInstanceId}/{taskId}/search")
@@ -319,6 +339,67 @@ public class DocumentController {
     return documentFacade.getMetadata(getDocumentsMetadataDto, authentication);
   }
 
+  @PostMapping("/{rootProcessInstanceId}/{taskId}/archive")
+  @Operation(summary = "Download documents in ZIP archive",
+      description = "### Endpoint purpose:\n This endpoint allows users to download the specified documents of a process instance in a single ZIP archive. The archive is streamed while the documents are read from the storage.\n"
+          + "### Authorization:\n This endpoint requires valid user authentication. To access this endpoint, the request must include a valid access token in the _X-Access-Token_ header, otherwise, the API will return a _401 Unauthorized_ status code. Also if _rootProcessInstanceId_ not in task, which retrieved by _taskId_, or task is suspended, or assignee of task is not the same as provided in _X-Access-Token_ then _403_ status code returned. If any of the provided field names is not found in the form related to the user task retrieved by _taskId_, a _403_ status code is returned. The authorization is done once for all the documents.",
+      parameters = @Parameter(
+          in = ParameterIn.HEADER,
+          name = "X-Access-Token",
+          description = "Token used for endpoint security",
+          required = true,
+          schema = @Schema(type = "string")
+      ),
+      requestBody = @io.swagger.v3.oas.annotations.parameters.RequestBody(required = true,
+          content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+              schema = @Schema(implementation = DocumentArchiveRequestDto.class))
+      ),
+      responses = {
+          @ApiResponse(
+              description = "ZIP archive with the documents is returned",
+              responseCode = "200",
+              content = @Content(mediaType = "application/zip")
+          ),
+          @ApiResponse(
+              description = "Bad request. No documents requested.",
+              responseCode = "400",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              responseCode = "401",
+              description = "Unauthorized",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              description = "Forbidden. Validation of rootProcessInstanceId or taskId not passed.",
+              responseCode = "403",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              description = "Document not found",
+              responseCode = "404",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              responseCode = "500",
+              description = "Internal server error",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          )
+      })
+  public ResponseEntity<StreamingResponseBody> downloadArchive(
+      @PathVariable("rootProcessInstanceId") String rootProcessInstanceId,
+      @PathVariable("taskId") String taskId,
+      @Valid @RequestBody DocumentArchiveRequestDto requestDto,
+      Authentication authentication) {
+    var getDocumentsMetadataDto = GetDocumentsMetadataDto.builder()
+        .documents(requestDto.getDocuments())
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .taskId(taskId)
+        .build();
+    var archive = documentFacade.validateAndGetArchive(getDocumentsMetadataDto, authentication);
+    return documentResponseFactory.toArchiveResponse(archive);
+  }
+
   /**
    * Endpoint that deletes all documents associated with specified process instance id. The endpoint
    * should be allowed only in internal network for system needs only as cleaning temporary data.
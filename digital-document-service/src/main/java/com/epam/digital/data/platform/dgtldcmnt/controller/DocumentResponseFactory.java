@@ -0,0 +1,333 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.controller;
+
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.content.ContentEncodingNegotiator;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentArchiveDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentRegionDto;
+import com.epam.digital.data.platform.dgtldcmnt.service.DocumentArchiveService;
+import com.epam.digital.data.platform.dgtldcmnt.util.EntityTags;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Supplier;
+import javax.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Builds the download responses of the documents. The whole document is returned with 200 status,
+ * the requested byte ranges are returned with 206 status either as a single part or as
+ * multipart/byteranges content. The responses carry the entity tag of the document and must be
+ * revalidated by the clients, a document the client already has is answered with 304 status.
+ * A large document may be answered with 307 status that redirects the client to download it
+ * directly from the storage.
+ * <p>
+ * The whole documents of the compressible media types are compressed with the content coding
+ * negotiated with the Accept-Encoding header while they are sent, unless they are read from a
+ * stored pre-compressed variant. The encoded responses carry a weak entity tag.
+ * <p>
+ * The content of a cached document is streamed from the cache, and the cache entry is released
+ * once the response has been written, see {@link ContentReferenceReleaser}. The cached files are
+ * not handed to the servlet container with sendfile: the container opens such a file only after
+ * the request has been destroyed, when an evicted entry may already have deleted it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DocumentResponseFactory {
+
+  private static final String BYTES_UNIT = "bytes";
+  private static final String CRLF = "\r\n";
+  private static final MediaType ARCHIVE_CONTENT_TYPE = MediaType.valueOf("application/zip");
+  private static final String ARCHIVE_EXTENSION = ".zip";
+
+  private final DigitalDocumentsConfigurationProperties digitalDocumentsProperties;
+  private final DocumentArchiveService documentArchiveService;
+  private final ContentEncodingNegotiator contentEncodingNegotiator;
+
+  /**
+   * Parses the Range header of a download request. A malformed header is ignored, so the whole
+   * document is returned for it.
+   *
+   * @param headers the request headers
+   * @return the requested byte ranges or an empty list if there are none
+   */
+  public List<HttpRange> getRanges(HttpHeaders headers) {
+    try {
+      return headers.getRange();
+    } catch (IllegalArgumentException e) {
+      log.warn("Ignoring malformed Range header {}", headers.getFirst(HttpHeaders.RANGE), e);
+      return List.of();
+    }
+  }
+
+  /**
+   * Parses the Accept-Encoding header of a download request.
+   *
+   * @param headers the request headers
+   * @return the supported content codings the client accepts, the most preferred first
+   */
+  public List<String> getAcceptedEncodings(HttpHeaders headers) {
+    return contentEncodingNegotiator.getAcceptedEncodings(headers);
+  }
+
+  /**
+   * Parses the If-None-Match header of a download request. A malformed header is ignored, so the
+   * document is returned for it.
+   *
+   * @param headers the request headers
+   * @return the entity tags the client has or an empty list if there are none
+   */
+  public List<String> getIfNoneMatch(HttpHeaders headers) {
+    try {
+      return headers.getIfNoneMatch();
+    } catch (IllegalArgumentException e) {
+      log.warn("Ignoring malformed If-None-Match header {}",
+          headers.getFirst(HttpHeaders.IF_NONE_MATCH), e);
+      return List.of();
+    }
+  }
+
+  /**
+   * Builds the download response of a document.
+   *
+   * @param documentDto the document with either the whole content or the requested regions
+   * @param request     the download request
+   * @return the response with the document content
+   */
+  public ResponseEntity<Resource> toResponse(DocumentDto documentDto,
+      HttpServletRequest request) {
+    if (Objects.nonNull(documentDto.getContentReference())) {
+      ContentReferenceReleaser.releaseAfter(request, documentDto.getContentReference());
+    }
+    if (Objects.nonNull(documentDto.getRedirectUrl())) {
+      return ResponseEntity.status(HttpStatus.TEMPORARY_REDIRECT)
+          .location(toUri(documentDto.getRedirectUrl()))
+          .cacheControl(CacheControl.noStore())
+          .build();
+    }
+    var contentDisposition = ContentDisposition.builder(
+            digitalDocumentsProperties.getContent().getDispositionType())
+        .filename(documentDto.getName()).build();
+    var headers = new HttpHeaders();
+    headers.setContentDisposition(contentDisposition);
+    headers.set(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+    headers.setCacheControl(CacheControl.noCache().cachePrivate());
+    var encoding = getContentEncoding(documentDto, request);
+    if (Objects.isNull(encoding)) {
+      headers.setETag(EntityTags.of(documentDto.getChecksum()));
+    } else {
+      headers.setETag(EntityTags.weakOf(documentDto.getChecksum()));
+      headers.set(HttpHeaders.CONTENT_ENCODING, encoding);
+    }
+    if (contentEncodingNegotiator.isCompressible(documentDto.getContentType(),
+        documentDto.getSize())) {
+      headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+    }
+    if (documentDto.isNotModified()) {
+      headers.remove(HttpHeaders.CONTENT_ENCODING);
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+    }
+    if (!documentDto.isPartial() && Objects.nonNull(encoding)) {
+      var builder = ResponseEntity.ok()
+          .contentType(MediaType.valueOf(documentDto.getContentType()))
+          .headers(headers);
+      if (Objects.nonNull(documentDto.getContentEncoding())) {
+        return builder.contentLength(documentDto.getEncodedSize())
+            .body(new InputStreamResource(documentDto.getContent()));
+      }
+      log.debug("Encoding document {} with {}", documentDto.getName(), encoding);
+      return builder.body(new InputStreamResource(
+          contentEncodingNegotiator.encode(documentDto.getContent(), encoding)));
+    }
+    if (!documentDto.isPartial()) {
+      return ResponseEntity.ok()
+          .contentType(MediaType.valueOf(documentDto.getContentType()))
+          .contentLength(documentDto.getSize())
+          .headers(headers)
+          .body(new InputStreamResource(documentDto.getContent()));
+    }
+    var regions = documentDto.getRegions();
+    if (regions.size() == 1) {
+      var region = regions.get(0);
+      headers.set(HttpHeaders.CONTENT_RANGE, contentRange(region, documentDto.getSize()));
+      return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+          .contentType(MediaType.valueOf(documentDto.getContentType()))
+          .contentLength(region.getLength())
+          .headers(headers)
+          .body(new InputStreamResource(region.getContent().get()));
+    }
+    var boundary = MimeTypeUtils.generateMultipartBoundaryString();
+    var parts = new ArrayList<Supplier<InputStream>>();
+    long length = 0;
+    for (var region : regions) {
+      var partHeaders = (CRLF + "--" + boundary + CRLF
+          + HttpHeaders.CONTENT_TYPE + ": " + documentDto.getContentType() + CRLF
+          + HttpHeaders.CONTENT_RANGE + ": " + contentRange(region, documentDto.getSize()) + CRLF
+          + CRLF).getBytes(StandardCharsets.US_ASCII);
+      parts.add(() -> new ByteArrayInputStream(partHeaders));
+      parts.add(region.getContent());
+      length += partHeaders.length + region.getLength();
+    }
+    var closingBoundary = (CRLF + "--" + boundary + "--" + CRLF)
+        .getBytes(StandardCharsets.US_ASCII);
+    parts.add(() -> new ByteArrayInputStream(closingBoundary));
+    length += closingBoundary.length;
+    return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+        .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+        .contentLength(length)
+        .headers(headers)
+        .body(new InputStreamResource(new PartsInputStream(parts.iterator())));
+  }
+
+  /**
+   * Chooses the content coding of a whole document, the content that is already encoded is sent
+   * as is. The ranges are always sent unencoded.
+   *
+   * @return the content coding or null if the content is sent unencoded
+   */
+  private String getContentEncoding(DocumentDto documentDto, HttpServletRequest request) {
+    if (Objects.nonNull(documentDto.getContentEncoding())) {
+      return documentDto.getContentEncoding();
+    }
+    if (documentDto.isPartial() || !contentEncodingNegotiator.isCompressible(
+        documentDto.getContentType(), documentDto.getSize())) {
+      return null;
+    }
+    var acceptedEncodings = contentEncodingNegotiator.getAcceptedEncodings(
+        new ServletServerHttpRequest(request).getHeaders());
+    return acceptedEncodings.isEmpty() ? null : acceptedEncodings.get(0);
+  }
+
+  /**
+   * Builds the response with a ZIP archive of the documents. The archive is written to the
+   * response while the documents are read from the storage.
+   *
+   * @param archive the documents to be exported
+   * @return the response with the archive
+   */
+  public ResponseEntity<StreamingResponseBody> toArchiveResponse(DocumentArchiveDto archive) {
+    var contentDisposition = ContentDisposition.attachment()
+        .filename(archive.getRootProcessInstanceId() + ARCHIVE_EXTENSION).build();
+    var headers = new HttpHeaders();
+    headers.setContentDisposition(contentDisposition);
+    headers.setCacheControl(CacheControl.noStore());
+    return ResponseEntity.ok()
+        .contentType(ARCHIVE_CONTENT_TYPE)
+        .headers(headers)
+        .body(outputStream -> documentArchiveService.write(archive, outputStream));
+  }
+
+  private static URI toUri(URL url) {
+    try {
+      return url.toURI();
+    } catch (URISyntaxException e) {
+      throw new IllegalStateException("Invalid redirect URL " + url, e);
+    }
+  }
+
+  private static String contentRange(DocumentRegionDto region, long size) {
+    return BYTES_UNIT + " " + region.getStart() + "-" + region.getEnd() + "/" + size;
+  }
+
+  /**
+   * Reads the parts one after another. A part is opened only when the previous one has been read
+   * to the end, so the parts that are not reached, e.g. when the client disconnects, are never
+   * requested from the storage.
+   */
+  private static class PartsInputStream extends InputStream {
+
+    private final Iterator<Supplier<InputStream>> parts;
+    private InputStream current;
+
+    PartsInputStream(Iterator<Supplier<InputStream>> parts) {
+      this.parts = parts;
+    }
+
+    @Override
+    public int read() throws IOException {
+      while (nextPartAvailable()) {
+        var b = current.read();
+        if (b >= 0) {
+          return b;
+        }
+        closeCurrent();
+      }
+      return -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      while (nextPartAvailable()) {
+        var count = current.read(b, off, len);
+        if (count > 0) {
+          return count;
+        }
+        if (count < 0) {
+          closeCurrent();
+        }
+      }
+      return -1;
+    }
+
+    @Override
+    public void close() throws IOException {
+      closeCurrent();
+    }
+
+    private boolean nextPartAvailable() {
+      if (Objects.isNull(current) && parts.hasNext()) {
+        current = parts.next().get();
+      }
+      return Objects.nonNull(current);
+    }
+
+    private void closeCurrent() throws IOException {
+      if (Objects.nonNull(current)) {
+        current.close();
+        current = null;
+      }
+    }
+  }
+}
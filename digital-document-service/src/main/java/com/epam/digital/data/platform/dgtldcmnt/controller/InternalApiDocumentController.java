@@ -16,7 +16,6 @@
 
 package com.epam.digital.data.platform.dgtldcmnt.controller;
 
-import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
 import com.epam.digital.data.platform.dgtldcmnt.dto.GetDocumentDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.InternalApiDocumentMetadataDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.RemoteDocumentDto;
@@ -35,11 +34,10 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
-import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -47,8 +45,10 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @RequiredArgsConstructor
@@ -56,9 +56,9 @@ import org.springframework.web.bind.annotation.RestController;
 @Tag(description = "Digital document service internal Rest API", name = "digital-document-service-internal-api")
 public class InternalApiDocumentController {
 
-  private final DigitalDocumentsConfigurationProperties digitalDocumentsProperties;
   private final InternalApiDocumentService internalApiDocumentService;
   private final DocumentFacade documentFacade;
+  private final DocumentResponseFactory documentResponseFactory;
 
   /**
    * Endpoint for uploading document.
@@ -157,6 +157,15 @@ public class InternalApiDocumentController {
               responseCode = "200",
               content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
           ),
+          @ApiResponse(
+              description = "Requested byte ranges of the document are returned",
+              responseCode = "206",
+              content = @Content(mediaType = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+          ),
+          @ApiResponse(
+              description = "Document is not modified since the version with the provided ETag",
+              responseCode = "304"
+          ),
           @ApiResponse(
               responseCode = "401",
               description = "Unauthorized",
@@ -167,6 +176,11 @@ public class InternalApiDocumentController {
               description = "Not Found",
               content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
           ),
+          @ApiResponse(
+              description = "None of the requested byte ranges is satisfiable",
+              responseCode = "416",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
           @ApiResponse(
               responseCode = "500",
               description = "Internal server error",
@@ -176,23 +190,53 @@ public class InternalApiDocumentController {
   )
   public ResponseEntity<Resource> download(
       @PathVariable("rootProcessInstanceId") String rootProcessInstanceId,
-      @PathVariable("id") String id) {
+      @PathVariable("id") String id,
+      @RequestHeader HttpHeaders headers,
+      HttpServletRequest request) {
     var getDocumentDto = GetDocumentDto.builder()
         .rootProcessInstanceId(rootProcessInstanceId)
         .id(id)
+        .ranges(documentResponseFactory.getRanges(headers))
+        .ifRange(headers.getFirst(HttpHeaders.IF_RANGE))
+        .ifNoneMatch(documentResponseFactory.getIfNoneMatch(headers))
+        .acceptedEncodings(documentResponseFactory.getAcceptedEncodings(headers))
         .build();
     var documentDto = documentFacade.get(getDocumentDto);
-    var resource = new InputStreamResource(documentDto.getContent());
-    var contentDisposition = ContentDisposition.builder(
-            digitalDocumentsProperties.getContent().getDispositionType())
-        .filename(documentDto.getName()).build();
-    var headers = new HttpHeaders();
-    headers.setContentDisposition(contentDisposition);
-    return ResponseEntity.ok()
-        .contentType(MediaType.valueOf(documentDto.getContentType()))
-        .contentLength(documentDto.getSize())
-        .headers(headers)
-        .body(resource);
+    return documentResponseFactory.toResponse(documentDto, request);
+  }
+
+  @GetMapping("/{rootProcessInstanceId}/archive")
+  @Operation(summary = "Download all documents in ZIP archive",
+      description = "### Endpoint purpose:\n This endpoint allows to download all the documents associated with a specified process instance in a single ZIP archive. The archive is streamed while the documents are read from the storage.",
+      parameters = @Parameter(
+          in = ParameterIn.HEADER,
+          name = "X-Access-Token",
+          description = "Token used for endpoint security",
+          required = true,
+          schema = @Schema(type = "string")
+      ),
+      responses = {
+          @ApiResponse(
+              description = "ZIP archive with the documents is returned",
+              responseCode = "200",
+              content = @Content(mediaType = "application/zip")
+          ),
+          @ApiResponse(
+              responseCode = "401",
+              description = "Unauthorized",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          ),
+          @ApiResponse(
+              responseCode = "500",
+              description = "Internal server error",
+              content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE)
+          )
+      }
+  )
+  public ResponseEntity<StreamingResponseBody> downloadArchive(
+      @PathVariable("rootProcessInstanceId") String rootProcessInstanceId) {
+    var archive = documentFacade.getArchive(rootProcessInstanceId);
+    return documentResponseFactory.toArchiveResponse(archive);
   }
 
   @GetMapping("/{rootProcessInstanceId}/{id}/metadata")
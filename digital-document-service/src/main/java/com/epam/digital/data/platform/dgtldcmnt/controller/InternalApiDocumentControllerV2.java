@@ -102,16 +102,18 @@ public class InternalApiDocumentControllerV2 {
       @RequestParam(required = false, name = "imageMaxWidth") Integer imageMaxWidth,
       @RequestParam(required = false, name = "imageMaxHeight") Integer imageMaxHeight,
       @RequestParam(required = false, name = "compressionQuality") Integer compressionQuality) throws IOException {
-    var documentDto = UploadDocumentFromUserFormDto.builder()
-        .contentType(file.getContentType())
-        .size(file.getSize())
-        .filename(Objects.isNull(filename) ? file.getOriginalFilename() : filename)
-        .fileInputStream(new BufferedInputStream(file.getInputStream()))
-        .rootProcessInstanceId(rootProcessInstanceId)
-        .imageMaxWidth(imageMaxWidth)
-        .imageMaxHeight(imageMaxHeight)
-        .compressionQuality(compressionQuality)
-        .build();
-    return documentFacade.put(documentDto);
+    try (var inputStream = file.getInputStream()) {
+      var documentDto = UploadDocumentFromUserFormDto.builder()
+          .contentType(file.getContentType())
+          .size(file.getSize())
+          .filename(Objects.isNull(filename) ? file.getOriginalFilename() : filename)
+          .fileInputStream(new BufferedInputStream(inputStream))
+          .rootProcessInstanceId(rootProcessInstanceId)
+          .imageMaxWidth(imageMaxWidth)
+          .imageMaxHeight(imageMaxHeight)
+          .compressionQuality(compressionQuality)
+          .build();
+      return documentFacade.put(documentDto);
+    }
   }
 }
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.dto;
+
+import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
+import java.util.List;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * It contains the documents of a process instance to be exported in a ZIP archive. The content of
+ * the documents is read from the storage only while the archive is written.
+ */
+@Data
+@Builder
+public class DocumentArchiveDto {
+
+  /**
+   * The process instance id to whom the documents belong to.
+   */
+  private String rootProcessInstanceId;
+
+  /**
+   * The metadata of the exported documents.
+   */
+  private List<FileMetadataDto> documents;
+}
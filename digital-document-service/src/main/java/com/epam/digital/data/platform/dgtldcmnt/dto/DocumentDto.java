@@ -17,6 +17,8 @@
 package com.epam.digital.data.platform.dgtldcmnt.dto;
 
 import java.io.InputStream;
+import java.net.URL;
+import java.util.List;
 import lombok.Builder;
 import lombok.Data;
 
@@ -27,5 +29,45 @@ public class DocumentDto {
   private long size;
   private String name;
   private String contentType;
+  private String checksum;
   private InputStream content;
+
+  /**
+   * The reference to the cached content the {@link #content} and the regions are read from, if
+   * there is one. It must be closed when the response has been sent.
+   */
+  private AutoCloseable contentReference;
+
+  /**
+   * It is true if the document matches the entity tags the client already has, so neither
+   * content nor regions are returned.
+   */
+  private boolean notModified;
+
+  /**
+   * The requested regions of the document. If it is null the whole document is returned as
+   * {@link #content}.
+   */
+  private List<DocumentRegionDto> regions;
+
+  /**
+   * The pre-signed URL the client is redirected to for downloading the document from the storage.
+   * If it is set, neither content nor regions are returned.
+   */
+  private URL redirectUrl;
+
+  /**
+   * The content coding the {@link #content} is already encoded with, e.g. if it is read from a
+   * stored pre-compressed variant. If it is null the content is not encoded.
+   */
+  private String contentEncoding;
+
+  /**
+   * The length of the encoded {@link #content}, it is only set with {@link #contentEncoding}.
+   */
+  private long encodedSize;
+
+  public boolean isPartial() {
+    return regions != null;
+  }
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.dto;
+
+import java.io.InputStream;
+import java.util.function.Supplier;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * A region of a document requested with the Range header.
+ */
+@Data
+@Builder
+public class DocumentRegionDto {
+
+  /**
+   * The position of the first byte of the region.
+   */
+  private long start;
+
+  /**
+   * The position of the last byte of the region, inclusive.
+   */
+  private long end;
+
+  /**
+   * Opens the content of the region. The content is read from the storage only when it is
+   * opened.
+   */
+  private Supplier<InputStream> content;
+
+  public long getLength() {
+    return end - start + 1;
+  }
+}
@@ -16,8 +16,10 @@
 
 package com.epam.digital.data.platform.dgtldcmnt.dto;
 
+import java.util.List;
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.http.HttpRange;
 
 /**
  * The dto that contains document id and a context info for getting document.
@@ -47,4 +49,34 @@ public class GetDocumentDto {
    * validation.
    */
   private String fieldName;
+
+  /**
+   * The byte ranges of the document requested with the Range header. The whole document is
+   * returned if there are none.
+   */
+  private List<HttpRange> ranges;
+
+  /**
+   * The value of the If-Range header. The ranges are returned only if it matches the current
+   * version of the document, the whole document is returned otherwise.
+   */
+  private String ifRange;
+
+  /**
+   * The entity tags from the If-None-Match header. The content is not returned if any of them
+   * matches the current version of the document.
+   */
+  private List<String> ifNoneMatch;
+
+  /**
+   * It is true if the client may be redirected to download the document from the storage. It is
+   * set only after the request has been authorized.
+   */
+  private boolean redirectAllowed;
+
+  /**
+   * The supported content codings the client accepts, the most preferred first. A stored
+   * pre-compressed variant of the document may be returned if it is not empty.
+   */
+  private List<String> acceptedEncodings;
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.exception;
+
+import lombok.Getter;
+
+/**
+ * Thrown when none of the requested byte ranges overlaps the document content.
+ */
+@Getter
+public class RangeNotSatisfiableException extends RuntimeException {
+
+  private final long contentLength;
+
+  public RangeNotSatisfiableException(String message, long contentLength) {
+    super(message);
+    this.contentLength = contentLength;
+  }
+}
@@ -26,6 +26,7 @@ import javax.validation.ConstraintViolationException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.MDC;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
@@ -145,6 +146,34 @@ public class RestExceptionHandler {
     return new ResponseEntity<>(error, HttpStatus.PAYLOAD_TOO_LARGE);
   }
 
+  @ExceptionHandler(UploadMemoryBudgetExceededException.class)
+  public ResponseEntity<SystemErrorDto> handleUploadMemoryBudgetExceededException(
+      UploadMemoryBudgetExceededException ex) {
+    var error = SystemErrorDto.builder()
+        .traceId(MDC.get(BaseRestExceptionHandler.TRACE_ID_KEY))
+        .code(String.valueOf(HttpStatus.SERVICE_UNAVAILABLE.value()))
+        .message(ex.getMessage())
+        .build();
+    log.warn("Upload rejected", ex);
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+        .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfter().toSeconds()))
+        .body(error);
+  }
+
+  @ExceptionHandler(RangeNotSatisfiableException.class)
+  public ResponseEntity<SystemErrorDto> handleRangeNotSatisfiableException(
+      RangeNotSatisfiableException ex) {
+    var error = SystemErrorDto.builder()
+        .traceId(MDC.get(BaseRestExceptionHandler.TRACE_ID_KEY))
+        .code(String.valueOf(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()))
+        .message(ex.getMessage())
+        .build();
+    log.warn("Range not satisfiable", ex);
+    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + ex.getContentLength())
+        .body(error);
+  }
+
   private Annotation getAnnotationFromConstraintViolationException(
       ConstraintViolationException exception) {
     var constraintViolations = exception.getConstraintViolations();
@@ -16,8 +16,12 @@
 
 package com.epam.digital.data.platform.dgtldcmnt.facade;
 
-import com.epam.digital.data.platform.bpms.client.TaskRestClient;
+import com.epam.digital.data.platform.bpms.api.dto.DdmSignableTaskDto;
+import com.epam.digital.data.platform.dgtldcmnt.constant.DocumentConstants;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DeleteDocumentDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DirectUploadDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentArchiveDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentIdDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentMetadataDto;
@@ -27,16 +31,30 @@ import com.epam.digital.data.platform.dgtldcmnt.dto.InternalApiDocumentMetadataD
 import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
 import com.epam.digital.data.platform.dgtldcmnt.mapper.DocumentMetadataDtoMapper;
 import com.epam.digital.data.platform.dgtldcmnt.service.AuthorizationService;
+import com.epam.digital.data.platform.dgtldcmnt.service.DirectUploadService;
+import com.epam.digital.data.platform.dgtldcmnt.service.DocumentArchiveService;
 import com.epam.digital.data.platform.dgtldcmnt.service.DocumentService;
+import com.epam.digital.data.platform.dgtldcmnt.service.TaskService;
+import com.epam.digital.data.platform.dgtldcmnt.service.UploadMemoryBudget;
 import com.epam.digital.data.platform.dgtldcmnt.service.ValidationService;
 import com.epam.digital.data.platform.dgtldcmnt.validator.AllowedUploadedDocument;
+import com.epam.digital.data.platform.dgtldcmnt.validator.RemoteFileSizeValidator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import org.springframework.validation.annotation.Validated;
+import org.springframework.web.server.UnsupportedMediaTypeStatusException;
 
+import java.io.BufferedInputStream;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.stream.Collectors;
 
 /**
@@ -49,13 +67,21 @@ import java.util.stream.Collectors;
 public class DocumentFacade {
 
   private final DocumentService documentService;
+  private final DocumentArchiveService documentArchiveService;
+  private final DirectUploadService directUploadService;
   private final AuthorizationService authorizationService;
   private final ValidationService validationService;
-  private final TaskRestClient taskRestClient;
+  private final TaskService taskService;
+  private final UploadMemoryBudget uploadMemoryBudget;
+  private final DocumentContentFactory documentContentFactory;
+  private final RemoteFileSizeValidator fileSizeValidator;
   private final DocumentMetadataDtoMapper mapper;
+  @Qualifier("remoteCallExecutor")
+  private final Executor remoteCallExecutor;
 
   /**
-   * Put document to storage. Before uploading the method does authorization and validation.
+   * Put document to storage. Before uploading the method does authorization and validation. The
+   * document is buffered and processed only after the memory for it has been reserved.
    *
    * @param uploadDocumentDto contains file input stream, metadata, and document context info.
    * @param authentication    object with authentication data.
@@ -70,20 +96,101 @@ public class DocumentFacade {
     log.info("Uploading file {} to storage for task {} in process {}", fieldName, taskId,
         rootProcessInstanceId);
 
-    var task = taskRestClient.getTaskById(taskId);
-    var formKey = task.getFormKey();
-    uploadDocumentDto.setFormKey(formKey);
+    var task = authorizeTask(rootProcessInstanceId, taskId, List.of(fieldName), authentication);
+    uploadDocumentDto.setFormKey(task.getFormKey());
 
-    authorizationService.authorize(rootProcessInstanceId, List.of(fieldName), task,
-        authentication);
-
-    validationService.validate(uploadDocumentDto);
+    // the files usage of the process is loaded while the file field is validated, only once the
+    // upload is authorized, so an unauthorized request doesn't list the storage
+    var filesUsageFuture = CompletableFuture.supplyAsync(
+        () -> validationService.getFilesUsage(rootProcessInstanceId), remoteCallExecutor);
+    try {
+      validationService.validateFileField(uploadDocumentDto);
+      await(filesUsageFuture);
+    } finally {
+      filesUsageFuture.cancel(false);
+    }
 
-    var result = documentService.put(uploadDocumentDto);
+    DocumentMetadataDto result;
+    try (var usageReservation = validationService.reserveTotalFilesSize(uploadDocumentDto);
+        var reservation = uploadMemoryBudget.reserve(uploadDocumentDto.getSize())) {
+      result = bufferAndPut(uploadDocumentDto);
+    }
     log.info("File {} for task {} has been uploaded", fieldName, taskId);
     return result;
   }
 
+  /**
+   * Initiate a direct upload of a document to storage. Before initiating the method does
+   * authorization and validates the declared document metadata, the content is validated when
+   * the upload is completed.
+   *
+   * @param uploadDocumentDto contains document metadata without content and document context info.
+   * @param authentication    object with authentication data.
+   * @return {@link DirectUploadDto} the document is uploaded with.
+   */
+  public DirectUploadDto validateAndInitDirectUpload(
+      UploadDocumentFromUserFormDto uploadDocumentDto, Authentication authentication) {
+    var taskId = uploadDocumentDto.getTaskId();
+    var fieldName = uploadDocumentDto.getFieldName();
+    log.info("Initiating direct upload of file {} for task {} in process {}", fieldName, taskId,
+        uploadDocumentDto.getRootProcessInstanceId());
+
+    validateDeclaredDocument(uploadDocumentDto, authentication);
+
+    var result = directUploadService.init(uploadDocumentDto);
+    log.info("Direct upload of file {} for task {} has been initiated", fieldName, taskId);
+    return result;
+  }
+
+  /**
+   * Complete a direct upload of a document to storage. The method does authorization and
+   * validation of the uploaded document the same way as for the document uploaded to the service.
+   * The uploaded document is deleted if it isn't valid.
+   *
+   * @param uploadDocumentDto contains document metadata without content and document context info.
+   * @param id                id of the uploaded document.
+   * @param checksum          the SHA-256 checksum the client expects or null.
+   * @param authentication    object with authentication data.
+   * @return {@link DocumentMetadataDto} of the saved document.
+   */
+  public DocumentMetadataDto validateAndCompleteDirectUpload(
+      UploadDocumentFromUserFormDto uploadDocumentDto, String id, String checksum,
+      Authentication authentication) {
+    var taskId = uploadDocumentDto.getTaskId();
+    var rootProcessInstanceId = uploadDocumentDto.getRootProcessInstanceId();
+    var fieldName = uploadDocumentDto.getFieldName();
+    log.info("Completing direct upload of file {} for task {} in process {}", fieldName, taskId,
+        rootProcessInstanceId);
+
+    var task = authorizeTask(rootProcessInstanceId, taskId, List.of(fieldName), authentication);
+    uploadDocumentDto.setFormKey(task.getFormKey());
+
+    DocumentMetadataDto result;
+    try {
+      var stagedMetadata = directUploadService.getStagedMetadata(uploadDocumentDto, id);
+      uploadDocumentDto.setSize(stagedMetadata.getContentLength());
+      fileSizeValidator.validate(uploadDocumentDto.getSize());
+      validationService.validateFileField(uploadDocumentDto);
+
+      // the staged document is read and moved only if it hasn't been replaced since then
+      var eTag = stagedMetadata.getETag();
+      try (var usageReservation = validationService.reserveTotalFilesSize(uploadDocumentDto)) {
+        var inputStream = directUploadService.openStaged(rootProcessInstanceId, id, eTag);
+        try {
+          uploadDocumentDto.setFileInputStream(new BufferedInputStream(inputStream));
+          result = directUploadService.complete(uploadDocumentDto, id, eTag, checksum);
+        } finally {
+          IOUtils.closeQuietly(inputStream);
+        }
+      }
+    } catch (RuntimeException e) {
+      directUploadService.discard(rootProcessInstanceId, id);
+      throw e;
+    }
+    log.info("Direct upload of file {} for task {} has been completed", fieldName, taskId);
+    return result;
+  }
+
   /**
    * Get document from storage by id. Before downloading the method does authorization and
    * validation.
@@ -131,6 +238,41 @@ public class DocumentFacade {
     return result;
   }
 
+  /**
+   * Get the documents to be exported in a ZIP archive. The authorization and validation are done
+   * once for the whole batch, and only the requested documents are exported.
+   *
+   * @param getMetadataDto contains document ids and a context of the documents.
+   * @param authentication object with authentication data.
+   * @return the documents to be exported.
+   */
+  public DocumentArchiveDto validateAndGetArchive(GetDocumentsMetadataDto getMetadataDto,
+      Authentication authentication) {
+    var fieldNames = getMetadataDto.getDocuments().stream()
+        .map(DocumentIdDto::getFieldName).distinct().collect(Collectors.toList());
+    var taskId = getMetadataDto.getTaskId();
+    var rootProcessInstanceId = getMetadataDto.getRootProcessInstanceId();
+    log.info("Exporting files {} for task {} in process {}", fieldNames, taskId,
+        rootProcessInstanceId);
+
+    authorize(rootProcessInstanceId, taskId, fieldNames, authentication);
+
+    var ids = getMetadataDto.getDocuments().stream()
+        .map(DocumentIdDto::getId).collect(Collectors.toList());
+    return documentArchiveService.getArchive(rootProcessInstanceId, ids);
+  }
+
+  /**
+   * Get all the documents of the process instance to be exported in a ZIP archive.
+   *
+   * @param rootProcessInstanceId id of a process-instance documents have been stored in
+   * @return the documents to be exported.
+   */
+  public DocumentArchiveDto getArchive(String rootProcessInstanceId) {
+    log.info("Exporting all files in process {}", rootProcessInstanceId);
+    return documentArchiveService.getArchive(rootProcessInstanceId);
+  }
+
   /**
    * Get document metadata by id.
    *
@@ -175,7 +317,8 @@ public class DocumentFacade {
   }
 
   /**
-   * Put document to storage.
+   * Put document to storage. The document is buffered and processed only after the memory for it
+   * has been reserved.
    *
    * @param uploadDocumentDto contains file input stream, metadata, and document context info.
    * @return {@link InternalApiDocumentMetadataDto} of the saved document.
@@ -184,7 +327,10 @@ public class DocumentFacade {
       @AllowedUploadedDocument UploadDocumentFromUserFormDto uploadDocumentDto) {
     var rootProcessInstanceId = uploadDocumentDto.getRootProcessInstanceId();
     log.info("Uploading file by rootProcessInstanceId: {}", rootProcessInstanceId);
-    var documentMetadata = documentService.put(uploadDocumentDto);
+    DocumentMetadataDto documentMetadata;
+    try (var reservation = uploadMemoryBudget.reserve(uploadDocumentDto.getSize())) {
+      documentMetadata = bufferAndPut(uploadDocumentDto);
+    }
     log.info("File has been uploaded by rootProcessInstanceId: {}", rootProcessInstanceId);
     return InternalApiDocumentMetadataDto.builder()
         .id(documentMetadata.getId())
@@ -210,11 +356,60 @@ public class DocumentFacade {
     return documentService.get(getDocumentDto);
   }
 
+  private void validateDeclaredDocument(UploadDocumentFromUserFormDto uploadDocumentDto,
+      Authentication authentication) {
+    var contentType = uploadDocumentDto.getContentType();
+    if (!DocumentConstants.MEDIA_TYPE_TO_EXTENSIONS_MAP.containsKey(contentType)) {
+      throw new UnsupportedMediaTypeStatusException(MediaType.parseMediaType(contentType),
+          DocumentConstants.SUPPORTED_MEDIA_TYPES);
+    }
+    fileSizeValidator.validate(uploadDocumentDto.getSize());
+
+    var task = authorizeTask(uploadDocumentDto.getRootProcessInstanceId(),
+        uploadDocumentDto.getTaskId(), List.of(uploadDocumentDto.getFieldName()),
+        authentication);
+    uploadDocumentDto.setFormKey(task.getFormKey());
+
+    validationService.validateFileField(uploadDocumentDto);
+    validationService.verifyTotalFilesSize(uploadDocumentDto);
+  }
+
   private void authorize(String rootProcessInstanceId, String taskId, List<String> filedNames,
                          Authentication authentication) {
-    var task = taskRestClient.getTaskById(taskId);
+    var task = authorizeTask(rootProcessInstanceId, taskId, filedNames, authentication);
 
     validationService.checkFieldNamesExistence(filedNames, task.getFormKey());
-    authorizationService.authorize(rootProcessInstanceId, filedNames, task, authentication);
+  }
+
+  private DocumentMetadataDto bufferAndPut(UploadDocumentFromUserFormDto uploadDocumentDto) {
+    try (var content = documentContentFactory.spool(uploadDocumentDto.getFileInputStream())) {
+      uploadDocumentDto.setFileInputStream(content.newInputStream());
+      return documentService.put(uploadDocumentDto);
+    }
+  }
+
+  private DdmSignableTaskDto authorizeTask(String rootProcessInstanceId, String taskId,
+      List<String> filedNames, Authentication authentication) {
+    var task = taskService.getTask(taskId);
+    try {
+      authorizationService.authorize(rootProcessInstanceId, filedNames, task, authentication);
+    } catch (AccessDeniedException e) {
+      // the cached task may be outdated, so access is denied only based on the actual one
+      log.debug("Access to task {} denied, verifying it against the actual task", taskId);
+      task = taskService.getFreshTask(taskId);
+      authorizationService.authorize(rootProcessInstanceId, filedNames, task, authentication);
+    }
+    return task;
+  }
+
+  private static <T> T await(CompletableFuture<T> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
   }
 }
\ No newline at end of file
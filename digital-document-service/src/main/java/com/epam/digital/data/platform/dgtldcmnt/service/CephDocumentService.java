@@ -16,38 +16,60 @@
 
 package com.epam.digital.data.platform.dgtldcmnt.service;
 
+import com.epam.digital.data.platform.dgtldcmnt.cache.DocumentContentCache;
+import com.epam.digital.data.platform.dgtldcmnt.cache.ProcessFilesUsageCache;
+import com.epam.digital.data.platform.dgtldcmnt.compression.CompressionExecutor;
 import com.epam.digital.data.platform.dgtldcmnt.compression.ImageCompressor;
+import com.epam.digital.data.platform.dgtldcmnt.content.ContentEncodingNegotiator;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContent;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentInputStream;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentIdDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentMetadataDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentRegionDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.GetDocumentDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.GetDocumentsMetadataDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.ImageCompressorParameters;
 import com.epam.digital.data.platform.dgtldcmnt.dto.InternalApiDocumentMetadataDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
 import com.epam.digital.data.platform.dgtldcmnt.exception.FileCompressionException;
+import com.epam.digital.data.platform.dgtldcmnt.exception.RangeNotSatisfiableException;
 import com.epam.digital.data.platform.dgtldcmnt.mapper.DocumentMetadataDtoMapper;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephDocumentReader;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephDirectUploadStorage;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephEncodedVariantStorage;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephMultipartUploader;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephPresignedUrlGenerator;
+import com.epam.digital.data.platform.dgtldcmnt.util.EntityTags;
 import com.epam.digital.data.platform.storage.file.dto.FileDataDto;
 import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
 import com.epam.digital.data.platform.storage.file.service.FormDataFileStorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.CollectionUtils;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import java.io.ByteArrayInputStream;
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -60,7 +82,19 @@ public class CephDocumentService implements DocumentService {
 
   private final FormDataFileStorageService storage;
   private final DocumentMetadataDtoMapper mapper;
+  private final DocumentContentFactory documentContentFactory;
+  private final CephMultipartUploader multipartUploader;
+  private final CephDocumentReader documentReader;
+  private final CephPresignedUrlGenerator presignedUrlGenerator;
+  private final CephEncodedVariantStorage encodedVariantStorage;
+  private final CephDirectUploadStorage directUploadStorage;
+  private final ContentEncodingNegotiator contentEncodingNegotiator;
+  private final ProcessFilesUsageCache processFilesUsageCache;
+  private final DocumentContentCache documentContentCache;
   private final List<ImageCompressor> imageCompressors;
+  private final CompressionExecutor compressionExecutor;
+  @Value("${digital-documents.download.max-ranges:16}")
+  private final int maxRanges;
 
   @Override
   public DocumentMetadataDto put(UploadDocumentFromUserFormDto uploadDocumentDto) {
@@ -69,41 +103,173 @@ public class CephDocumentService implements DocumentService {
         uploadDocumentDto.getFilename(), id, uploadDocumentDto.getRootProcessInstanceId(),
         uploadDocumentDto.getTaskId());
 
+    var originalInputStream = uploadDocumentDto.getFileInputStream();
     compressFile(uploadDocumentDto);
 
-    byte[] data = readBytes(uploadDocumentDto.getFileInputStream());
-    var sha256hex = DigestUtils.sha256Hex(data);
-    var fileMetadata = buildFileMetadata(id, sha256hex, uploadDocumentDto);
-    var fileDataDto = FileDataDto.builder().content(new ByteArrayInputStream(data))
-        .metadata(fileMetadata).build();
-    var savedFileMetadata = storage.save(uploadDocumentDto.getRootProcessInstanceId(), id,
-        fileDataDto);
-    var url = generateGetDocumentUrl(id, uploadDocumentDto);
-    log.debug("File {} uploaded. Id {}", uploadDocumentDto.getFilename(), id);
-    return DocumentMetadataDto.builder()
-        .size(savedFileMetadata.getContentLength())
-        .name(uploadDocumentDto.getFilename())
-        .type(savedFileMetadata.getContentType())
-        .checksum(sha256hex)
-        .url(url)
-        .id(id)
-        .build();
+    var fileInputStream = uploadDocumentDto.getFileInputStream();
+    if (fileInputStream instanceof DocumentContentInputStream) {
+      var content = ((DocumentContentInputStream) fileInputStream).getDocumentContent();
+      return save(id, uploadDocumentDto, content);
+    }
+    // the content isn't buffered yet, e.g. it has been replaced by a compressor
+    try (var content = documentContentFactory.spool(fileInputStream)) {
+      return save(id, uploadDocumentDto, content);
+    } finally {
+      if (fileInputStream != originalInputStream) {
+        // the compressed content may be backed by a temporary file
+        IOUtils.closeQuietly(fileInputStream);
+      }
+    }
   }
 
   @Override
   public DocumentDto get(GetDocumentDto getDocumentDto) {
-    log.debug("Getting document with id {}", getDocumentDto.getId());
-    var fileData = storage.loadByProcessInstanceIdAndId(getDocumentDto.getRootProcessInstanceId(),
-        getDocumentDto.getId());
-    log.debug("File downloaded. Id {}", getDocumentDto.getId());
-    return DocumentDto.builder()
-        .name(decodeUtf8(fileData.getMetadata().getFilename()))
-        .contentType(fileData.getMetadata().getContentType())
-        .size(fileData.getMetadata().getContentLength())
-        .content(fileData.getContent())
+    var rootProcessInstanceId = getDocumentDto.getRootProcessInstanceId();
+    var id = getDocumentDto.getId();
+    var cachedDocument = documentContentCache.get(rootProcessInstanceId, id);
+    if (cachedDocument.isPresent()) {
+      log.debug("Document with id {} found in content cache", id);
+      var metadata = cachedDocument.get().getMetadata();
+      var content = cachedDocument.get().getContent();
+      try {
+        var result = get(getDocumentDto, metadata,
+            () -> toDocumentDto(metadata).content(content.newInputStream()).build(),
+            (start, end) -> content.newInputStream(start, end - start + 1));
+        result.setContentReference(cachedDocument.get());
+        return result;
+      } catch (RuntimeException e) {
+        cachedDocument.get().close();
+        throw e;
+      }
+    }
+    if (CollectionUtils.isEmpty(getDocumentDto.getRanges())
+        && CollectionUtils.isEmpty(getDocumentDto.getIfNoneMatch())
+        && !documentReader.isParallelReadEnabled()
+        && !isRedirectEnabled(getDocumentDto)
+        && !isEncodedVariantAccepted(getDocumentDto)) {
+      return getWhole(getDocumentDto);
+    }
+    log.debug("Getting metadata of document with id {}", id);
+    var metadata = CollectionUtils.firstElement(
+        storage.getMetadata(rootProcessInstanceId, Set.of(id)));
+    if (Objects.isNull(metadata)) {
+      // the missing document is reported by the storage
+      return getWhole(getDocumentDto);
+    }
+    return get(getDocumentDto, metadata, () -> getWhole(getDocumentDto, metadata),
+        (start, end) -> documentReader.read(rootProcessInstanceId, id, start, end));
+  }
+
+  private DocumentDto get(GetDocumentDto getDocumentDto, FileMetadataDto metadata,
+      Supplier<DocumentDto> wholeDocument, RegionReader regionReader) {
+    var id = getDocumentDto.getId();
+    if (EntityTags.weakMatch(getDocumentDto.getIfNoneMatch(), metadata.getChecksum())) {
+      log.debug("Document with id {} is not modified", id);
+      return toDocumentDto(metadata).notModified(true).build();
+    }
+    var ranges = getDocumentDto.getRanges();
+    if (CollectionUtils.isEmpty(ranges)) {
+      return wholeDocument.get();
+    }
+    if (ranges.size() > maxRanges
+        || !isIfRangeMatched(getDocumentDto.getIfRange(), metadata.getChecksum())) {
+      log.debug("Ranges {} of document with id {} are ignored", ranges, id);
+      return wholeDocument.get();
+    }
+    log.debug("Getting ranges {} of document with id {}", ranges, id);
+    var length = metadata.getContentLength();
+    var regions = new ArrayList<DocumentRegionDto>();
+    for (var range : ranges) {
+      toRegion(range, length, regionReader).ifPresent(regions::add);
+    }
+    if (regions.isEmpty()) {
+      throw new RangeNotSatisfiableException(
+          String.format("Ranges %s are not satisfiable for document with id %s", ranges, id),
+          length);
+    }
+    return toDocumentDto(metadata).regions(regions).build();
+  }
+
+  /**
+   * Large documents are downloaded by the client directly from the storage or read with
+   * concurrent ranged requests if it is enabled, the compressible ones are read from their stored
+   * pre-compressed variants if the client accepts them, the other ones are loaded as usual.
+   */
+  private DocumentDto getWhole(GetDocumentDto getDocumentDto, FileMetadataDto metadata) {
+    var length = metadata.getContentLength();
+    if (isRedirectEnabled(getDocumentDto)
+        && presignedUrlGenerator.isApplicable(length, metadata.getContentType())) {
+      log.debug("Redirecting to document with id {}", getDocumentDto.getId());
+      var url = presignedUrlGenerator.generate(getDocumentDto.getRootProcessInstanceId(),
+          getDocumentDto.getId(), decodeUtf8(metadata.getFilename()), metadata.getContentType());
+      return toDocumentDto(metadata).redirectUrl(url).build();
+    }
+    if (isEncodedVariantAccepted(getDocumentDto)
+        && contentEncodingNegotiator.isCompressible(metadata.getContentType(), length)) {
+      var variant = encodedVariantStorage.find(getDocumentDto.getRootProcessInstanceId(),
+          getDocumentDto.getId());
+      if (variant.isPresent()) {
+        log.debug("Getting encoded variant of document with id {}", getDocumentDto.getId());
+        return toDocumentDto(metadata)
+            .content(variant.get().getObjectContent())
+            .contentEncoding(CephEncodedVariantStorage.STORED_ENCODING)
+            .encodedSize(variant.get().getObjectMetadata().getContentLength())
+            .build();
+      }
+    }
+    if (!documentReader.isParallelReadApplicable(length)) {
+      // the metadata has already been loaded, so only the content is requested
+      log.debug("Getting content of document with id {}", getDocumentDto.getId());
+      return toWholeDocument(getDocumentDto.getRootProcessInstanceId(), getDocumentDto.getId(),
+          metadata, documentReader.read(getDocumentDto.getRootProcessInstanceId(),
+              getDocumentDto.getId()));
+    }
+    log.debug("Getting document with id {} in parallel", getDocumentDto.getId());
+    return toDocumentDto(metadata)
+        .content(documentReader.readParallel(getDocumentDto.getRootProcessInstanceId(),
+            getDocumentDto.getId(), length))
         .build();
   }
 
+  private DocumentDto getWhole(GetDocumentDto getDocumentDto) {
+    var rootProcessInstanceId = getDocumentDto.getRootProcessInstanceId();
+    var id = getDocumentDto.getId();
+    log.debug("Getting document with id {}", id);
+    var fileData = storage.loadByProcessInstanceIdAndId(rootProcessInstanceId, id);
+    log.debug("File downloaded. Id {}", id);
+    return toWholeDocument(rootProcessInstanceId, id, fileData.getMetadata(),
+        fileData.getContent());
+  }
+
+  /**
+   * Small documents are put to the content cache, the other ones are streamed from the storage.
+   */
+  private DocumentDto toWholeDocument(String rootProcessInstanceId, String id,
+      FileMetadataDto metadata, InputStream contentInputStream) {
+    if (!documentContentCache.isCacheable(metadata.getContentLength())) {
+      return toDocumentDto(metadata).content(contentInputStream).build();
+    }
+    DocumentContent content;
+    try (var inputStream = contentInputStream) {
+      content = documentContentFactory.spool(inputStream);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read document content", e);
+    }
+    var cachedDocument = documentContentCache.put(rootProcessInstanceId, id, metadata, content);
+    return toDocumentDto(metadata)
+        .content(content.newInputStream())
+        .contentReference(cachedDocument)
+        .build();
+  }
+
+  private DocumentDto.DocumentDtoBuilder toDocumentDto(FileMetadataDto metadata) {
+    return DocumentDto.builder()
+        .name(decodeUtf8(metadata.getFilename()))
+        .contentType(metadata.getContentType())
+        .size(metadata.getContentLength())
+        .checksum(metadata.getChecksum());
+  }
+
   @Override
   public List<DocumentMetadataDto> getMetadata(GetDocumentsMetadataDto getMetadataDto) {
     log.debug("Getting documents metadata by ids {}", getMetadataDto.getDocuments());
@@ -134,6 +300,14 @@ public class CephDocumentService implements DocumentService {
     log.debug("Deleting all documents associated with process instance id {}",
         rootProcessInstanceId);
     storage.deleteByProcessInstanceId(rootProcessInstanceId);
+    if (encodedVariantStorage.isEnabled()) {
+      encodedVariantStorage.deleteAll(rootProcessInstanceId);
+    }
+    if (directUploadStorage.isEnabled()) {
+      directUploadStorage.discardAll(rootProcessInstanceId);
+    }
+    processFilesUsageCache.invalidate(rootProcessInstanceId);
+    documentContentCache.invalidate(rootProcessInstanceId);
     log.debug("All documents associated with process instance id {} were deleted successfully",
         rootProcessInstanceId);
   }
@@ -143,10 +317,107 @@ public class CephDocumentService implements DocumentService {
     log.debug("Deleting document associated with process instance id {} and id {}",
         rootProcessInstanceId, fileId);
     storage.deleteByProcessInstanceIdAndId(rootProcessInstanceId, fileId);
+    if (encodedVariantStorage.isEnabled()) {
+      encodedVariantStorage.delete(rootProcessInstanceId, fileId);
+    }
+    processFilesUsageCache.fileRemoved(rootProcessInstanceId, fileId);
+    documentContentCache.invalidate(rootProcessInstanceId, fileId);
     log.debug("Document associated with process instance id {} and id {} was deleted successfully",
         rootProcessInstanceId, fileId);
   }
 
+  private DocumentMetadataDto save(String id, UploadDocumentFromUserFormDto uploadDocumentDto,
+      DocumentContent content) {
+    var fileMetadata = buildFileMetadata(id, content.getChecksum(), uploadDocumentDto);
+    long size;
+    String type;
+    if (multipartUploader.isApplicable(content.getLength())) {
+      size = multipartUploader.upload(uploadDocumentDto.getRootProcessInstanceId(), id,
+          fileMetadata.getContentType(), fileMetadata.getUserMetadata(), content);
+      type = fileMetadata.getContentType();
+    } else {
+      var fileDataDto = FileDataDto.builder().content(content.newInputStream())
+          .metadata(fileMetadata).build();
+      var savedFileMetadata = storage.save(uploadDocumentDto.getRootProcessInstanceId(), id,
+          fileDataDto);
+      size = savedFileMetadata.getContentLength();
+      type = savedFileMetadata.getContentType();
+    }
+    saveEncodedVariant(uploadDocumentDto.getRootProcessInstanceId(), id, type, content);
+    processFilesUsageCache.fileAdded(uploadDocumentDto.getRootProcessInstanceId(), id,
+        uploadDocumentDto.getFormKey(), uploadDocumentDto.getFieldName(), size);
+    var url = generateGetDocumentUrl(id, uploadDocumentDto);
+    log.debug("File {} uploaded. Id {}", uploadDocumentDto.getFilename(), id);
+    return DocumentMetadataDto.builder()
+        .size(size)
+        .name(uploadDocumentDto.getFilename())
+        .type(type)
+        .checksum(content.getChecksum())
+        .url(url)
+        .id(id)
+        .build();
+  }
+
+  /**
+   * Stores the pre-compressed variant of a compressible document if it is smaller than the
+   * document. The variant is optional, so a failure doesn't fail the upload.
+   */
+  private void saveEncodedVariant(String rootProcessInstanceId, String id, String contentType,
+      DocumentContent content) {
+    if (!encodedVariantStorage.isEnabled()
+        || !contentEncodingNegotiator.isCompressible(contentType, content.getLength())) {
+      return;
+    }
+    try (var encodedContent = documentContentFactory.spool(contentEncodingNegotiator.encode(
+        content.newInputStream(), CephEncodedVariantStorage.STORED_ENCODING))) {
+      if (encodedContent.getLength() >= content.getLength()) {
+        log.debug("Document with id {} is not compressible", id);
+        return;
+      }
+      encodedVariantStorage.save(rootProcessInstanceId, id, contentType, encodedContent);
+    } catch (RuntimeException e) {
+      log.warn("Failed to store encoded variant of document with id {}", id, e);
+    }
+  }
+
+  private Optional<DocumentRegionDto> toRegion(HttpRange range, long length,
+      RegionReader regionReader) {
+    long start;
+    long end;
+    try {
+      start = range.getRangeStart(length);
+      end = range.getRangeEnd(length);
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+    if (start >= length || start > end) {
+      return Optional.empty();
+    }
+    return Optional.of(DocumentRegionDto.builder()
+        .start(start)
+        .end(end)
+        .content(() -> regionReader.read(start, end))
+        .build());
+  }
+
+  private boolean isRedirectEnabled(GetDocumentDto getDocumentDto) {
+    return getDocumentDto.isRedirectAllowed() && presignedUrlGenerator.isEnabled();
+  }
+
+  private boolean isEncodedVariantAccepted(GetDocumentDto getDocumentDto) {
+    var acceptedEncodings = getDocumentDto.getAcceptedEncodings();
+    return encodedVariantStorage.isEnabled()
+        && Objects.nonNull(acceptedEncodings)
+        && acceptedEncodings.contains(CephEncodedVariantStorage.STORED_ENCODING);
+  }
+
+  /**
+   * Dates are not validated, so the whole document is returned for them.
+   */
+  private boolean isIfRangeMatched(String ifRange, String checksum) {
+    return Objects.isNull(ifRange) || EntityTags.strongMatch(ifRange.trim(), checksum);
+  }
+
   private DocumentMetadataDto map(FileMetadataDto fileMetadataDto,
                                   GetDocumentsMetadataDto getMetadataDto, Map<String, String> documentIdAndFiledNameMap) {
     var id = fileMetadataDto.getId();
@@ -173,14 +444,6 @@ public class CephDocumentService implements DocumentService {
         uploadDocumentDto.getFieldName(), fileId);
   }
 
-  private byte[] readBytes(InputStream inputStream) {
-    try {
-      return inputStream.readAllBytes();
-    } catch (IOException e) {
-      throw new IllegalArgumentException("Unable to read bytes", e);
-    }
-  }
-
   private String encodeUtf8(String value) {
     return URLEncoder.encode(value, StandardCharsets.UTF_8);
   }
@@ -218,7 +481,11 @@ public class CephDocumentService implements DocumentService {
         .filter(compressor -> compressor.canCompress(filename, fileSize, originalInputStream))
         .forEach(compressor -> {
           try {
-            var compressedInputStream = compressor.compress(filename, originalInputStream, compressorParams);
+            var compressed = compress(compressor, filename, originalInputStream, compressorParams);
+            if (compressed.isEmpty()) {
+              return;
+            }
+            var compressedInputStream = compressed.get();
             if (compressedInputStream.available() <= originalInputStream.available()) {
               uploadDocumentDto.setFileInputStream(compressedInputStream);
               uploadDocumentDto.setSize(compressedInputStream.available());
@@ -231,10 +498,37 @@ public class CephDocumentService implements DocumentService {
               if(Objects.isNull(uploadDocumentDto.getCompressionQuality())) {
                 uploadDocumentDto.setCompressionQuality(compressor.getCompressionQuality());
               }
+            } else {
+              IOUtils.closeQuietly(compressedInputStream);
             }
           } catch (IOException e) {
             throw new FileCompressionException("Failed to read file", e);
           }
         });
   }
+
+  /**
+   * Buffered content is compressed on the compression pool from its own stream, so a job that
+   * outlives its deadline doesn't read the stream the document is stored from. The other content
+   * is compressed in the calling thread.
+   *
+   * @return the compressed content or empty if the document should be stored as is
+   */
+  private Optional<BufferedInputStream> compress(ImageCompressor compressor, String filename,
+      BufferedInputStream inputStream, ImageCompressorParameters parameters) {
+    if (!(inputStream instanceof DocumentContentInputStream)) {
+      return Optional.of(compressor.compress(filename, inputStream, parameters));
+    }
+    var content = ((DocumentContentInputStream) inputStream).getDocumentContent();
+    return compressionExecutor.execute(ClassUtils.getUserClass(compressor).getSimpleName(),
+        () -> compressor.compress(filename, content.newInputStream(), parameters));
+  }
+
+  private interface RegionReader {
+
+    /**
+     * @return stream over the bytes from start to end inclusive
+     */
+    InputStream read(long start, long end);
+  }
 }
@@ -16,13 +16,12 @@
 
 package com.epam.digital.data.platform.dgtldcmnt.service;
 
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
 import com.epam.digital.data.platform.dgtldcmnt.dto.RemoteDocumentMetadataDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentDto;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephMultipartUploader;
 import com.epam.digital.data.platform.dgtldcmnt.validator.RemoteFileSizeValidator;
-import com.epam.digital.data.platform.dgtldcmnt.wrapper.Sha256DigestCalculatingInputStream;
 import com.epam.digital.data.platform.dgtldcmnt.wrapper.ValidateLengthInputStream;
-import com.epam.digital.data.platform.integration.ceph.exception.CephCommunicationException;
-import com.epam.digital.data.platform.starter.errorhandling.exception.ValidationException;
 import com.epam.digital.data.platform.storage.file.dto.BaseFileMetadataDto;
 import com.epam.digital.data.platform.storage.file.dto.BaseFileMetadataDto.BaseUserMetadataHeaders;
 import com.epam.digital.data.platform.storage.file.dto.FileObjectDto;
@@ -32,7 +31,6 @@ import java.util.Map;
 import java.util.UUID;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.codec.binary.Hex;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Service;
 
@@ -47,37 +45,40 @@ public class CephInternalApiDocumentService implements InternalApiDocumentServic
 
   private final FileStorageService storage;
   private final RemoteFileSizeValidator validator;
+  private final CephMultipartUploader multipartUploader;
+  private final DocumentContentFactory documentContentFactory;
 
   public RemoteDocumentMetadataDto put(UploadDocumentDto documentDto) {
     validator.validate(documentDto.getSize());
     
     var fileId = UUID.randomUUID().toString();
     var validateLengthIS = new ValidateLengthInputStream(documentDto.getFileInputStream(), validator);
-    var sha256DigestCalculatingIS = new Sha256DigestCalculatingInputStream(validateLengthIS);
     log.info("Downloading file {} from remote URI and uploading it to the storage in process {}",
         documentDto.getFilename(), documentDto.getRootProcessInstanceId());
 
-    var userMetadata = buildUserMetadata(fileId, documentDto.getFilename());
-    var fileMetadata = new BaseFileMetadataDto(
-        documentDto.getSize(), documentDto.getContentType(), userMetadata);
-    var fileObjectDto = FileObjectDto.builder()
-        .content(sha256DigestCalculatingIS)
-        .metadata(fileMetadata).build();
+    // the file is buffered first, so the checksum is stored with the same write as the data
+    try (var content = documentContentFactory.spool(validateLengthIS)) {
+      var userMetadata = buildUserMetadata(fileId, documentDto.getFilename());
+      userMetadata.put(BaseUserMetadataHeaders.CHECKSUM, content.getChecksum());
 
-    BaseFileMetadataDto resultMetadata;
-    try {
-      resultMetadata = storage.save(documentDto.getRootProcessInstanceId(), fileId, fileObjectDto);
-    } catch (CephCommunicationException e) {
-      if(e.getCause() instanceof ValidationException) {
-        throw (ValidationException)e.getCause();
+      BaseFileMetadataDto resultMetadata;
+      if (multipartUploader.isApplicable(content.getLength())) {
+        var length = multipartUploader.upload(documentDto.getRootProcessInstanceId(), fileId,
+            documentDto.getContentType(), userMetadata, content);
+        resultMetadata = new BaseFileMetadataDto(length, documentDto.getContentType(),
+            userMetadata);
+      } else {
+        var fileMetadata = new BaseFileMetadataDto(
+            content.getLength(), documentDto.getContentType(), userMetadata);
+        var fileObjectDto = FileObjectDto.builder()
+            .content(content.newInputStream())
+            .metadata(fileMetadata).build();
+        resultMetadata = storage.save(documentDto.getRootProcessInstanceId(), fileId,
+            fileObjectDto);
       }
-      throw e;
+      log.debug("File {} uploaded. Id {}", documentDto.getFilename(), fileId);
+      return toRemoteDocumentMetadataDto(resultMetadata, content.getChecksum());
     }
-    String checksum = Hex.encodeHexString(sha256DigestCalculatingIS.getDigest());
-    userMetadata.put(BaseUserMetadataHeaders.CHECKSUM, checksum);
-    storage.setUserMetadata(documentDto.getRootProcessInstanceId(), fileId, userMetadata);
-    log.debug("File {} uploaded. Id {}", documentDto.getFilename(), fileId);
-    return toRemoteDocumentMetadataDto(resultMetadata, checksum);
   }
 
   private RemoteDocumentMetadataDto toRemoteDocumentMetadataDto(BaseFileMetadataDto metadataDto,
@@ -0,0 +1,214 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.service;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.epam.digital.data.platform.dgtldcmnt.cache.ProcessFilesUsageCache;
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DirectUploadDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentMetadataDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephDirectUploadStorage;
+import com.epam.digital.data.platform.dgtldcmnt.validator.AllowedUploadedDocument;
+import com.epam.digital.data.platform.starter.errorhandling.BaseRestExceptionHandler;
+import com.epam.digital.data.platform.starter.errorhandling.dto.ValidationErrorDto;
+import com.epam.digital.data.platform.starter.errorhandling.exception.ValidationException;
+import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * The service for the documents the clients upload directly to the ceph storage. An upload is
+ * initiated with a pre-signed request to a staging key. It is completed by verifying the staged
+ * document the same way as an uploaded one, including its media type and checksum, and moving it
+ * to the process instance. The content is read once for the verification and is never buffered.
+ * The staged document is read and moved only while it has the entity tag of its metadata, so a
+ * document replaced during the verification is rejected.
+ */
+@Slf4j
+@Service
+@Validated
+public class DirectUploadService {
+
+  private static final String DOCUMENT_REPLACED_MESSAGE =
+      "The uploaded document has been replaced while it was being verified";
+
+  private final CephDirectUploadStorage storage;
+  private final ProcessFilesUsageCache processFilesUsageCache;
+  private final DigitalDocumentsConfigurationProperties digitalDocumentsProperties;
+  private final Duration urlTtl;
+
+  public DirectUploadService(CephDirectUploadStorage storage,
+      ProcessFilesUsageCache processFilesUsageCache,
+      DigitalDocumentsConfigurationProperties digitalDocumentsProperties,
+      @Value("${digital-documents.direct-upload.url-ttl:5m}") Duration urlTtl) {
+    this.storage = storage;
+    this.processFilesUsageCache = processFilesUsageCache;
+    this.digitalDocumentsProperties = digitalDocumentsProperties;
+    this.urlTtl = urlTtl;
+  }
+
+  /**
+   * Initiates a direct upload of an authorized and validated document.
+   *
+   * @param uploadDocumentDto the metadata of the document without content
+   * @return the pre-signed upload request
+   */
+  public DirectUploadDto init(UploadDocumentFromUserFormDto uploadDocumentDto) {
+    var id = UUID.randomUUID().toString();
+    var expiresAt = Instant.now().plus(urlTtl);
+    var url = storage.generateUploadUrl(uploadDocumentDto.getRootProcessInstanceId(), id,
+        uploadDocumentDto.getContentType(), uploadDocumentDto.getSize(), expiresAt);
+    log.debug("Direct upload of file {} initiated. Id {}", uploadDocumentDto.getFilename(), id);
+    return DirectUploadDto.builder()
+        .id(id)
+        .url(url.toString())
+        .method(HttpMethod.PUT.name())
+        .headers(storage.getUploadHeaders(uploadDocumentDto.getContentType(),
+            uploadDocumentDto.getSize()))
+        .maxSize(digitalDocumentsProperties.getMaxFileSize().toBytes())
+        .expiresAt(expiresAt)
+        .build();
+  }
+
+  /**
+   * Gets the metadata of a staged document and checks that it has been uploaded with the expected
+   * content type and the size declared when the upload was initiated, before it is read.
+   *
+   * @param uploadDocumentDto the metadata of the document
+   * @param id                id of the document
+   * @return the metadata of the staged document with its size and entity tag
+   * @throws ValidationException if the document hasn't been uploaded or its content type or size
+   *                             differs
+   */
+  public ObjectMetadata getStagedMetadata(UploadDocumentFromUserFormDto uploadDocumentDto,
+      String id) {
+    var metadata = storage.getStagedMetadata(uploadDocumentDto.getRootProcessInstanceId(), id)
+        .orElseThrow(() -> createValidationException("The document has not been uploaded"));
+    if (!uploadDocumentDto.getContentType().equals(metadata.getContentType())) {
+      throw createValidationException(
+          "Content type of the uploaded document doesn't match input content type");
+    }
+    if (!storage.hasDeclaredSize(metadata)) {
+      throw createValidationException(
+          "Size of the uploaded document doesn't match the declared size");
+    }
+    return metadata;
+  }
+
+  /**
+   * Opens a stream over the content of a staged document.
+   *
+   * @param eTag the entity tag of the staged document the metadata have been read with
+   * @return stream that must be closed by the caller
+   * @throws ValidationException if the staged document has been replaced
+   */
+  public InputStream openStaged(String rootProcessInstanceId, String id, String eTag) {
+    return storage.openStaged(rootProcessInstanceId, id, eTag)
+        .orElseThrow(() -> createValidationException(DOCUMENT_REPLACED_MESSAGE));
+  }
+
+  /**
+   * Completes a direct upload. The document is validated as an uploaded one before it is read,
+   * then its checksum is calculated and verified, and it is moved to the process instance.
+   *
+   * @param uploadDocumentDto the metadata of the document with the stream over the staged content
+   * @param id                id of the document
+   * @param eTag              the entity tag of the staged document the content has been read with
+   * @param expectedChecksum  the SHA-256 checksum the client expects or null
+   * @return {@link DocumentMetadataDto} of the saved document.
+   * @throws ValidationException if the document isn't valid or it has been replaced
+   */
+  public DocumentMetadataDto complete(
+      @AllowedUploadedDocument UploadDocumentFromUserFormDto uploadDocumentDto, String id,
+      String eTag, String expectedChecksum) {
+    String checksum;
+    try {
+      checksum = DigestUtils.sha256Hex(uploadDocumentDto.getFileInputStream());
+    } catch (IOException e) {
+      throw new UncheckedIOException("Unable to read uploaded document", e);
+    }
+    if (expectedChecksum != null && !expectedChecksum.equalsIgnoreCase(checksum)) {
+      throw createValidationException(
+          "Checksum of the uploaded document doesn't match the expected one");
+    }
+    var rootProcessInstanceId = uploadDocumentDto.getRootProcessInstanceId();
+    var fileMetadata = FileMetadataDto.builder()
+        .filename(URLEncoder.encode(uploadDocumentDto.getFilename(), StandardCharsets.UTF_8))
+        .contentType(uploadDocumentDto.getContentType())
+        .contentLength(uploadDocumentDto.getSize())
+        .fieldName(uploadDocumentDto.getFieldName())
+        .formKey(uploadDocumentDto.getFormKey())
+        .checksum(checksum)
+        .id(id)
+        .build();
+    if (!storage.commit(rootProcessInstanceId, id, eTag, fileMetadata.getContentType(),
+        fileMetadata.getUserMetadata())) {
+      throw createValidationException(DOCUMENT_REPLACED_MESSAGE);
+    }
+    processFilesUsageCache.fileAdded(rootProcessInstanceId, id, uploadDocumentDto.getFormKey(),
+        uploadDocumentDto.getFieldName(), uploadDocumentDto.getSize());
+    log.debug("Direct upload of file {} completed. Id {}", uploadDocumentDto.getFilename(), id);
+    return DocumentMetadataDto.builder()
+        .id(id)
+        .name(uploadDocumentDto.getFilename())
+        .type(uploadDocumentDto.getContentType())
+        .size(uploadDocumentDto.getSize())
+        .checksum(checksum)
+        .url(UriComponentsBuilder.newInstance().scheme("https")
+            .host(uploadDocumentDto.getOriginRequestUrl())
+            .pathSegment("documents")
+            .pathSegment(rootProcessInstanceId)
+            .pathSegment(uploadDocumentDto.getTaskId())
+            .pathSegment(uploadDocumentDto.getFieldName())
+            .pathSegment(id)
+            .toUriString())
+        .build();
+  }
+
+  /**
+   * Deletes a staged document that failed the verification.
+   */
+  public void discard(String rootProcessInstanceId, String id) {
+    log.debug("Discarding direct upload {}", id);
+    storage.discard(rootProcessInstanceId, id);
+  }
+
+  private ValidationException createValidationException(String msg) {
+    var error = ValidationErrorDto.builder()
+        .traceId(MDC.get(BaseRestExceptionHandler.TRACE_ID_KEY))
+        .code(String.valueOf(HttpStatus.UNPROCESSABLE_ENTITY.value()))
+        .message(msg)
+        .build();
+    return new ValidationException(error);
+  }
+}
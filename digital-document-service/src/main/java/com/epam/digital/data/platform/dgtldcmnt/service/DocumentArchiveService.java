@@ -0,0 +1,189 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.service;
+
+import com.epam.digital.data.platform.dgtldcmnt.cache.DocumentContentCache;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContent;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentArchiveDto;
+import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
+import com.epam.digital.data.platform.storage.file.exception.FileNotFoundException;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileStorageService;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FilenameUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * The service for exporting the documents of a process instance in a ZIP archive. The archive is
+ * written while the documents are read from the storage, so it is never kept as a whole.
+ * <p>
+ * The documents that are already compressed, e.g. PDF or JPEG, are stored in the archive as they
+ * are. A stored entry needs its CRC before its data, so such a document is buffered on its own
+ * with {@link DocumentContentFactory} or taken from {@link DocumentContentCache}. The other
+ * documents are deflated directly from the storage stream.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DocumentArchiveService {
+
+  private static final Set<String> COMPRESSED_CONTENT_TYPES = Set.of(
+      "application/pdf", "image/jpeg", "image/png", "application/vnd.etsi.asic-s+zip");
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final FormDataFileStorageService storage;
+  private final DocumentContentFactory documentContentFactory;
+  private final DocumentContentCache documentContentCache;
+
+  /**
+   * Get the documents to be exported. The metadata is read before the archive is written, so a
+   * missing document is reported before the response is started.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @param ids                   ids of the documents, only these documents are exported.
+   * @return the documents to be exported.
+   * @throws FileNotFoundException if at least one document not exist in provided ids list.
+   */
+  public DocumentArchiveDto getArchive(String rootProcessInstanceId, Collection<String> ids) {
+    log.debug("Getting documents {} of process {} to export", ids, rootProcessInstanceId);
+    return toArchive(rootProcessInstanceId,
+        storage.getMetadata(rootProcessInstanceId, Set.copyOf(ids)));
+  }
+
+  /**
+   * Get all the documents of the process instance to be exported.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @return the documents to be exported.
+   */
+  public DocumentArchiveDto getArchive(String rootProcessInstanceId) {
+    log.debug("Getting all documents of process {} to export", rootProcessInstanceId);
+    return toArchive(rootProcessInstanceId, storage.getMetadata(rootProcessInstanceId));
+  }
+
+  /**
+   * Write the documents to a ZIP archive. The entries are named by the document names, the same
+   * names are made unique by appending a number.
+   *
+   * @param archive      the documents to be exported.
+   * @param outputStream the stream the archive is written to, it isn't closed.
+   * @throws IOException if the archive can't be written.
+   */
+  public void write(DocumentArchiveDto archive, OutputStream outputStream) throws IOException {
+    var rootProcessInstanceId = archive.getRootProcessInstanceId();
+    var entryNames = new HashSet<String>();
+    var zipOutputStream = new ZipOutputStream(
+        new BufferedOutputStream(outputStream, BUFFER_SIZE));
+    for (var metadata : archive.getDocuments()) {
+      var entry = new ZipEntry(uniqueEntryName(metadata, entryNames));
+      if (COMPRESSED_CONTENT_TYPES.contains(metadata.getContentType())) {
+        writeStored(rootProcessInstanceId, metadata.getId(), entry, zipOutputStream);
+      } else {
+        writeDeflated(rootProcessInstanceId, metadata.getId(), entry, zipOutputStream);
+      }
+    }
+    zipOutputStream.finish();
+    zipOutputStream.flush();
+    log.debug("{} documents of process {} exported", archive.getDocuments().size(),
+        rootProcessInstanceId);
+  }
+
+  private void writeDeflated(String rootProcessInstanceId, String id, ZipEntry entry,
+      ZipOutputStream zipOutputStream) throws IOException {
+    entry.setMethod(ZipEntry.DEFLATED);
+    zipOutputStream.putNextEntry(entry);
+    try (var inputStream = storage.loadByProcessInstanceIdAndId(rootProcessInstanceId, id)
+        .getContent()) {
+      inputStream.transferTo(zipOutputStream);
+    }
+    zipOutputStream.closeEntry();
+  }
+
+  private void writeStored(String rootProcessInstanceId, String id, ZipEntry entry,
+      ZipOutputStream zipOutputStream) throws IOException {
+    var cachedDocument = documentContentCache.get(rootProcessInstanceId, id);
+    if (cachedDocument.isPresent()) {
+      try (var document = cachedDocument.get()) {
+        writeStored(document.getContent(), entry, zipOutputStream);
+      }
+      return;
+    }
+    try (var inputStream = storage.loadByProcessInstanceIdAndId(rootProcessInstanceId, id)
+        .getContent(); var content = documentContentFactory.spool(inputStream)) {
+      writeStored(content, entry, zipOutputStream);
+    }
+  }
+
+  private void writeStored(DocumentContent content, ZipEntry entry,
+      ZipOutputStream zipOutputStream) throws IOException {
+    var crc = new CRC32();
+    try (var checkedInputStream = new CheckedInputStream(content.newInputStream(), crc)) {
+      checkedInputStream.transferTo(OutputStream.nullOutputStream());
+    }
+    entry.setMethod(ZipEntry.STORED);
+    entry.setSize(content.getLength());
+    entry.setCompressedSize(content.getLength());
+    entry.setCrc(crc.getValue());
+    zipOutputStream.putNextEntry(entry);
+    try (var inputStream = content.newInputStream()) {
+      inputStream.transferTo(zipOutputStream);
+    }
+    zipOutputStream.closeEntry();
+  }
+
+  private DocumentArchiveDto toArchive(String rootProcessInstanceId,
+      List<FileMetadataDto> documents) {
+    return DocumentArchiveDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .documents(documents)
+        .build();
+  }
+
+  private String uniqueEntryName(FileMetadataDto metadata, Set<String> entryNames) {
+    var name = Objects.isNull(metadata.getFilename()) ? metadata.getId()
+        : URLDecoder.decode(metadata.getFilename(), StandardCharsets.UTF_8);
+    // the entries are kept flat whatever the document names are
+    name = name.replace('/', '_').replace('\\', '_');
+    if (!StringUtils.hasText(name)) {
+      name = metadata.getId();
+    }
+    var uniqueName = name;
+    var baseName = FilenameUtils.removeExtension(name);
+    var extension = FilenameUtils.getExtension(name);
+    for (int i = 1; !entryNames.add(uniqueName); i++) {
+      uniqueName = extension.isEmpty() ? String.format("%s (%d)", baseName, i)
+          : String.format("%s (%d).%s", baseName, i, extension);
+    }
+    return uniqueName;
+  }
+}
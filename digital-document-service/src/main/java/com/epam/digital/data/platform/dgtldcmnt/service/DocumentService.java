@@ -22,6 +22,7 @@ import com.epam.digital.data.platform.dgtldcmnt.dto.GetDocumentDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.GetDocumentsMetadataDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.InternalApiDocumentMetadataDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
+import com.epam.digital.data.platform.dgtldcmnt.exception.RangeNotSatisfiableException;
 import com.epam.digital.data.platform.storage.file.exception.FileNotFoundException;
 import java.io.InputStream;
 import java.util.List;
@@ -43,12 +44,16 @@ public interface DocumentService {
 
   /**
    * Get document from storage by key. It returns document representation with document name,
-   * content-type, size and content as {@link InputStream} (for further downloading).
+   * content-type, size and content as {@link InputStream} (for further downloading). If byte
+   * ranges are requested, only the requested regions of the content are returned and each of
+   * them is read from the storage when it is opened. If the document matches the entity tags the
+   * client already has, only its metadata is read from the storage and no content is returned.
    *
-   * @param getDocumentDto contains document id and the document context info.
+   * @param getDocumentDto contains document id, request conditions and the document context info.
    * @return document representation.
    *
-   * @throws FileNotFoundException if document not exist.
+   * @throws FileNotFoundException       if document not exist.
+   * @throws RangeNotSatisfiableException if none of the requested ranges overlaps the document.
    */
   DocumentDto get(GetDocumentDto getDocumentDto);
 
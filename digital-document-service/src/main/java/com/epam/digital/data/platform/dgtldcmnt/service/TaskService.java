@@ -0,0 +1,88 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.service;
+
+import com.epam.digital.data.platform.bpms.api.dto.DdmSignableTaskDto;
+import com.epam.digital.data.platform.bpms.client.TaskRestClient;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * The service that provides the user tasks for authorization. A task is cached for a short time,
+ * so the documents of one form don't request the same task from bpms over and over, and the
+ * concurrent requests for the same task share one call to bpms.
+ */
+@Slf4j
+@Service
+public class TaskService {
+
+  private final TaskRestClient taskRestClient;
+  private final LoadingCache<String, DdmSignableTaskDto> tasks;
+
+  public TaskService(TaskRestClient taskRestClient, MeterRegistry meterRegistry,
+      @Value("${digital-documents.task-cache.ttl:5s}") Duration ttl,
+      @Value("${digital-documents.task-cache.max-size:1000}") long maxSize) {
+    this.taskRestClient = taskRestClient;
+    this.tasks = CacheBuilder.newBuilder()
+        .expireAfterWrite(ttl)
+        .maximumSize(maxSize)
+        .recordStats()
+        .build(CacheLoader.from(this::loadTask));
+    GuavaCacheMetrics.monitor(meterRegistry, tasks, "bpms-tasks");
+  }
+
+  /**
+   * Get the task by id. The task may be loaded from bpms up to the configured time ago.
+   *
+   * @param taskId id of the task.
+   * @return the task.
+   */
+  public DdmSignableTaskDto getTask(String taskId) {
+    try {
+      return tasks.getUnchecked(taskId);
+    } catch (UncheckedExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Get the task by id loading it from bpms. The loaded task replaces the cached one.
+   *
+   * @param taskId id of the task.
+   * @return the task.
+   */
+  public DdmSignableTaskDto getFreshTask(String taskId) {
+    tasks.invalidate(taskId);
+    return getTask(taskId);
+  }
+
+  private DdmSignableTaskDto loadTask(String taskId) {
+    log.debug("Loading task {}", taskId);
+    return taskRestClient.getTaskById(taskId);
+  }
+}
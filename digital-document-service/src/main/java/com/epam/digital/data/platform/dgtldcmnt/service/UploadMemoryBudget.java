@@ -0,0 +1,111 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.service;
+
+import com.epam.digital.data.platform.dgtldcmnt.exception.UploadMemoryBudgetExceededException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Limits the memory used by the documents that are uploaded at the same time. Every upload
+ * reserves as much of the budget as the size of the document before it is processed and releases
+ * it after it has been stored. An upload waits for the reservation no longer than the configured
+ * timeout. A document larger than the whole budget reserves the whole budget.
+ */
+@Slf4j
+@Component
+public class UploadMemoryBudget {
+
+  private static final long PERMIT_SIZE = DataSize.ofKilobytes(1).toBytes();
+
+  private final Semaphore permits;
+  private final int totalPermits;
+  private final Duration timeout;
+  private final Duration retryAfter;
+
+  public UploadMemoryBudget(MeterRegistry meterRegistry,
+      @Value("${digital-documents.upload-memory-budget.size:512MB}") DataSize size,
+      @Value("${digital-documents.upload-memory-budget.timeout:10s}") Duration timeout,
+      @Value("${digital-documents.upload-memory-budget.retry-after:5s}") Duration retryAfter) {
+    this.totalPermits = Math.toIntExact(Math.max(1, size.toBytes() / PERMIT_SIZE));
+    this.permits = new Semaphore(totalPermits, true);
+    this.timeout = timeout;
+    this.retryAfter = retryAfter;
+    Gauge.builder("digital-documents.upload.memory.reserved", this,
+            budget -> (double) (budget.totalPermits - budget.permits.availablePermits())
+                * PERMIT_SIZE)
+        .baseUnit("bytes")
+        .description("Memory reserved by the documents being uploaded")
+        .register(meterRegistry);
+    Gauge.builder("digital-documents.upload.memory.queue", permits, Semaphore::getQueueLength)
+        .description("Uploads waiting for memory to be reserved")
+        .register(meterRegistry);
+  }
+
+  /**
+   * Reserve memory for a document.
+   *
+   * @param documentSize size of the document in bytes.
+   * @return the reservation that must be closed after the document has been processed.
+   * @throws UploadMemoryBudgetExceededException if the memory hasn't been reserved in time.
+   */
+  public Reservation reserve(long documentSize) {
+    var documentPermits = (int) Math.min(totalPermits,
+        Math.max(1, (documentSize + PERMIT_SIZE - 1) / PERMIT_SIZE));
+    try {
+      if (!permits.tryAcquire(documentPermits, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+        log.warn("Unable to reserve memory for a document of {} bytes in {}", documentSize,
+            timeout);
+        throw new UploadMemoryBudgetExceededException(
+            "Too many documents are being uploaded, try again later", retryAfter);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new UploadMemoryBudgetExceededException(
+          "Upload has been interrupted while waiting for memory", retryAfter);
+    }
+    return new Reservation(documentPermits);
+  }
+
+  /**
+   * Memory reserved for one document.
+   */
+  public class Reservation implements AutoCloseable {
+
+    private final int reservedPermits;
+    private boolean released;
+
+    private Reservation(int reservedPermits) {
+      this.reservedPermits = reservedPermits;
+    }
+
+    @Override
+    public void close() {
+      if (!released) {
+        released = true;
+        permits.release(reservedPermits);
+      }
+    }
+  }
+}
@@ -16,6 +16,9 @@
 
 package com.epam.digital.data.platform.dgtldcmnt.service;
 
+import com.epam.digital.data.platform.dgtldcmnt.cache.FormFieldsCache;
+import com.epam.digital.data.platform.dgtldcmnt.cache.ProcessFilesUsage;
+import com.epam.digital.data.platform.dgtldcmnt.cache.ProcessFilesUsageCache;
 import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
 import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
 import com.epam.digital.data.platform.dgtldcmnt.exception.BatchFileMaxSizeException;
@@ -24,9 +27,8 @@ import com.epam.digital.data.platform.integration.formprovider.dto.FileDataValid
 import com.epam.digital.data.platform.integration.formprovider.dto.FormFieldListValidationDto;
 import com.epam.digital.data.platform.integration.formprovider.exception.SubmissionValidationException;
 import com.epam.digital.data.platform.starter.errorhandling.exception.ValidationException;
-import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
-import com.epam.digital.data.platform.storage.file.service.FormDataFileStorageService;
 import java.util.List;
+import java.util.stream.Collectors;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.access.AccessDeniedException;
@@ -44,7 +46,8 @@ public class ValidationService {
 
   private final DigitalDocumentsConfigurationProperties digitalDocumentsProperties;
   private final FormValidationClient formValidationClient;
-  private final FormDataFileStorageService formDataFileStorageService;
+  private final ProcessFilesUsageCache processFilesUsageCache;
+  private final FormFieldsCache formFieldsCache;
 
   /**
    * Validate the uploaded document metadata based on the ui form metadata.
@@ -52,8 +55,29 @@ public class ValidationService {
    * @param uploadDto contains uploaded document metadata.
    */
   public void validate(UploadDocumentFromUserFormDto uploadDto) {
+    validateFileField(uploadDto);
+    verifyTotalFilesSize(uploadDto);
+    log.debug("File {} type and size are valid. Task {}", uploadDto.getFieldName(),
+        uploadDto.getTaskId());
+  }
+
+  /**
+   * Validate the type and the size of the uploaded document based on the ui form metadata. The
+   * document is sent to the form validation service only if no document of the same type and not
+   * smaller has been accepted for the field before.
+   *
+   * @param uploadDto contains uploaded document metadata.
+   */
+  public void validateFileField(UploadDocumentFromUserFormDto uploadDto) {
     log.debug("Validating file {} in task {} in form {}", uploadDto.getFieldName(),
         uploadDto.getTaskId(), uploadDto.getFormKey());
+    var form = formFieldsCache.getForm(uploadDto.getFormKey());
+    if (form.isFileAccepted(uploadDto.getFieldName(), uploadDto.getContentType(),
+        uploadDto.getFilename(), uploadDto.getSize())) {
+      log.trace("File {} has been validated by the accepted files of the field",
+          uploadDto.getFieldName());
+      return;
+    }
     var fileData = FileDataValidationDto.builder()
         .contentType(uploadDto.getContentType())
         .documentKey(uploadDto.getFieldName())
@@ -65,33 +89,85 @@ public class ValidationService {
     } catch (SubmissionValidationException exception) {
       throw new ValidationException(exception.getErrors());
     }
-    verifyTotalFilesSize(uploadDto);
-    log.debug("File {} type and size are valid. Task {}", uploadDto.getFieldName(),
-        uploadDto.getTaskId());
+    form.fileAccepted(uploadDto.getFieldName(), uploadDto.getContentType(),
+        uploadDto.getFilename(), uploadDto.getSize());
   }
 
+  /**
+   * Check that the fields exist in the ui form. Only the fields that haven't been confirmed yet
+   * are sent to the form validation service.
+   *
+   * @param fieldNames the field names of the ui form.
+   * @param formKey    key of the ui form.
+   * @throws AccessDeniedException when some of the fields don't exist in the form.
+   */
   public void checkFieldNamesExistence(List<String> fieldNames, String formKey) {
+    var existingFields = formFieldsCache.getForm(formKey).getExistingFields();
+    var uncheckedFields = fieldNames.stream()
+        .filter(fieldName -> !existingFields.contains(fieldName))
+        .distinct()
+        .collect(Collectors.toList());
+    if (uncheckedFields.isEmpty()) {
+      log.trace("Fields {} exist in form {}", fieldNames, formKey);
+      return;
+    }
     try {
       formValidationClient.checkFieldNames(formKey,
-          FormFieldListValidationDto.builder().fields(fieldNames).build());
+          FormFieldListValidationDto.builder().fields(uncheckedFields).build());
     } catch (SubmissionValidationException exception) {
       throw new AccessDeniedException(exception.getErrors().getMessage());
     }
+    existingFields.addAll(uncheckedFields);
   }
 
+  /**
+   * Check that the total size of the documents of the field doesn't exceed the limit with the
+   * declared document. The size isn't reserved, so it is checked again when the document is
+   * uploaded.
+   *
+   * @param uploadDto contains uploaded document metadata.
+   */
   public void verifyTotalFilesSize(UploadDocumentFromUserFormDto uploadDto) {
-    var metadata = formDataFileStorageService.getMetadata(uploadDto.getRootProcessInstanceId());
-    var otherFilesSize = metadata.stream()
-        .filter(md -> uploadDto.getFormKey().equals(md.getFormKey()) &&
-            uploadDto.getFieldName().equals(md.getFieldName()))
-        .mapToDouble(FileMetadataDto::getContentLength)
-        .sum();
-    var currentFileSize = uploadDto.getSize();
-    if (currentFileSize + otherFilesSize > digitalDocumentsProperties.getMaxTotalFileSize()
-        .toBytes()) {
-      throw new BatchFileMaxSizeException(
-          String.format(TOTAL_FILES_SIZE_EXCEEDS_MAX_BATCH_FILES_SIZE_MSG,
-              digitalDocumentsProperties.getMaxTotalFileSize().toMegabytes()));
+    var otherFilesSize = getFilesUsage(uploadDto.getRootProcessInstanceId())
+        .getUsage(uploadDto.getFormKey(), uploadDto.getFieldName());
+    if (uploadDto.getSize() + otherFilesSize > getMaxTotalFileSize()) {
+      throw createBatchFileMaxSizeException();
     }
   }
+
+  /**
+   * Reserve the size of the uploaded document in the total size of the documents of the field.
+   *
+   * @param uploadDto contains uploaded document metadata.
+   * @return the reservation that must be closed after the document has been stored or has failed.
+   * @throws BatchFileMaxSizeException if the total size would exceed the limit.
+   */
+  public ProcessFilesUsageCache.Reservation reserveTotalFilesSize(
+      UploadDocumentFromUserFormDto uploadDto) {
+    return processFilesUsageCache.reserve(uploadDto.getRootProcessInstanceId(),
+            uploadDto.getFormKey(), uploadDto.getFieldName(), uploadDto.getSize(),
+            getMaxTotalFileSize())
+        .orElseThrow(this::createBatchFileMaxSizeException);
+  }
+
+  /**
+   * Get the sizes of the documents stored in the process instance. It doesn't depend on the form,
+   * so it may be requested before the task of the upload is known.
+   *
+   * @param rootProcessInstanceId id of the root process instance.
+   * @return sizes of the stored documents per form field.
+   */
+  public ProcessFilesUsage getFilesUsage(String rootProcessInstanceId) {
+    return processFilesUsageCache.getUsage(rootProcessInstanceId);
+  }
+
+  private long getMaxTotalFileSize() {
+    return digitalDocumentsProperties.getMaxTotalFileSize().toBytes();
+  }
+
+  private BatchFileMaxSizeException createBatchFileMaxSizeException() {
+    return new BatchFileMaxSizeException(
+        String.format(TOTAL_FILES_SIZE_EXCEEDS_MAX_BATCH_FILES_SIZE_MSG,
+            digitalDocumentsProperties.getMaxTotalFileSize().toMegabytes()));
+  }
 }
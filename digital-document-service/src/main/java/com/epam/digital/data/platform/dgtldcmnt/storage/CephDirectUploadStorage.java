@@ -0,0 +1,245 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import java.io.InputStream;
+import java.net.URL;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stages the documents the clients upload directly to the ceph storage. A document is uploaded
+ * with a pre-signed PUT request under a staging key outside the process instance, so it isn't
+ * visible as a document of the process until it is verified. A verified document is copied to
+ * its key by ceph itself with the same metadata as the ones saved by the file storage services,
+ * the content doesn't pass through the service.
+ * <p>
+ * The pre-signed URL stays valid after the document is uploaded, so the staged document may be
+ * replaced while it is verified. It is read and copied only if it still has the entity tag it had
+ * when its metadata were read, so the copied document is always the verified one.
+ * <p>
+ * The size the document is declared with is signed both as the content length and as a user
+ * metadata of the staged document. Not every signature version covers the content length, so the
+ * size of the staged document is checked against the signed metadata before it is read.
+ * <p>
+ * The staged documents of a process instance are deleted with its documents. The staged documents
+ * of abandoned uploads of running process instances are expected to be expired by a lifecycle rule
+ * of the bucket for the {@value #STAGING_PREFIX} prefix.
+ */
+@Slf4j
+@Component
+public class CephDirectUploadStorage {
+
+  static final String STAGING_PREFIX = "direct-uploads/";
+  static final String DECLARED_SIZE_METADATA = "declared-size";
+
+  private final AmazonS3 amazonS3;
+  private final AmazonS3 presigningAmazonS3;
+  private final FormDataFileKeyProvider keyProvider;
+  private final String bucket;
+  private final boolean enabled;
+
+  public CephDirectUploadStorage(AmazonS3 amazonS3,
+      @Qualifier("cephPresigningAmazonS3") AmazonS3 presigningAmazonS3,
+      FormDataFileKeyProvider keyProvider,
+      FileDataCephStorageConfiguration cephStorageConfiguration,
+      @Value("${digital-documents.direct-upload.enabled:false}") boolean enabled) {
+    this.amazonS3 = amazonS3;
+    this.presigningAmazonS3 = presigningAmazonS3;
+    this.keyProvider = keyProvider;
+    this.bucket = cephStorageConfiguration.getBucket();
+    this.enabled = enabled;
+  }
+
+  /**
+   * @return true if the clients may upload documents directly to the storage
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Generates a pre-signed URL for uploading a document to its staging key. The content type and
+   * the size are signed, so the headers returned by {@link #getUploadHeaders} must be sent with
+   * the upload request.
+   *
+   * @param rootProcessInstanceId id of the process instance the document belongs to
+   * @param id                    id of the document
+   * @param contentType           the content type of the document
+   * @param size                  the size of the document in bytes
+   * @param expiration            the time the URL is valid until
+   * @return the URL of a PUT request
+   */
+  public URL generateUploadUrl(String rootProcessInstanceId, String id, String contentType,
+      long size, Instant expiration) {
+    var key = stagingKey(rootProcessInstanceId, id);
+    log.debug("Generating pre-signed upload URL of {}", key);
+    var request = new GeneratePresignedUrlRequest(bucket, key, HttpMethod.PUT)
+        .withExpiration(Date.from(expiration));
+    getUploadHeaders(contentType, size).forEach(request::putCustomRequestHeader);
+    return presigningAmazonS3.generatePresignedUrl(request);
+  }
+
+  /**
+   * @return the signed headers of the upload request of a document
+   */
+  public Map<String, String> getUploadHeaders(String contentType, long size) {
+    return Map.of(Headers.CONTENT_TYPE, contentType,
+        Headers.CONTENT_LENGTH, String.valueOf(size),
+        Headers.S3_USER_METADATA_PREFIX + DECLARED_SIZE_METADATA, String.valueOf(size));
+  }
+
+  /**
+   * @param stagedMetadata the metadata of the staged document
+   * @return true if the staged document has the size its upload URL has been generated for
+   */
+  public boolean hasDeclaredSize(ObjectMetadata stagedMetadata) {
+    return String.valueOf(stagedMetadata.getContentLength())
+        .equals(stagedMetadata.getUserMetaDataOf(DECLARED_SIZE_METADATA));
+  }
+
+  /**
+   * @return the metadata of the staged document or empty if it hasn't been uploaded
+   */
+  public Optional<ObjectMetadata> getStagedMetadata(String rootProcessInstanceId, String id) {
+    try {
+      return Optional.of(
+          amazonS3.getObjectMetadata(bucket, stagingKey(rootProcessInstanceId, id)));
+    } catch (AmazonS3Exception e) {
+      if (e.getStatusCode() == HttpStatus.NOT_FOUND.value()) {
+        return Optional.empty();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Opens a stream over the content of the staged document.
+   *
+   * @param eTag the entity tag the staged document is expected to have
+   * @return stream that must be closed by the caller or empty if the staged document has been
+   * replaced
+   */
+  public Optional<InputStream> openStaged(String rootProcessInstanceId, String id, String eTag) {
+    var stagingKey = stagingKey(rootProcessInstanceId, id);
+    var object = amazonS3.getObject(
+        new GetObjectRequest(bucket, stagingKey).withMatchingETagConstraint(eTag));
+    if (object == null) {
+      log.warn("Staged document {} doesn't match entity tag {}", stagingKey, eTag);
+      return Optional.empty();
+    }
+    return Optional.of(object.getObjectContent());
+  }
+
+  /**
+   * Moves the staged document to its key with the provided metadata. The staged document is
+   * deleted only if it has been copied.
+   *
+   * @param rootProcessInstanceId id of the process instance the document belongs to
+   * @param id                    id of the document
+   * @param eTag                  the entity tag the staged document is expected to have
+   * @param contentType           the content type of the document
+   * @param userMetadata          user metadata of the document
+   * @return false if the staged document has been replaced and hasn't been copied
+   */
+  public boolean commit(String rootProcessInstanceId, String id, String eTag, String contentType,
+      Map<String, String> userMetadata) {
+    var stagingKey = stagingKey(rootProcessInstanceId, id);
+    var key = keyProvider.generateKey(rootProcessInstanceId, id);
+    var objectMetadata = new ObjectMetadata();
+    objectMetadata.setContentType(contentType);
+    objectMetadata.setUserMetadata(userMetadata);
+    var result = amazonS3.copyObject(new CopyObjectRequest(bucket, stagingKey, bucket, key)
+        .withMatchingETagConstraint(eTag)
+        .withNewObjectMetadata(objectMetadata));
+    if (result == null) {
+      log.warn("Staged document {} doesn't match entity tag {}", stagingKey, eTag);
+      return false;
+    }
+    log.debug("Staged document {} committed to {}", stagingKey, key);
+    discard(rootProcessInstanceId, id);
+    return true;
+  }
+
+  /**
+   * Deletes the staged document. A failure is only logged, as the document is expired anyway.
+   */
+  public void discard(String rootProcessInstanceId, String id) {
+    var stagingKey = stagingKey(rootProcessInstanceId, id);
+    try {
+      amazonS3.deleteObject(bucket, stagingKey);
+    } catch (SdkClientException e) {
+      log.warn("Failed to delete staged document {}", stagingKey, e);
+    }
+  }
+
+  /**
+   * Deletes the staged documents of all the uploads of a process instance. A failure is only
+   * logged, as the staged documents are expired anyway.
+   */
+  public void discardAll(String rootProcessInstanceId) {
+    // the id is the last part of the key, so the key without it is the prefix of the process
+    var prefix = stagingKey(rootProcessInstanceId, "");
+    try {
+      var request = new ListObjectsV2Request().withBucketName(bucket).withPrefix(prefix);
+      while (true) {
+        var listing = amazonS3.listObjectsV2(request);
+        if (!listing.getObjectSummaries().isEmpty()) {
+          var keys = listing.getObjectSummaries().stream()
+              .map(S3ObjectSummary::getKey)
+              .map(KeyVersion::new)
+              .collect(Collectors.toList());
+          amazonS3.deleteObjects(new DeleteObjectsRequest(bucket).withKeys(keys).withQuiet(true));
+          log.debug("{} staged documents under {} deleted", keys.size(), prefix);
+        }
+        if (!listing.isTruncated()) {
+          return;
+        }
+        request.setContinuationToken(listing.getNextContinuationToken());
+      }
+    } catch (SdkClientException e) {
+      log.warn("Failed to delete staged documents under {}", prefix, e);
+    }
+  }
+
+  private String stagingKey(String rootProcessInstanceId, String id) {
+    return STAGING_PREFIX + keyProvider.generateKey(rootProcessInstanceId, id);
+  }
+}
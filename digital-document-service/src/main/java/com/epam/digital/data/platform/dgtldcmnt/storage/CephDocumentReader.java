@@ -0,0 +1,204 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Reads regions of the documents stored in the ceph storage with ranged GET requests, so only the
+ * requested bytes are transferred from the storage. The whole documents whose metadata has already
+ * been loaded are read with a plain GET, so the metadata isn't loaded again.
+ * <p>
+ * Large documents may be read in parallel: the object is split into chunks that are requested
+ * with concurrent ranged GETs on a shared bounded pool and reassembled in order. The chunk size
+ * and the number of chunks requested at a time are chosen from the object size, so a document is
+ * never read by more than the configured number of requests or buffered by more than that number
+ * of chunks.
+ * <p>
+ * If hedged reads are enabled, the GETs are hedged against the alternate ceph gateways, the whole
+ * documents and the regions with their own latencies.
+ * <p>
+ * The objects are read by the same keys the file storage services save them with.
+ */
+@Slf4j
+@Component
+public class CephDocumentReader {
+
+  private final AmazonS3 amazonS3;
+  private final FormDataFileKeyProvider keyProvider;
+  private final ThreadPoolTaskExecutor executor;
+  private final String bucket;
+  private final boolean parallelEnabled;
+  private final long parallelThreshold;
+  private final long minChunkSize;
+  private final long maxChunkSize;
+  private final int maxParallelism;
+  private final int chunkMaxAttempts;
+  private final ReadHedger<AmazonS3> readHedger;
+  private final ReadHedger<AmazonS3>.ReadOperation objectOperation;
+  private final ReadHedger<AmazonS3>.ReadOperation rangeOperation;
+
+  public CephDocumentReader(AmazonS3 amazonS3, FormDataFileKeyProvider keyProvider,
+      @Qualifier("parallelDownloadExecutor") ThreadPoolTaskExecutor executor,
+      FileDataCephStorageConfiguration cephStorageConfiguration,
+      @Value("${digital-documents.parallel-download.enabled:false}") boolean parallelEnabled,
+      @Value("${digital-documents.parallel-download.threshold:32MB}") DataSize parallelThreshold,
+      @Value("${digital-documents.parallel-download.min-chunk-size:4MB}") DataSize minChunkSize,
+      @Value("${digital-documents.parallel-download.max-chunk-size:8MB}") DataSize maxChunkSize,
+      @Value("${digital-documents.parallel-download.max-parallelism:4}") int maxParallelism,
+      @Value("${digital-documents.parallel-download.chunk-max-attempts:3}") int chunkMaxAttempts,
+      @Autowired(required = false) ReadHedger<AmazonS3> readHedger) {
+    this.amazonS3 = amazonS3;
+    this.keyProvider = keyProvider;
+    this.executor = executor;
+    this.bucket = cephStorageConfiguration.getBucket();
+    this.parallelEnabled = parallelEnabled;
+    this.parallelThreshold = parallelThreshold.toBytes();
+    this.minChunkSize = minChunkSize.toBytes();
+    this.maxChunkSize = Math.max(this.minChunkSize, maxChunkSize.toBytes());
+    this.maxParallelism = maxParallelism;
+    this.chunkMaxAttempts = chunkMaxAttempts;
+    this.readHedger = readHedger;
+    this.objectOperation = readHedger == null ? null : readHedger.operation("get-object");
+    this.rangeOperation = readHedger == null ? null : readHedger.operation("get-range");
+  }
+
+  /**
+   * @return true if large documents may be read in parallel
+   */
+  public boolean isParallelReadEnabled() {
+    return parallelEnabled;
+  }
+
+  /**
+   * Checks if a document should be read in parallel.
+   *
+   * @param contentLength the length of the document
+   * @return true if parallel reading is enabled and the document is larger than the threshold
+   */
+  public boolean isParallelReadApplicable(long contentLength) {
+    return parallelEnabled && contentLength >= parallelThreshold;
+  }
+
+  /**
+   * Opens a stream over a whole document, e.g. when its metadata has already been loaded.
+   *
+   * @param rootProcessInstanceId id of the process instance the document belongs to
+   * @param id                    id of the document
+   * @return stream with the bytes of the document that must be closed by the caller
+   */
+  public InputStream read(String rootProcessInstanceId, String id) {
+    var key = keyProvider.generateKey(rootProcessInstanceId, id);
+    log.debug("Reading {}", key);
+    return getContent(objectOperation, () -> new GetObjectRequest(bucket, key));
+  }
+
+  /**
+   * Opens a stream over a region of a document.
+   *
+   * @param rootProcessInstanceId id of the process instance the document belongs to
+   * @param id                    id of the document
+   * @param start                 the position of the first byte of the region
+   * @param end                   the position of the last byte of the region, inclusive
+   * @return stream with the bytes of the region that must be closed by the caller
+   */
+  public InputStream read(String rootProcessInstanceId, String id, long start, long end) {
+    var key = keyProvider.generateKey(rootProcessInstanceId, id);
+    log.debug("Reading bytes {}-{} of {}", start, end, key);
+    return getContent(rangeOperation,
+        () -> new GetObjectRequest(bucket, key).withRange(start, end));
+  }
+
+  /**
+   * Opens a stream over a whole document that is read with concurrent ranged requests. The chunk
+   * size is the document length divided by the maximum parallelism, bounded by the minimum and
+   * maximum chunk size. A chunk that failed is requested again on its own.
+   *
+   * @param rootProcessInstanceId id of the process instance the document belongs to
+   * @param id                    id of the document
+   * @param contentLength         the length of the document
+   * @return stream with the bytes of the document that must be closed by the caller
+   */
+  public InputStream readParallel(String rootProcessInstanceId, String id, long contentLength) {
+    var key = keyProvider.generateKey(rootProcessInstanceId, id);
+    var chunkSize = Math.min(maxChunkSize,
+        Math.max(minChunkSize, ceilDiv(contentLength, maxParallelism)));
+    var parallelism = (int) Math.min(maxParallelism, ceilDiv(contentLength, chunkSize));
+    log.debug("Reading {} bytes of {} by {} byte chunks, {} at a time", contentLength, key,
+        chunkSize, parallelism);
+    return new ParallelRangeInputStream(executor,
+        (start, end) -> readChunk(key, start, end), contentLength, chunkSize, parallelism);
+  }
+
+  private byte[] readChunk(String key, long start, long end) throws IOException {
+    for (int attempt = 1; ; attempt++) {
+      try (var inputStream = getContent(rangeOperation,
+          () -> new GetObjectRequest(bucket, key).withRange(start, end))) {
+        var chunk = inputStream.readAllBytes();
+        if (chunk.length != end - start + 1) {
+          throw new IOException(String.format("Expected %d bytes of %s from %d, got %d",
+              end - start + 1, key, start, chunk.length));
+        }
+        return chunk;
+      } catch (SdkClientException | IOException e) {
+        if (attempt >= chunkMaxAttempts) {
+          throw e;
+        }
+        log.warn("Failed to read bytes {}-{} of {}, attempt {} of {}", start, end, key, attempt,
+            chunkMaxAttempts, e);
+      }
+    }
+  }
+
+  /**
+   * Gets the content of an object, hedged if hedged reads are enabled. Every attempt gets its own
+   * request, as the attempts are made concurrently.
+   */
+  private S3ObjectInputStream getContent(ReadHedger<AmazonS3>.ReadOperation operation,
+      Supplier<GetObjectRequest> request) {
+    if (readHedger == null) {
+      return amazonS3.getObject(request.get()).getObjectContent();
+    }
+    return readHedger.read(operation, client -> client.getObject(request.get()),
+        CephDocumentReader::abort).getObjectContent();
+  }
+
+  private static void abort(S3Object object) {
+    // the discarded content isn't needed, so the connection isn't drained
+    object.getObjectContent().abort();
+  }
+
+  private static long ceilDiv(long x, long y) {
+    return (x + y - 1) / y;
+  }
+}
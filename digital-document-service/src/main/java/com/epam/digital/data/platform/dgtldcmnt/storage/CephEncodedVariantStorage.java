@@ -0,0 +1,163 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.epam.digital.data.platform.dgtldcmnt.content.ContentEncodingNegotiator;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContent;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores pre-compressed variants of the documents, so the compressible documents are sent to the
+ * clients that accept gzip without compressing them on every download. A variant is stored under
+ * the key of its document prefixed with {@value #VARIANTS_PREFIX} and the content coding, outside
+ * the process instance, so it is never listed as a document of the process.
+ */
+@Slf4j
+@Component
+public class CephEncodedVariantStorage {
+
+  static final String VARIANTS_PREFIX = "encoded-variants/";
+  /**
+   * The content coding of the stored variants, gzip is accepted by all the clients.
+   */
+  public static final String STORED_ENCODING = ContentEncodingNegotiator.GZIP;
+
+  private final AmazonS3 amazonS3;
+  private final FormDataFileKeyProvider keyProvider;
+  private final String bucket;
+  private final boolean enabled;
+
+  public CephEncodedVariantStorage(AmazonS3 amazonS3, FormDataFileKeyProvider keyProvider,
+      FileDataCephStorageConfiguration cephStorageConfiguration,
+      @Value("${digital-documents.content-encoding.stored-variants.enabled:false}")
+      boolean enabled) {
+    this.amazonS3 = amazonS3;
+    this.keyProvider = keyProvider;
+    this.bucket = cephStorageConfiguration.getBucket();
+    this.enabled = enabled;
+  }
+
+  /**
+   * @return true if the variants are stored on upload and looked up on download
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Opens the stored variant of a document.
+   *
+   * @param rootProcessInstanceId id of the process instance the document belongs to
+   * @param id                    id of the document
+   * @return the variant that must be closed by the caller or empty if it isn't stored
+   */
+  public Optional<S3Object> find(String rootProcessInstanceId, String id) {
+    var key = variantKey(rootProcessInstanceId, id);
+    try {
+      return Optional.of(amazonS3.getObject(bucket, key));
+    } catch (AmazonS3Exception e) {
+      if (e.getStatusCode() == HttpStatus.NOT_FOUND.value()) {
+        log.debug("Encoded variant {} is not stored", key);
+        return Optional.empty();
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Stores the variant of a document.
+   *
+   * @param rootProcessInstanceId id of the process instance the document belongs to
+   * @param id                    id of the document
+   * @param contentType           the content type of the document
+   * @param encodedContent        the content of the document encoded with
+   *                              {@link #STORED_ENCODING}
+   */
+  public void save(String rootProcessInstanceId, String id, String contentType,
+      DocumentContent encodedContent) {
+    var key = variantKey(rootProcessInstanceId, id);
+    var objectMetadata = new ObjectMetadata();
+    objectMetadata.setContentType(contentType);
+    objectMetadata.setContentEncoding(STORED_ENCODING);
+    objectMetadata.setContentLength(encodedContent.getLength());
+    amazonS3.putObject(bucket, key, encodedContent.newInputStream(), objectMetadata);
+    log.debug("Encoded variant {} stored, {} bytes", key, encodedContent.getLength());
+  }
+
+  /**
+   * Deletes the variant of a document. A failure is only logged, as the variant is never served
+   * without its document.
+   */
+  public void delete(String rootProcessInstanceId, String id) {
+    var key = variantKey(rootProcessInstanceId, id);
+    try {
+      amazonS3.deleteObject(bucket, key);
+    } catch (SdkClientException e) {
+      log.warn("Failed to delete encoded variant {}", key, e);
+    }
+  }
+
+  /**
+   * Deletes the variants of all the documents of a process instance. A failure is only logged, as
+   * the variants are never served without their documents.
+   */
+  public void deleteAll(String rootProcessInstanceId) {
+    // the id is the last part of the key, so the key without it is the prefix of the process
+    var prefix = variantKey(rootProcessInstanceId, "");
+    try {
+      var request = new ListObjectsV2Request().withBucketName(bucket).withPrefix(prefix);
+      while (true) {
+        var listing = amazonS3.listObjectsV2(request);
+        if (!listing.getObjectSummaries().isEmpty()) {
+          var keys = listing.getObjectSummaries().stream()
+              .map(S3ObjectSummary::getKey)
+              .map(KeyVersion::new)
+              .collect(Collectors.toList());
+          amazonS3.deleteObjects(new DeleteObjectsRequest(bucket).withKeys(keys).withQuiet(true));
+          log.debug("{} encoded variants under {} deleted", keys.size(), prefix);
+        }
+        if (!listing.isTruncated()) {
+          return;
+        }
+        request.setContinuationToken(listing.getNextContinuationToken());
+      }
+    } catch (SdkClientException e) {
+      log.warn("Failed to delete encoded variants under {}", prefix, e);
+    }
+  }
+
+  private String variantKey(String rootProcessInstanceId, String id) {
+    return VARIANTS_PREFIX + STORED_ENCODING + "/"
+        + keyProvider.generateKey(rootProcessInstanceId, id);
+  }
+}
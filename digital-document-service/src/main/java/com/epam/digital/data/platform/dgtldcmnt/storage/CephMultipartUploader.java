@@ -0,0 +1,230 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContent;
+import com.epam.digital.data.platform.integration.ceph.exception.CephCommunicationException;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Uploads large documents to the ceph storage using S3 multipart upload. The parts of a document
+ * are uploaded in parallel on a shared bounded pool, no more than the configured number of parts
+ * of one document at a time. A part that failed with an I/O or a server error is retried on its
+ * own without restarting the whole upload, no more parts are submitted once a part has failed.
+ * <p>
+ * The objects are stored under the same keys and with the same metadata as the ones saved by the
+ * file storage services.
+ */
+@Slf4j
+@Component
+public class CephMultipartUploader {
+
+  /**
+   * The minimum size of a part except the last one accepted by S3.
+   */
+  static final DataSize MIN_PART_SIZE = DataSize.ofMegabytes(5);
+
+  private final AmazonS3 amazonS3;
+  private final FormDataFileKeyProvider keyProvider;
+  private final ThreadPoolTaskExecutor executor;
+  private final String bucket;
+  private final boolean enabled;
+  private final long threshold;
+  private final int partSize;
+  private final int concurrency;
+  private final int partMaxAttempts;
+
+  public CephMultipartUploader(AmazonS3 amazonS3, FormDataFileKeyProvider keyProvider,
+      @Qualifier("multipartUploadExecutor") ThreadPoolTaskExecutor executor,
+      FileDataCephStorageConfiguration cephStorageConfiguration,
+      @Value("${digital-documents.multipart-upload.enabled:true}") boolean enabled,
+      @Value("${digital-documents.multipart-upload.threshold:32MB}") DataSize threshold,
+      @Value("${digital-documents.multipart-upload.part-size:8MB}") DataSize partSize,
+      @Value("${digital-documents.multipart-upload.concurrency:4}") int concurrency,
+      @Value("${digital-documents.multipart-upload.part-max-attempts:3}") int partMaxAttempts) {
+    if (enabled && partSize.compareTo(MIN_PART_SIZE) < 0) {
+      throw new IllegalArgumentException(String.format(
+          "Multipart upload part size %s is less than the minimum of %s", partSize,
+          MIN_PART_SIZE));
+    }
+    this.amazonS3 = amazonS3;
+    this.keyProvider = keyProvider;
+    this.executor = executor;
+    this.bucket = cephStorageConfiguration.getBucket();
+    this.enabled = enabled;
+    this.threshold = threshold.toBytes();
+    this.partSize = Math.toIntExact(partSize.toBytes());
+    this.concurrency = concurrency;
+    this.partMaxAttempts = partMaxAttempts;
+  }
+
+  /**
+   * Checks if a document should be uploaded in parts.
+   *
+   * @param contentLength the length of the document
+   * @return true if multipart upload is enabled and the document is larger than the threshold
+   */
+  public boolean isApplicable(long contentLength) {
+    return enabled && contentLength >= threshold;
+  }
+
+  /**
+   * Uploads buffered document content. The parts are read directly from the content, so no
+   * additional memory is used for them.
+   *
+   * @param rootProcessInstanceId id of the process instance the document belongs to
+   * @param id                    id of the document
+   * @param contentType           content type of the document
+   * @param userMetadata          user metadata of the document
+   * @param content               the document content
+   * @return the number of uploaded bytes
+   */
+  public long upload(String rootProcessInstanceId, String id, String contentType,
+      Map<String, String> userMetadata, DocumentContent content) {
+    var key = keyProvider.generateKey(rootProcessInstanceId, id);
+    var objectMetadata = new ObjectMetadata();
+    objectMetadata.setContentType(contentType);
+    objectMetadata.setUserMetadata(userMetadata);
+    var uploadId = amazonS3.initiateMultipartUpload(
+        new InitiateMultipartUploadRequest(bucket, key, objectMetadata)).getUploadId();
+    log.debug("Multipart upload {} of {} initiated", uploadId, key);
+
+    var inFlight = new Semaphore(concurrency);
+    var failed = new AtomicBoolean();
+    var futures = new ArrayList<Future<PartETag>>();
+    try {
+      long offset = 0;
+      do {
+        inFlight.acquire();
+        // the failure of a submitted part is thrown while the parts are collected below
+        if (failed.get()) {
+          inFlight.release();
+          break;
+        }
+        var partNumber = futures.size() + 1;
+        var partOffset = offset;
+        var partLength = Math.min(partSize, content.getLength() - offset);
+        offset += partLength;
+        try {
+          futures.add(executor.submit(() -> {
+            try {
+              return uploadPart(key, uploadId, partNumber, content, partOffset, partLength);
+            } catch (RuntimeException e) {
+              failed.set(true);
+              throw e;
+            } finally {
+              inFlight.release();
+            }
+          }));
+        } catch (RuntimeException e) {
+          inFlight.release();
+          throw e;
+        }
+      } while (offset < content.getLength());
+      var partETags = new ArrayList<PartETag>();
+      for (var future : futures) {
+        partETags.add(future.get());
+      }
+      amazonS3.completeMultipartUpload(
+          new CompleteMultipartUploadRequest(bucket, key, uploadId, partETags));
+      log.debug("Multipart upload {} of {} completed, {} parts", uploadId, key, partETags.size());
+      return offset;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      abort(key, uploadId, futures);
+      throw new CephCommunicationException("Multipart upload has been interrupted", e);
+    } catch (ExecutionException e) {
+      abort(key, uploadId, futures);
+      var cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CephCommunicationException("Failed to upload document part", e);
+    } catch (RuntimeException e) {
+      abort(key, uploadId, futures);
+      throw e;
+    }
+  }
+
+  private PartETag uploadPart(String key, String uploadId, int partNumber,
+      DocumentContent content, long offset, long length) {
+    for (int attempt = 1; ; attempt++) {
+      try (var partInputStream = content.newInputStream(offset, length)) {
+        var request = new UploadPartRequest()
+            .withBucketName(bucket)
+            .withKey(key)
+            .withUploadId(uploadId)
+            .withPartNumber(partNumber)
+            .withPartSize(length)
+            .withInputStream(partInputStream);
+        return amazonS3.uploadPart(request).getPartETag();
+      } catch (SdkClientException | IOException e) {
+        if (attempt >= partMaxAttempts || !isRetryable(e)) {
+          throw new CephCommunicationException(
+              String.format("Failed to upload part %d of %s", partNumber, key), e);
+        }
+        log.warn("Failed to upload part {} of {}, attempt {} of {}", partNumber, key, attempt,
+            partMaxAttempts, e);
+      }
+    }
+  }
+
+  private boolean isRetryable(Exception e) {
+    // the same conditions as the default retry policy of the client: the I/O errors and the
+    // server errors, the other errors of the request, e.g. 4xx, fail the same way again
+    if (e instanceof AmazonServiceException) {
+      var serviceException = (AmazonServiceException) e;
+      return serviceException.getStatusCode() >= 500
+          || RetryUtils.isThrottlingException(serviceException);
+    }
+    return e instanceof IOException || ((SdkClientException) e).isRetryable();
+  }
+
+  private void abort(String key, String uploadId, List<Future<PartETag>> futures) {
+    futures.forEach(future -> future.cancel(true));
+    try {
+      amazonS3.abortMultipartUpload(new AbortMultipartUploadRequest(bucket, key, uploadId));
+    } catch (SdkClientException e) {
+      log.warn("Failed to abort multipart upload {} of {}", uploadId, key, e);
+    }
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import com.amazonaws.HttpMethod;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Generates short-lived pre-signed ceph URLs the clients are redirected to for downloading large
+ * documents, so their content doesn't pass through the service. The URLs are signed for the
+ * public ceph endpoint and make ceph return the same Content-Type and Content-Disposition as the
+ * service.
+ * <p>
+ * Only the documents of the configured media types that are not smaller than the configured
+ * threshold are downloaded with redirects.
+ */
+@Slf4j
+@Component
+public class CephPresignedUrlGenerator {
+
+  private final AmazonS3 amazonS3;
+  private final FormDataFileKeyProvider keyProvider;
+  private final String bucket;
+  private final String dispositionType;
+  private final boolean enabled;
+  private final long threshold;
+  private final List<MediaType> mediaTypes;
+  private final Duration ttl;
+
+  public CephPresignedUrlGenerator(
+      @Qualifier("cephPresigningAmazonS3") AmazonS3 amazonS3,
+      FormDataFileKeyProvider keyProvider,
+      FileDataCephStorageConfiguration cephStorageConfiguration,
+      DigitalDocumentsConfigurationProperties digitalDocumentsProperties,
+      @Value("${digital-documents.download-redirect.enabled:false}") boolean enabled,
+      @Value("${digital-documents.download-redirect.threshold:16MB}") DataSize threshold,
+      @Value("${digital-documents.download-redirect.media-types:}") List<String> mediaTypes,
+      @Value("${digital-documents.download-redirect.ttl:1m}") Duration ttl) {
+    this.amazonS3 = amazonS3;
+    this.keyProvider = keyProvider;
+    this.bucket = cephStorageConfiguration.getBucket();
+    this.dispositionType = digitalDocumentsProperties.getContent().getDispositionType();
+    this.enabled = enabled;
+    this.threshold = threshold.toBytes();
+    this.mediaTypes = mediaTypes.stream()
+        .filter(StringUtils::hasText)
+        .map(MediaType::valueOf)
+        .collect(Collectors.toList());
+    this.ttl = ttl;
+  }
+
+  /**
+   * @return true if the documents may be downloaded with redirects
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Checks if a document should be downloaded with a redirect.
+   *
+   * @param contentLength the length of the document
+   * @param contentType   the content type of the document
+   * @return true if redirects are enabled, the document is larger than the threshold and it is
+   * one of the configured media types or no media types are configured
+   */
+  public boolean isApplicable(long contentLength, String contentType) {
+    return enabled && contentLength >= threshold && isRedirectedMediaType(contentType);
+  }
+
+  /**
+   * Generates a pre-signed URL for downloading a document.
+   *
+   * @param rootProcessInstanceId id of the process instance the document belongs to
+   * @param id                    id of the document
+   * @param name                  the name of the document returned in Content-Disposition
+   * @param contentType           the content type of the document
+   * @return the URL that is valid for the configured time
+   */
+  public URL generate(String rootProcessInstanceId, String id, String name, String contentType) {
+    var key = keyProvider.generateKey(rootProcessInstanceId, id);
+    var contentDisposition = ContentDisposition.builder(dispositionType)
+        .filename(name, StandardCharsets.UTF_8)
+        .build();
+    var request = new GeneratePresignedUrlRequest(bucket, key, HttpMethod.GET)
+        .withExpiration(new Date(System.currentTimeMillis() + ttl.toMillis()))
+        .withResponseHeaders(new ResponseHeaderOverrides()
+            .withContentType(contentType)
+            .withContentDisposition(contentDisposition.toString()));
+    log.debug("Generating pre-signed URL of {} valid for {}", key, ttl);
+    return amazonS3.generatePresignedUrl(request);
+  }
+
+  private boolean isRedirectedMediaType(String contentType) {
+    if (mediaTypes.isEmpty()) {
+      return true;
+    }
+    if (Objects.isNull(contentType)) {
+      return false;
+    }
+    try {
+      var mediaType = MediaType.valueOf(contentType);
+      return mediaTypes.stream().anyMatch(redirected -> redirected.includes(mediaType));
+    } catch (InvalidMediaTypeException e) {
+      return false;
+    }
+  }
+}
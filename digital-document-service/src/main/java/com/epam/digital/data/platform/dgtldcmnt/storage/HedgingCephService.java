@@ -0,0 +1,137 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import com.epam.digital.data.platform.integration.ceph.model.CephObject;
+import com.epam.digital.data.platform.integration.ceph.model.CephObjectMetadata;
+import com.epam.digital.data.platform.integration.ceph.service.CephService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * {@link CephService} that hedges the reads of the objects and their metadata against alternate
+ * ceph gateways with a {@link ReadHedger}. The other operations are sent to the primary gateway
+ * only.
+ */
+@Slf4j
+public class HedgingCephService implements CephService {
+
+  private final CephService primary;
+  private final ReadHedger<CephService> readHedger;
+  private final ReadHedger<CephService>.ReadOperation getOperation;
+  private final ReadHedger<CephService>.ReadOperation headOperation;
+
+  public HedgingCephService(CephService primary, List<CephService> alternates,
+      AsyncTaskExecutor executor, MeterRegistry meterRegistry, double percentile,
+      Duration minDelay, Duration initialDelay, double maxHedgeRatio) {
+    this.primary = primary;
+    this.readHedger = new ReadHedger<>(primary, alternates, executor, meterRegistry, percentile,
+        minDelay, initialDelay, maxHedgeRatio);
+    this.getOperation = readHedger.operation("get");
+    this.headOperation = readHedger.operation("head");
+  }
+
+  @Override
+  public Optional<CephObject> get(String cephBucketName, String key) {
+    return readHedger.read(getOperation, cephService -> cephService.get(cephBucketName, key),
+        HedgingCephService::closeContent);
+  }
+
+  @Override
+  public List<CephObjectMetadata> getMetadata(String cephBucketName, Set<String> keys) {
+    return readHedger.read(headOperation,
+        cephService -> cephService.getMetadata(cephBucketName, keys), metadata -> {
+        });
+  }
+
+  @Override
+  public CephObjectMetadata put(String cephBucketName, String key, String contentType,
+      Map<String, String> userMetadata, InputStream fileInputStream) {
+    return primary.put(cephBucketName, key, contentType, userMetadata, fileInputStream);
+  }
+
+  @Override
+  public CephObjectMetadata put(String cephBucketName, String key, String contentType,
+      long contentLength, Map<String, String> userMetadata, InputStream fileInputStream) {
+    return primary.put(cephBucketName, key, contentType, contentLength, userMetadata,
+        fileInputStream);
+  }
+
+  @Override
+  public Optional<String> getAsString(String cephBucketName, String key) {
+    return primary.getAsString(cephBucketName, key);
+  }
+
+  @Override
+  public void put(String cephBucketName, String key, String content) {
+    primary.put(cephBucketName, key, content);
+  }
+
+  @Override
+  public List<CephObjectMetadata> getMetadata(String cephBucketName, String prefix) {
+    return primary.getMetadata(cephBucketName, prefix);
+  }
+
+  @Override
+  public CephObjectMetadata setUserMetadata(String cephBucketName, String key,
+      Map<String, String> userMetadata) {
+    return primary.setUserMetadata(cephBucketName, key, userMetadata);
+  }
+
+  @Override
+  public void delete(String cephBucketName, Set<String> keys) {
+    primary.delete(cephBucketName, keys);
+  }
+
+  @Override
+  public Boolean exist(String cephBucketName, String key) {
+    return primary.exist(cephBucketName, key);
+  }
+
+  @Override
+  public Boolean exist(String cephBucketName, Set<String> keys) {
+    return primary.exist(cephBucketName, keys);
+  }
+
+  @Override
+  public Set<String> getKeys(String cephBucketName, String prefix) {
+    return primary.getKeys(cephBucketName, prefix);
+  }
+
+  @Override
+  public Set<String> getKeys(String cephBucketName) {
+    return primary.getKeys(cephBucketName);
+  }
+
+  private static void closeContent(Optional<CephObject> cephObject) {
+    cephObject.map(CephObject::getContent).ifPresent(content -> {
+      try {
+        content.close();
+      } catch (IOException e) {
+        log.warn("Unable to close content of discarded ceph object", e);
+      }
+    });
+  }
+}
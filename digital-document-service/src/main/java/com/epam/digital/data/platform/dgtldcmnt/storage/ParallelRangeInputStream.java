@@ -0,0 +1,148 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+/**
+ * Stream over an object that is read by chunks with concurrent ranged requests. The chunks are
+ * returned in order, and no more than the configured number of chunks are requested or kept in
+ * memory ahead of the reader. The next chunk is requested as soon as the reader takes a chunk from
+ * the window, so together with the chunk being read the memory used by the stream is bounded by
+ * {@code (parallelism + 1) * chunkSize}.
+ */
+@NotThreadSafe
+class ParallelRangeInputStream extends InputStream {
+
+  private final AsyncTaskExecutor executor;
+  private final ChunkReader chunkReader;
+  private final long length;
+  private final long chunkSize;
+  private final Deque<Future<byte[]>> window = new ArrayDeque<>();
+  private long nextChunkStart;
+  private byte[] chunk = new byte[0];
+  private int position;
+  private boolean closed;
+
+  ParallelRangeInputStream(AsyncTaskExecutor executor, ChunkReader chunkReader, long length,
+      long chunkSize, int parallelism) {
+    this.executor = executor;
+    this.chunkReader = chunkReader;
+    this.length = length;
+    this.chunkSize = chunkSize;
+    for (int i = 0; i < parallelism && hasChunksToRequest(); i++) {
+      requestNextChunk();
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!ensureChunk()) {
+      return -1;
+    }
+    return chunk[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!ensureChunk()) {
+      return -1;
+    }
+    var count = Math.min(len, chunk.length - position);
+    System.arraycopy(chunk, position, b, off, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return chunk.length - position;
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    window.forEach(future -> future.cancel(true));
+    window.clear();
+  }
+
+  private boolean ensureChunk() throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    while (position >= chunk.length) {
+      var future = window.poll();
+      if (future == null) {
+        return false;
+      }
+      if (hasChunksToRequest()) {
+        requestNextChunk();
+      }
+      chunk = await(future);
+      position = 0;
+    }
+    return true;
+  }
+
+  private byte[] await(Future<byte[]> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      close();
+      throw new InterruptedIOException("Reading of document chunk has been interrupted");
+    } catch (ExecutionException | CancellationException e) {
+      close();
+      var cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException("Failed to read document chunk", cause == null ? e : cause);
+    }
+  }
+
+  private boolean hasChunksToRequest() {
+    return nextChunkStart < length;
+  }
+
+  private void requestNextChunk() {
+    var start = nextChunkStart;
+    var end = Math.min(start + chunkSize, length) - 1;
+    nextChunkStart = end + 1;
+    window.add(executor.submit(() -> chunkReader.read(start, end)));
+  }
+
+  interface ChunkReader {
+
+    /**
+     * @return all bytes from start to end inclusive
+     */
+    byte[] read(long start, long end) throws IOException;
+  }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import com.epam.digital.data.platform.integration.ceph.exception.CephCommunicationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+
+/**
+ * Hedges the reads made with the clients of the ceph gateways. A read is sent to the primary
+ * gateway first. If it isn't answered within the configured percentile of the recent primary
+ * latencies of its operation, the same read is sent to the next alternate gateway, the first
+ * answer is used and the other read is cancelled.
+ * <p>
+ * Hedged reads are capped by a budget that grows by the configured ratio with every read, so
+ * the gateways never get more than that share of additional requests.
+ * <p>
+ * The reads are made on a bounded pool, a read the pool rejects is made in the calling thread
+ * without hedging. The hedging delay is counted from the start of the primary read, so the time
+ * it waits in the queue doesn't count as gateway latency. The client reads can't be interrupted,
+ * so the read that lost isn't cancelled once it has started, its answer is released when it
+ * comes.
+ *
+ * @param <C> type of the gateway client
+ */
+@Slf4j
+public class ReadHedger<C> {
+
+  private static final String METRIC_PREFIX = "digital-documents.hedged-reads";
+  private static final int LATENCY_WINDOW = 512;
+  private static final int LATENCY_MIN_SAMPLES = 32;
+  private static final int LATENCY_RECALCULATION_PERIOD = 16;
+  private static final double MAX_HEDGE_TOKENS = 10;
+
+  private final C primary;
+  private final List<C> alternates;
+  private final AsyncTaskExecutor executor;
+  private final MeterRegistry meterRegistry;
+  private final double percentile;
+  private final long minDelayNanos;
+  private final long initialDelayNanos;
+  private final double maxHedgeRatio;
+  private final AtomicInteger nextAlternate = new AtomicInteger();
+  private double hedgeTokens;
+
+  public ReadHedger(C primary, List<C> alternates, AsyncTaskExecutor executor,
+      MeterRegistry meterRegistry, double percentile, Duration minDelay, Duration initialDelay,
+      double maxHedgeRatio) {
+    if (alternates.isEmpty()) {
+      throw new IllegalArgumentException("At least one alternate ceph gateway is required");
+    }
+    this.primary = primary;
+    this.alternates = List.copyOf(alternates);
+    this.executor = executor;
+    this.meterRegistry = meterRegistry;
+    this.percentile = percentile;
+    this.minDelayNanos = minDelay.toNanos();
+    this.initialDelayNanos = initialDelay.toNanos();
+    this.maxHedgeRatio = maxHedgeRatio;
+  }
+
+  /**
+   * Registers a kind of read that has its own latencies and metrics.
+   *
+   * @param name the name of the operation the metrics are tagged with, unique per registry
+   * @return the operation the reads of this kind are made with
+   */
+  public ReadOperation operation(String name) {
+    return new ReadOperation(name);
+  }
+
+  /**
+   * Sends the read to the primary gateway and hedges it when it is slow.
+   *
+   * @param operation the read operation
+   * @param read      the read made against a gateway
+   * @param discard   releases the answer that came after the first one
+   * @return the first successful answer
+   */
+  public <T> T read(ReadOperation operation, Function<C, T> read, Consumer<T> discard) {
+    operation.requests.increment();
+    addHedgeTokens();
+    HedgedRead<C, T> hedgedRead = new HedgedRead<>(discard);
+    var primaryStarted = new CompletableFuture<Long>();
+    Future<?> primaryFuture;
+    try {
+      primaryFuture = executor.submit(() -> {
+        var start = System.nanoTime();
+        primaryStarted.complete(start);
+        hedgedRead.attempt(primary, client -> {
+          var value = read.apply(client);
+          operation.recordLatency(System.nanoTime() - start);
+          return value;
+        });
+      });
+    } catch (TaskRejectedException e) {
+      operation.poolRejections.increment();
+      log.debug("Ceph {} is made without hedging, the pool is saturated", operation.name);
+      return read.apply(primary);
+    }
+    Future<?> alternateFuture = null;
+    try {
+      var delayNanos = primaryStarted.get() + operation.delayNanos - System.nanoTime();
+      try {
+        return hedgedRead.result.get(delayNanos, TimeUnit.NANOSECONDS);
+      } catch (TimeoutException e) {
+        if (!tryAcquireHedgeToken()) {
+          operation.hedgesRejected.increment();
+          return hedgedRead.result.get();
+        }
+      }
+      var alternate = alternates.get(
+          Math.floorMod(nextAlternate.getAndIncrement(), alternates.size()));
+      log.debug("Ceph {} is not answered in {} ms, hedging it", operation.name,
+          TimeUnit.NANOSECONDS.toMillis(operation.delayNanos));
+      hedgedRead.pending.incrementAndGet();
+      try {
+        alternateFuture = executor.submit(() -> {
+          if (hedgedRead.attempt(alternate, read)) {
+            operation.alternateWins.increment();
+          }
+        });
+        operation.hedges.increment();
+      } catch (TaskRejectedException e) {
+        operation.poolRejections.increment();
+        hedgedRead.abandonAttempt();
+      }
+      return hedgedRead.result.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CephCommunicationException("Ceph read has been interrupted", e);
+    } catch (ExecutionException e) {
+      var cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new CephCommunicationException("Ceph read failed", cause);
+    } finally {
+      // only the reads that haven't started are cancelled, the started ones are discarded
+      primaryFuture.cancel(false);
+      if (alternateFuture != null) {
+        alternateFuture.cancel(false);
+      }
+    }
+  }
+
+  private synchronized void addHedgeTokens() {
+    hedgeTokens = Math.min(MAX_HEDGE_TOKENS, hedgeTokens + maxHedgeRatio);
+  }
+
+  private synchronized boolean tryAcquireHedgeToken() {
+    if (hedgeTokens < 1) {
+      return false;
+    }
+    hedgeTokens -= 1;
+    return true;
+  }
+
+  /**
+   * The attempts of one read against the gateways. The first successful answer completes the
+   * result, the later ones are discarded. The read fails only when none of the gateways has
+   * answered.
+   */
+  private static class HedgedRead<C, T> {
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final AtomicInteger pending = new AtomicInteger(1);
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final Consumer<T> discard;
+
+    HedgedRead(Consumer<T> discard) {
+      this.discard = discard;
+    }
+
+    /**
+     * @return true if the answer was the first one
+     */
+    boolean attempt(C client, Function<C, T> read) {
+      T value;
+      try {
+        value = read.apply(client);
+      } catch (RuntimeException e) {
+        failure.set(e);
+        if (pending.decrementAndGet() == 0) {
+          result.completeExceptionally(e);
+        } else {
+          log.debug("Ceph read failed, waiting for the other gateway", e);
+        }
+        return false;
+      }
+      if (result.complete(value)) {
+        return true;
+      }
+      discard.accept(value);
+      return false;
+    }
+
+    /**
+     * Gives up an attempt that hasn't been made, the read fails if the other attempts failed.
+     */
+    void abandonAttempt() {
+      if (pending.decrementAndGet() == 0) {
+        result.completeExceptionally(failure.get());
+      }
+    }
+  }
+
+  /**
+   * Latencies and metrics of one kind of read. The hedging delay is the configured percentile of
+   * the last successful primary latencies, including the answers that came after a hedge. It is
+   * recalculated periodically, so recording a latency is cheap.
+   */
+  public class ReadOperation {
+
+    private final String name;
+    private final long[] latencies = new long[LATENCY_WINDOW];
+    private final Counter requests;
+    private final Counter hedges;
+    private final Counter hedgesRejected;
+    private final Counter alternateWins;
+    private final Counter poolRejections;
+    private volatile long delayNanos;
+    private int count;
+    private long recorded;
+
+    private ReadOperation(String name) {
+      this.name = name;
+      this.delayNanos = initialDelayNanos;
+      this.requests = meterRegistry.counter(METRIC_PREFIX + ".requests", "operation", name);
+      this.hedges = meterRegistry.counter(METRIC_PREFIX + ".hedges", "operation", name);
+      this.hedgesRejected = meterRegistry.counter(METRIC_PREFIX + ".hedges.rejected",
+          "operation", name);
+      this.alternateWins = meterRegistry.counter(METRIC_PREFIX + ".alternate-wins",
+          "operation", name);
+      this.poolRejections = meterRegistry.counter(METRIC_PREFIX + ".pool-rejections",
+          "operation", name);
+      Gauge.builder(METRIC_PREFIX + ".delay", this, operation -> operation.delayNanos / 1e6)
+          .tag("operation", name)
+          .description("Time after which a read is hedged, in milliseconds")
+          .register(meterRegistry);
+    }
+
+    private synchronized void recordLatency(long latencyNanos) {
+      latencies[(int) (recorded % LATENCY_WINDOW)] = latencyNanos;
+      recorded++;
+      count = Math.min(count + 1, LATENCY_WINDOW);
+      if (count >= LATENCY_MIN_SAMPLES && recorded % LATENCY_RECALCULATION_PERIOD == 0) {
+        var sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        var index = Math.max(0, (int) Math.ceil(percentile * count) - 1);
+        delayNanos = Math.max(minDelayNanos, sorted[index]);
+      }
+    }
+  }
+}
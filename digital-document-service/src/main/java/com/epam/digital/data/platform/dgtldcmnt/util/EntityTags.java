@@ -0,0 +1,77 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.util;
+
+import java.util.List;
+import java.util.Objects;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Entity tags of the documents. A document is never changed under its id, so the SHA-256 checksum
+ * of its content is used as a strong entity tag.
+ */
+@UtilityClass
+public class EntityTags {
+
+  private static final String ANY = "*";
+  private static final String WEAK_PREFIX = "W/";
+
+  /**
+   * @param checksum the checksum of a document
+   * @return quoted entity tag of the document or null if its checksum is unknown
+   */
+  public String of(String checksum) {
+    return Objects.isNull(checksum) ? null : "\"" + checksum + "\"";
+  }
+
+  /**
+   * @param checksum the checksum of a document
+   * @return weak entity tag of an encoded representation of the document or null if its checksum
+   * is unknown
+   */
+  public String weakOf(String checksum) {
+    return Objects.isNull(checksum) ? null : WEAK_PREFIX + of(checksum);
+  }
+
+  /**
+   * Strong comparison used for If-Range, weak entity tags never match.
+   *
+   * @param entityTag the entity tag sent by the client
+   * @param checksum  the checksum of a document
+   * @return true if the entity tag is the current entity tag of the document
+   */
+  public boolean strongMatch(String entityTag, String checksum) {
+    return Objects.nonNull(checksum) && Objects.equals(entityTag, of(checksum));
+  }
+
+  /**
+   * Weak comparison used for If-None-Match.
+   *
+   * @param entityTags the entity tags sent by the client
+   * @param checksum   the checksum of a document
+   * @return true if any of the entity tags is the current entity tag of the document
+   */
+  public boolean weakMatch(List<String> entityTags, String checksum) {
+    if (Objects.isNull(checksum) || Objects.isNull(entityTags)) {
+      return false;
+    }
+    var entityTag = of(checksum);
+    return entityTags.stream()
+        .map(tag -> tag.startsWith(WEAK_PREFIX) ? tag.substring(WEAK_PREFIX.length()) : tag)
+        .anyMatch(tag -> ANY.equals(tag) || entityTag.equals(tag));
+  }
+}
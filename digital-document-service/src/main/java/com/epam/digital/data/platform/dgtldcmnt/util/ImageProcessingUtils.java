@@ -54,9 +54,12 @@ public class ImageProcessingUtils {
   public ImageDimensions calculateNewImageDimensions(BufferedImage inputImage,
                                                             int imageMaxWidth,
                                                             int imageMaxHeight) {
-    int originalWidth = inputImage.getWidth();
-    int originalHeight = inputImage.getHeight();
+    return calculateNewImageDimensions(inputImage.getWidth(), inputImage.getHeight(),
+        imageMaxWidth, imageMaxHeight);
+  }
 
+  public ImageDimensions calculateNewImageDimensions(int originalWidth, int originalHeight,
+                                                     int imageMaxWidth, int imageMaxHeight) {
     if ((imageMaxWidth == 0 || originalWidth <= imageMaxWidth)
         && (imageMaxHeight == 0 || originalHeight <= imageMaxHeight)) {
       return new ImageDimensions(originalWidth, originalHeight);
@@ -79,6 +82,24 @@ public class ImageProcessingUtils {
     return new ImageDimensions(newWidth, newHeight);
   }
 
+  /**
+   * Calculates the source subsampling the image is decoded with, so it is decoded close to the
+   * target size but never smaller than it and the resize only has to downscale it a little.
+   *
+   * @param originalWidth   the width of the encoded image
+   * @param originalHeight  the height of the encoded image
+   * @param imageDimensions the target dimensions of the image
+   * @return the period of the decoded pixels in both directions, 1 if every pixel is decoded
+   */
+  public int calculateSourceSubsampling(int originalWidth, int originalHeight,
+                                        ImageDimensions imageDimensions) {
+    if (imageDimensions.getWidth() <= 0 || imageDimensions.getHeight() <= 0) {
+      return 1;
+    }
+    return Math.max(1, Math.min(originalWidth / imageDimensions.getWidth(),
+        originalHeight / imageDimensions.getHeight()));
+  }
+
   public BufferedImage resizeImage(BufferedImage inputImage, ImageDimensions imageDimensions, boolean preserveAlpha) {
     int imageType;
     
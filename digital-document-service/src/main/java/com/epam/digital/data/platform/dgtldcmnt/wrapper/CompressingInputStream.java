@@ -0,0 +1,140 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.wrapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * InputStream wrapper that compresses the wrapped stream's contents as they are read, in gzip
+ * (RFC 1952) or zlib (RFC 1950, the deflate content coding) format. Only one buffer of the
+ * configured size is read from the wrapped stream at a time, so the memory usage doesn't depend on
+ * the content length.
+ */
+@NotThreadSafe
+public class CompressingInputStream extends InputStream {
+
+  private static final byte[] GZIP_HEADER = new byte[]{
+      0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+  private static final int GZIP_TRAILER_SIZE = 8;
+
+  private final InputStream is;
+  private final Deflater deflater;
+  private final byte[] buffer;
+  // The CRC-32 of the read content, only calculated for gzip
+  private final CRC32 crc;
+
+  private ByteBuffer pending;
+  private boolean trailerWritten;
+  private boolean closed;
+
+  private CompressingInputStream(InputStream is, int bufferSize, boolean gzip) {
+    this.is = is;
+    this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+    this.buffer = new byte[bufferSize];
+    this.crc = gzip ? new CRC32() : null;
+    this.pending = gzip ? ByteBuffer.wrap(GZIP_HEADER) : ByteBuffer.allocate(0);
+    this.trailerWritten = !gzip;
+  }
+
+  /**
+   * @param is         the stream with the content to be compressed
+   * @param bufferSize the size of the buffer the content is read with
+   * @return stream with the gzip compressed content
+   */
+  public static CompressingInputStream gzip(InputStream is, int bufferSize) {
+    return new CompressingInputStream(is, bufferSize, true);
+  }
+
+  /**
+   * @param is         the stream with the content to be compressed
+   * @param bufferSize the size of the buffer the content is read with
+   * @return stream with the zlib compressed content
+   */
+  public static CompressingInputStream deflate(InputStream is, int bufferSize) {
+    return new CompressingInputStream(is, bufferSize, false);
+  }
+
+  @Override
+  public int read() throws IOException {
+    var b = new byte[1];
+    return read(b, 0, 1) < 0 ? -1 : b[0] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (closed) {
+      throw new IOException("Stream closed");
+    }
+    if (len == 0) {
+      return 0;
+    }
+    while (true) {
+      if (pending.hasRemaining()) {
+        var count = Math.min(len, pending.remaining());
+        pending.get(b, off, count);
+        return count;
+      }
+      if (!deflater.finished()) {
+        if (deflater.needsInput()) {
+          fill();
+        }
+        var count = deflater.deflate(b, off, len);
+        if (count > 0) {
+          return count;
+        }
+        continue;
+      }
+      if (!trailerWritten) {
+        trailerWritten = true;
+        pending = ByteBuffer.allocate(GZIP_TRAILER_SIZE).order(ByteOrder.LITTLE_ENDIAN)
+            .putInt((int) crc.getValue())
+            .putInt((int) deflater.getBytesRead())
+            .flip();
+        continue;
+      }
+      return -1;
+    }
+  }
+
+  private void fill() throws IOException {
+    var count = is.read(buffer);
+    if (count < 0) {
+      deflater.finish();
+      return;
+    }
+    if (crc != null) {
+      crc.update(buffer, 0, count);
+    }
+    deflater.setInput(buffer, 0, count);
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    deflater.end();
+    is.close();
+  }
+}
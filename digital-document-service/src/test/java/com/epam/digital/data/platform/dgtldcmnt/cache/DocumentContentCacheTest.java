@@ -0,0 +1,122 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContent;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
+import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+class DocumentContentCacheTest {
+
+  private final String rootProcessInstanceId = "testProcessInstanceId";
+  private final DocumentContentFactory contentFactory = new DocumentContentFactory(
+      DataSize.ofKilobytes(1), System.getProperty("java.io.tmpdir"));
+
+  private SimpleMeterRegistry meterRegistry;
+  private DocumentContentCache cache;
+
+  @BeforeEach
+  void init() {
+    meterRegistry = new SimpleMeterRegistry();
+    cache = new DocumentContentCache(meterRegistry, Duration.ofMinutes(1),
+        DataSize.ofBytes(4000), DataSize.ofBytes(200));
+  }
+
+  @Test
+  void shouldCacheOnlySmallDocuments() {
+    assertThat(cache.isCacheable(200)).isTrue();
+    assertThat(cache.isCacheable(201)).isFalse();
+    assertThat(cache.isCacheable(-1)).isFalse();
+  }
+
+  @Test
+  void shouldGetCachedDocument() {
+    var metadata = FileMetadataDto.builder().id("id1").build();
+    var content = content(100);
+    cache.put(rootProcessInstanceId, "id1", metadata, content).close();
+
+    var cachedDocument = cache.get(rootProcessInstanceId, "id1");
+
+    assertThat(cachedDocument).isPresent();
+    assertThat(cachedDocument.get().getMetadata()).isSameAs(metadata);
+    assertThat(cachedDocument.get().getContent()).isSameAs(content);
+    assertThat(cache.get(rootProcessInstanceId, "id2")).isEmpty();
+    assertThat(meterRegistry.get("digital-documents.content-cache.size").gauge().value())
+        .isEqualTo(100);
+  }
+
+  @Test
+  void shouldEvictDocumentsAboveTotalSize() {
+    for (int i = 0; i < 50; i++) {
+      put(rootProcessInstanceId, "id" + i, content(200));
+    }
+
+    var cachedSize = meterRegistry.get("digital-documents.content-cache.size").gauge().value();
+    assertThat(cachedSize).isLessThanOrEqualTo(4000);
+    assertThat(cache.get(rootProcessInstanceId, "id0")).isEmpty();
+    assertThat(cache.get(rootProcessInstanceId, "id49")).isPresent();
+  }
+
+  @Test
+  void shouldInvalidateDocumentsOfProcessInstance() {
+    put(rootProcessInstanceId, "id1", content(10));
+    put(rootProcessInstanceId, "id2", content(10));
+    put("otherProcessInstanceId", "id3", content(10));
+
+    cache.invalidate(rootProcessInstanceId, "id1");
+    assertThat(cache.get(rootProcessInstanceId, "id1")).isEmpty();
+    assertThat(cache.get(rootProcessInstanceId, "id2")).isPresent();
+
+    cache.invalidate(rootProcessInstanceId);
+    assertThat(cache.get(rootProcessInstanceId, "id2")).isEmpty();
+    assertThat(cache.get("otherProcessInstanceId", "id3")).isPresent();
+  }
+
+  @Test
+  void shouldDeleteFileOfEvictedDocumentWhenLastReferenceIsClosed() {
+    var content = new DocumentContentFactory(DataSize.ofBytes(10),
+        System.getProperty("java.io.tmpdir")).spool(new ByteArrayInputStream(new byte[100]));
+    put(rootProcessInstanceId, "id1", content);
+    var file = content.getFile().orElseThrow();
+    var reference = cache.get(rootProcessInstanceId, "id1").orElseThrow();
+
+    cache.invalidate(rootProcessInstanceId, "id1");
+
+    assertThat(file).exists();
+    assertThat(cache.get(rootProcessInstanceId, "id1")).isEmpty();
+
+    reference.close();
+
+    assertThat(file).doesNotExist();
+  }
+
+  private void put(String rootProcessInstanceId, String id, DocumentContent content) {
+    cache.put(rootProcessInstanceId, id, FileMetadataDto.builder().build(), content).close();
+  }
+
+  private DocumentContent content(int length) {
+    return contentFactory.spool(new ByteArrayInputStream(new byte[length]));
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class FormFieldsCacheTest {
+
+  private static final String FORM_KEY = "testFormKey";
+
+  @Test
+  void shouldAcceptFilesNotLargerThanAcceptedOne() {
+    var form = cache(Duration.ofMinutes(1)).getForm(FORM_KEY);
+
+    form.fileAccepted("scan", "application/pdf", "scan.pdf", 100);
+    form.fileAccepted("scan", "application/pdf", "scan.PDF", 50);
+
+    assertThat(form.getExistingFields()).containsExactly("scan");
+    assertThat(form.isFileAccepted("scan", "application/pdf", "other.pdf", 100)).isTrue();
+    assertThat(form.isFileAccepted("scan", "application/pdf", "other.pdf", 101)).isFalse();
+    assertThat(form.isFileAccepted("scan", "image/png", "other.png", 10)).isFalse();
+    assertThat(form.isFileAccepted("photo", "application/pdf", "other.pdf", 10)).isFalse();
+  }
+
+  @Test
+  void shouldNotAcceptFilesAfterAcceptedOnesExpired() {
+    var form = cache(Duration.ZERO).getForm(FORM_KEY);
+
+    form.fileAccepted("scan", "application/pdf", "scan.pdf", 100);
+
+    assertThat(form.getExistingFields()).containsExactly("scan");
+    assertThat(form.isFileAccepted("scan", "application/pdf", "other.pdf", 10)).isFalse();
+  }
+
+  @Test
+  void shouldForgetAcceptedFilesOfInvalidatedForm() {
+    var cache = cache(Duration.ofMinutes(1));
+    cache.getForm(FORM_KEY).fileAccepted("scan", "application/pdf", "scan.pdf", 100);
+
+    cache.invalidate(FORM_KEY);
+
+    assertThat(cache.getForm(FORM_KEY).isFileAccepted("scan", "application/pdf", "scan.pdf", 100))
+        .isFalse();
+  }
+
+  private FormFieldsCache cache(Duration acceptedFilesTtl) {
+    return new FormFieldsCache(new SimpleMeterRegistry(), Duration.ofMinutes(10), 10,
+        acceptedFilesTtl);
+  }
+}
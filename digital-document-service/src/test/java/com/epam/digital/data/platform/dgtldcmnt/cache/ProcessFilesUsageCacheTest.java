@@ -0,0 +1,138 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class ProcessFilesUsageCacheTest {
+
+  private final String rootProcessInstanceId = "testProcessInstanceId";
+  private final String formKey = "formKey";
+  private final String fieldName = "testUpload1";
+
+  @Mock
+  private FormDataFileStorageService formDataFileStorageService;
+
+  private ProcessFilesUsageCache cache;
+
+  @BeforeEach
+  void init() {
+    cache = new ProcessFilesUsageCache(formDataFileStorageService, new SimpleMeterRegistry(),
+        Duration.ofMinutes(1), 10, 0.8);
+  }
+
+  @Test
+  void shouldLoadUsageOnceAndUpdateIt() {
+    when(formDataFileStorageService.getMetadata(rootProcessInstanceId)).thenReturn(List.of(
+        buildMetadata("id1", formKey, fieldName, 100L),
+        buildMetadata("id2", formKey, fieldName, 200L),
+        buildMetadata("id3", formKey, "testUpload2", 400L)));
+
+    assertThat(cache.getUsage(rootProcessInstanceId).getUsage(formKey, fieldName)).isEqualTo(300);
+
+    cache.fileAdded(rootProcessInstanceId, "id4", formKey, fieldName, 50);
+    cache.fileAdded(rootProcessInstanceId, "id4", formKey, fieldName, 50);
+    cache.fileRemoved(rootProcessInstanceId, "id1");
+    cache.fileRemoved(rootProcessInstanceId, "id1");
+
+    var usage = cache.getUsage(rootProcessInstanceId);
+    assertThat(usage.getUsage(formKey, fieldName)).isEqualTo(250);
+    assertThat(usage.getUsage(formKey, "testUpload2")).isEqualTo(400);
+    assertThat(usage.getUsage("otherFormKey", fieldName)).isZero();
+    verify(formDataFileStorageService).getMetadata(rootProcessInstanceId);
+  }
+
+  @Test
+  void shouldReloadUsageAfterInvalidation() {
+    when(formDataFileStorageService.getMetadata(rootProcessInstanceId))
+        .thenReturn(List.of(buildMetadata("id1", formKey, fieldName, 100L)), List.of());
+
+    assertThat(cache.getUsage(rootProcessInstanceId).getUsage(formKey, fieldName)).isEqualTo(100);
+    cache.invalidate(rootProcessInstanceId);
+
+    assertThat(cache.getUsage(rootProcessInstanceId).getUsage(formKey, fieldName)).isZero();
+    verify(formDataFileStorageService, times(2)).getMetadata(rootProcessInstanceId);
+  }
+
+  @Test
+  void shouldNotLoadUsageToUpdateIt() {
+    cache.fileAdded(rootProcessInstanceId, "id1", formKey, fieldName, 100);
+    cache.fileRemoved(rootProcessInstanceId, "id1");
+
+    verify(formDataFileStorageService, times(0)).getMetadata(rootProcessInstanceId);
+  }
+
+  @Test
+  void shouldReserveSizeUntilReservationIsClosed() {
+    when(formDataFileStorageService.getMetadata(rootProcessInstanceId)).thenReturn(List.of(
+        buildMetadata("id1", formKey, fieldName, 100L)));
+
+    var reservation = cache.reserve(rootProcessInstanceId, formKey, fieldName, 200, 1000);
+
+    assertThat(reservation).isPresent();
+    assertThat(cache.getUsage(rootProcessInstanceId).getUsage(formKey, fieldName)).isEqualTo(300);
+    assertThat(cache.reserve(rootProcessInstanceId, formKey, fieldName, 701, 1000)).isEmpty();
+
+    reservation.get().close();
+    reservation.get().close();
+
+    assertThat(cache.getUsage(rootProcessInstanceId).getUsage(formKey, fieldName)).isEqualTo(100);
+    assertThat(cache.reserve(rootProcessInstanceId, formKey, fieldName, 900, 1000)).isPresent();
+  }
+
+  @Test
+  void shouldListUsageAgainBeforeReservingCloseToLimit() {
+    when(formDataFileStorageService.getMetadata(rootProcessInstanceId)).thenReturn(
+        List.of(buildMetadata("id1", formKey, fieldName, 100L)),
+        List.of(buildMetadata("id1", formKey, fieldName, 100L),
+            buildMetadata("id2", formKey, fieldName, 600L)));
+
+    var reservation = cache.reserve(rootProcessInstanceId, formKey, fieldName, 100, 1000);
+    assertThat(reservation).isPresent();
+    verify(formDataFileStorageService).getMetadata(rootProcessInstanceId);
+
+    // the document uploaded by the other instance is listed, the own reservation is kept
+    assertThat(cache.reserve(rootProcessInstanceId, formKey, fieldName, 650, 1000)).isEmpty();
+    assertThat(cache.getUsage(rootProcessInstanceId).getUsage(formKey, fieldName)).isEqualTo(800);
+    verify(formDataFileStorageService, times(2)).getMetadata(rootProcessInstanceId);
+  }
+
+  private FileMetadataDto buildMetadata(String id, String formKey, String fieldName,
+      Long contentLength) {
+    return FileMetadataDto.builder()
+        .id(id)
+        .formKey(formKey)
+        .fieldName(fieldName)
+        .contentLength(contentLength)
+        .build();
+  }
+}
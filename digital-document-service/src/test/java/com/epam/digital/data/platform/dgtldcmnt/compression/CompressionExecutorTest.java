@@ -0,0 +1,144 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.compression;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.epam.digital.data.platform.dgtldcmnt.exception.FileCompressionException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+class CompressionExecutorTest {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CountDownLatch release = new CountDownLatch(1);
+
+  private ThreadPoolTaskExecutor executor;
+  private CompressionExecutor compressionExecutor;
+
+  @BeforeEach
+  void init() {
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(1);
+    executor.initialize();
+    compressionExecutor = new CompressionExecutor(executor, meterRegistry,
+        Duration.ofMillis(200));
+  }
+
+  @AfterEach
+  void shutdown() {
+    release.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  void shouldReturnResultOfJob() {
+    var result = compressionExecutor.execute("test", () -> "compressed");
+
+    assertThat(result).contains("compressed");
+    assertThat(meterRegistry.get("digital-documents.compression.run").tag("compressor", "test")
+        .timer().count()).isEqualTo(1);
+    assertThat(meterRegistry.get("digital-documents.compression.queue-wait").timer().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void shouldReturnEmptyIfJobTimedOut() {
+    var result = compressionExecutor.execute("test", () -> {
+      release.await();
+      return "compressed";
+    });
+
+    assertThat(result).isEmpty();
+    assertThat(meterRegistry.get("digital-documents.compression.timeouts").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void shouldCloseResultOfJobCompletedAfterDeadline() throws InterruptedException {
+    var closed = new CountDownLatch(1);
+    var result = compressionExecutor.execute("test", () -> {
+      awaitReleaseUninterruptibly();
+      return (Closeable) closed::countDown;
+    });
+    assertThat(result).isEmpty();
+
+    release.countDown();
+
+    assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void shouldReturnEmptyIfJobRejected() {
+    executor.execute(this::awaitRelease);
+    executor.execute(this::awaitRelease);
+
+    var result = compressionExecutor.execute("test", () -> "compressed");
+
+    assertThat(result).isEmpty();
+    assertThat(meterRegistry.get("digital-documents.compression.rejected").counter().count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  void shouldRethrowRuntimeExceptionOfJob() {
+    assertThrows(FileCompressionException.class, () -> compressionExecutor.execute("test", () -> {
+      throw new FileCompressionException("Unable to read image from input stream");
+    }));
+  }
+
+  @Test
+  void shouldWrapCheckedExceptionOfJob() {
+    var exception = assertThrows(FileCompressionException.class,
+        () -> compressionExecutor.execute("test", () -> {
+          throw new IOException("error");
+        }));
+
+    assertThat(exception).hasCauseInstanceOf(IOException.class);
+  }
+
+  private void awaitReleaseUninterruptibly() {
+    // the job ignores the cancellation the same way a blocking compression does
+    while (true) {
+      try {
+        release.await();
+        return;
+      } catch (InterruptedException e) {
+        // keep waiting
+      }
+    }
+  }
+
+  private void awaitRelease() {
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -17,23 +17,28 @@
 package com.epam.digital.data.platform.dgtldcmnt.compression;
 
 import com.epam.digital.data.platform.dgtldcmnt.dto.ImageCompressorParameters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.pdfbox.cos.COSName;
 import org.apache.pdfbox.pdmodel.PDDocument;
 import org.apache.pdfbox.pdmodel.PDPage;
 import org.apache.pdfbox.pdmodel.PDPageContentStream;
 import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
 import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
 import org.apache.tika.detect.Detector;
 import org.apache.tika.metadata.Metadata;
 import org.apache.tika.mime.MediaType;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.util.unit.DataSize;
 
 import javax.imageio.ImageIO;
@@ -45,12 +50,16 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.lenient;
@@ -65,8 +74,20 @@ class PdfImageCompressorTest {
   private static final int DEFAULT_IMAGE_MAX_HEIGHT = 600;
   private static final int DEFAULT_COMPRESSION_QUALITY = 80;
   private static final DataSize DEFAULT_MIN_COMPRESSIBLE_FILE_SIZE = DataSize.ofBytes(5);
+  private static final int DEFAULT_PARALLELISM = 2;
+  private static final Duration DEFAULT_CPU_BUDGET = Duration.ofMinutes(1);
+  private static final DataSize DEFAULT_MAX_MAIN_MEMORY = DataSize.ofBytes(0);
+  private static final DataSize DEFAULT_MAX_STORAGE = DataSize.ofMegabytes(64);
+  private static final DataSize DEFAULT_MIN_IMAGE_SIZE = DataSize.ofBytes(0);
+  private static final double DEFAULT_MIN_SAVING_RATIO = 0;
+  private static final String SKIPPED_METRIC = "digital-documents.compression.pdf-images.skipped";
+
+  @TempDir
+  Path scratchDirectory;
 
   private PdfImageCompressor compressor;
+  private ThreadPoolTaskExecutor pdfImageExecutor;
+  private SimpleMeterRegistry meterRegistry;
 
   @Mock
   private Detector defaultDetector;
@@ -76,12 +97,13 @@ class PdfImageCompressorTest {
 
   @BeforeEach
   void setUp() throws IOException {
-    compressor = new PdfImageCompressor(
-        defaultDetector,
-        DEFAULT_IMAGE_MAX_WIDTH,
-        DEFAULT_IMAGE_MAX_HEIGHT,
-        DEFAULT_COMPRESSION_QUALITY,
-        DEFAULT_MIN_COMPRESSIBLE_FILE_SIZE);
+    pdfImageExecutor = new ThreadPoolTaskExecutor();
+    pdfImageExecutor.setCorePoolSize(DEFAULT_PARALLELISM);
+    pdfImageExecutor.setMaxPoolSize(DEFAULT_PARALLELISM);
+    pdfImageExecutor.initialize();
+    meterRegistry = new SimpleMeterRegistry();
+
+    compressor = createCompressor(DEFAULT_CPU_BUDGET, DEFAULT_MAX_STORAGE, DEFAULT_MIN_IMAGE_SIZE, DEFAULT_MIN_SAVING_RATIO);
 
     // Configure mock behavior for detector to detect PDF files
     lenient().when(defaultDetector.detect(any(InputStream.class), any(Metadata.class)))
@@ -92,6 +114,11 @@ class PdfImageCompressorTest {
         .thenAnswer(invocation -> invocation.getArgument(1));
   }
 
+  @AfterEach
+  void tearDown() {
+    pdfImageExecutor.shutdown();
+  }
+
   @Test
   @DisplayName("Should successfully compress PDF with embedded images")
   void testCompressPdfWithEmbeddedImages() throws IOException {
@@ -234,6 +261,128 @@ class PdfImageCompressorTest {
     }
   }
 
+  @Test
+  @DisplayName("Should compress images of multiple pages in parallel")
+  void testCompressPdfWithManyPagesInParallel() throws IOException {
+    int pageCount = 10;
+    var pdfData = createMultiPagePdfWithImages(pageCount);
+    var pdfInput = new BufferedInputStream(new ByteArrayInputStream(pdfData));
+
+    var compressedPdf = compressor.compress(FILE_NAME, pdfInput, ImageCompressorParameters.builder()
+        .imageMaxWidth(400)
+        .imageMaxHeight(300)
+        .build());
+
+    try (PDDocument compressedDoc = PDDocument.load(compressedPdf)) {
+      List<BufferedImage> extractedImages = extractImagesFromPdf(compressedDoc);
+      assertEquals(pageCount, extractedImages.size());
+      for (BufferedImage image : extractedImages) {
+        assertEquals(400, image.getWidth());
+        assertEquals(300, image.getHeight());
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Should leave images uncompressed when CPU budget is used up")
+  void testCompressPdfWithUsedUpCpuBudget() throws IOException {
+    compressor = createCompressor(Duration.ZERO, DEFAULT_MAX_STORAGE, DEFAULT_MIN_IMAGE_SIZE, DEFAULT_MIN_SAVING_RATIO);
+    int originalWidth = 1000;
+    int originalHeight = 800;
+    var pdfData = createPdfWithImage(originalWidth, originalHeight);
+    var pdfInput = new BufferedInputStream(new ByteArrayInputStream(pdfData));
+
+    var compressedPdf = compressor.compress(FILE_NAME, pdfInput, ImageCompressorParameters.builder().build());
+
+    try (PDDocument compressedDoc = PDDocument.load(compressedPdf)) {
+      List<BufferedImage> extractedImages = extractImagesFromPdf(compressedDoc);
+      assertEquals(1, extractedImages.size());
+      assertEquals(originalWidth, extractedImages.get(0).getWidth());
+      assertEquals(originalHeight, extractedImages.get(0).getHeight());
+    }
+    assertEquals(1, meterRegistry.get(SKIPPED_METRIC).tag("reason", "cpu-budget").counter().count());
+  }
+
+  @Test
+  @DisplayName("Should decode JPEG images without the document and the others with it")
+  void testCompressPdfWithJpegAndLosslessImages() throws IOException {
+    var jpegPdf = compressor.compress(FILE_NAME, new BufferedInputStream(new ByteArrayInputStream(createPdfWithImage(1000, 800))),
+        ImageCompressorParameters.builder().build());
+    var losslessPdf = compressor.compress(FILE_NAME, new BufferedInputStream(new ByteArrayInputStream(createPdfWithLosslessImage(1000, 800))),
+        ImageCompressorParameters.builder().build());
+
+    assertEquals(750, extractFirstImageWidth(jpegPdf));
+    assertEquals(750, extractFirstImageWidth(losslessPdf));
+  }
+
+  @Test
+  @DisplayName("Should leave images smaller than minimum size uncompressed")
+  void testCompressPdfWithSmallImage() throws IOException {
+    compressor = createCompressor(DEFAULT_CPU_BUDGET, DEFAULT_MAX_STORAGE, DataSize.ofMegabytes(1), DEFAULT_MIN_SAVING_RATIO);
+    var pdfData = createPdfWithImage(1000, 800);
+
+    var compressedPdf = compressor.compress(FILE_NAME, new BufferedInputStream(new ByteArrayInputStream(pdfData)),
+        ImageCompressorParameters.builder().build());
+
+    assertEquals(1000, extractFirstImageWidth(compressedPdf));
+    assertEquals(1, meterRegistry.get(SKIPPED_METRIC).tag("reason", "small").counter().count());
+  }
+
+  @Test
+  @DisplayName("Should leave bi-level images uncompressed")
+  void testCompressPdfWithBilevelImage() throws IOException {
+    var pdfData = createPdfWithBilevelImage(1000, 800);
+
+    var compressedPdf = compressor.compress(FILE_NAME, new BufferedInputStream(new ByteArrayInputStream(pdfData)),
+        ImageCompressorParameters.builder().build());
+
+    assertEquals(1000, extractFirstImageWidth(compressedPdf));
+    assertEquals(1, meterRegistry.get(SKIPPED_METRIC).tag("reason", "bilevel").counter().count());
+  }
+
+  @Test
+  @DisplayName("Should leave images with low predicted saving uncompressed")
+  void testCompressPdfWithLowPredictedSaving() throws IOException {
+    // resizing 1000x800 to 750x600 is predicted to save less than a half of the image
+    compressor = createCompressor(DEFAULT_CPU_BUDGET, DEFAULT_MAX_STORAGE, DEFAULT_MIN_IMAGE_SIZE, 0.5);
+    var pdfData = createPdfWithImage(1000, 800);
+
+    var compressedPdf = compressor.compress(FILE_NAME, new BufferedInputStream(new ByteArrayInputStream(pdfData)),
+        ImageCompressorParameters.builder().build());
+
+    assertEquals(1000, extractFirstImageWidth(compressedPdf));
+    assertEquals(1, meterRegistry.get(SKIPPED_METRIC).tag("reason", "low-saving").counter().count());
+  }
+
+  @Test
+  @DisplayName("Should delete temporary file of compressed PDF when its stream is closed")
+  void testCompressedPdfTemporaryFileDeleted() throws IOException {
+    var pdfData = createPdfWithImage(1000, 800);
+    var pdfInput = new BufferedInputStream(new ByteArrayInputStream(pdfData));
+
+    var compressedPdf = compressor.compress(FILE_NAME, pdfInput, ImageCompressorParameters.builder().build());
+    try (PDDocument compressedDoc = PDDocument.load(compressedPdf)) {
+      assertEquals(1, extractImagesFromPdf(compressedDoc).size());
+    }
+    compressedPdf.close();
+
+    try (var files = Files.list(scratchDirectory)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  @DisplayName("Should preserve PDF exceeding scratch storage")
+  void testCompressPdfExceedingScratchStorage() throws IOException {
+    var pdfData = createPdfWithImage(1000, 800);
+    compressor = createCompressor(DEFAULT_CPU_BUDGET, DataSize.ofBytes(pdfData.length - 1), DEFAULT_MIN_IMAGE_SIZE, DEFAULT_MIN_SAVING_RATIO);
+    var pdfInput = new BufferedInputStream(new ByteArrayInputStream(pdfData));
+
+    var compressedPdf = compressor.compress(FILE_NAME, pdfInput, ImageCompressorParameters.builder().build());
+
+    assertSame(pdfInput, compressedPdf);
+  }
+
   @ParameterizedTest
   @ValueSource(strings = {"document.pdf", "report.PDF", "file.pDf"})
   @DisplayName("Should return true for valid PDF file extensions")
@@ -273,6 +422,70 @@ class PdfImageCompressorTest {
     assertFalse(compressor.canCompress(filename,fileSize, inputStream));
   }
 
+  private PdfImageCompressor createCompressor(Duration cpuBudget, DataSize maxStorage,
+      DataSize minImageSize, double minSavingRatio) {
+    return new PdfImageCompressor(
+        defaultDetector,
+        DEFAULT_IMAGE_MAX_WIDTH,
+        DEFAULT_IMAGE_MAX_HEIGHT,
+        DEFAULT_COMPRESSION_QUALITY,
+        DEFAULT_MIN_COMPRESSIBLE_FILE_SIZE,
+        pdfImageExecutor,
+        meterRegistry,
+        DEFAULT_PARALLELISM,
+        cpuBudget,
+        DEFAULT_MAX_MAIN_MEMORY,
+        maxStorage,
+        scratchDirectory.toString(),
+        minImageSize,
+        minSavingRatio);
+  }
+
+  private int extractFirstImageWidth(InputStream pdf) throws IOException {
+    try (PDDocument document = PDDocument.load(pdf)) {
+      return extractImagesFromPdf(document).get(0).getWidth();
+    }
+  }
+
+  /**
+   * Helper method to create a test PDF with a single embedded black-and-white image.
+   */
+  private byte[] createPdfWithBilevelImage(int imageWidth, int imageHeight) throws IOException {
+    try (PDDocument document = new PDDocument()) {
+      PDPage page = new PDPage();
+      document.addPage(page);
+
+      BufferedImage bufferedImage = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_BYTE_BINARY);
+      PDImageXObject pdImage = LosslessFactory.createFromImage(document, bufferedImage);
+      try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+        contentStream.drawImage(pdImage, 0, 0);
+      }
+
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      document.save(outputStream);
+      return outputStream.toByteArray();
+    }
+  }
+
+  /**
+   * Helper method to create a test PDF with a single embedded Flate encoded image.
+   */
+  private byte[] createPdfWithLosslessImage(int imageWidth, int imageHeight) throws IOException {
+    try (PDDocument document = new PDDocument()) {
+      PDPage page = new PDPage();
+      document.addPage(page);
+
+      PDImageXObject pdImage = LosslessFactory.createFromImage(document, createTestImage(imageWidth, imageHeight));
+      try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+        contentStream.drawImage(pdImage, 0, 0);
+      }
+
+      ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+      document.save(outputStream);
+      return outputStream.toByteArray();
+    }
+  }
+
   /**
    * Helper method to create a test PDF with a single embedded image.
    */
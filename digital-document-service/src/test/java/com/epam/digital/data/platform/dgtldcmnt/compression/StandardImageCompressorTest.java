@@ -239,6 +239,48 @@ class StandardImageCompressorTest {
     verifyImageContentPreserved(originalImage, compressedImage);
   }
 
+  @Test
+  @DisplayName("Should decode large image with subsampling to target size")
+  void shouldDecodeLargeImageWithSubsampling() throws Exception {
+    // given
+    BufferedImage originalImage = createTestImage(4100, 3075);
+    var fileData = convertToInputStream(originalImage);
+
+    // when
+    var compressedData = imageCompressor.compress(FILE_NAME, fileData, ImageCompressorParameters.builder().build());
+
+    // then
+    BufferedImage compressedImage = ImageIO.read(compressedData);
+    assertNotNull(compressedImage);
+    assertEquals(DEFAULT_MAX_WIDTH, compressedImage.getWidth());
+    assertEquals(DEFAULT_MAX_HEIGHT, compressedImage.getHeight());
+
+    verifyImageContentPreserved(originalImage, compressedImage);
+  }
+
+  @Test
+  @DisplayName("Should decode large PNG image with subsampling to target size")
+  void shouldDecodeLargePngImageWithSubsampling() throws Exception {
+    // given
+    when(defaultDetector.detect(any(InputStream.class), any(Metadata.class)))
+        .thenReturn(MediaType.parse("image/png"));
+    BufferedImage originalImage = createTestImage(3000, 2250);
+    ByteArrayOutputStream os = new ByteArrayOutputStream();
+    ImageIO.write(originalImage, "png", os);
+    var fileData = new BufferedInputStream(new ByteArrayInputStream(os.toByteArray()));
+
+    // when
+    var compressedData = imageCompressor.compress("test.png", fileData, ImageCompressorParameters.builder().build());
+
+    // then
+    BufferedImage compressedImage = ImageIO.read(compressedData);
+    assertNotNull(compressedImage);
+    assertEquals(DEFAULT_MAX_WIDTH, compressedImage.getWidth());
+    assertEquals(DEFAULT_MAX_HEIGHT, compressedImage.getHeight());
+
+    verifyImageContentPreserved(originalImage, compressedImage);
+  }
+
   @ParameterizedTest
   @DisplayName("Should validate supported file extensions")
   @ValueSource(strings = {"image.jpg", "image.jpeg", "image.png"})
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.content;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.unit.DataSize;
+
+class ContentEncodingNegotiatorTest {
+
+  private final ContentEncodingNegotiator negotiator = new ContentEncodingNegotiator(true,
+      List.of("text/csv"), DataSize.ofKilobytes(1), DataSize.ofKilobytes(8));
+
+  @Test
+  void shouldPreferGzipForSameQuality() {
+    assertThat(negotiator.getAcceptedEncodings(headers("deflate, gzip, br")))
+        .containsExactly("gzip", "deflate");
+  }
+
+  @Test
+  void shouldOrderEncodingsByQuality() {
+    assertThat(negotiator.getAcceptedEncodings(headers("gzip;q=0.5, deflate;q=0.8")))
+        .containsExactly("deflate", "gzip");
+  }
+
+  @Test
+  void shouldExcludeRejectedEncodings() {
+    assertThat(negotiator.getAcceptedEncodings(headers("*, gzip;q=0")))
+        .containsExactly("deflate");
+  }
+
+  @Test
+  void shouldIgnoreMalformedQuality() {
+    assertThat(negotiator.getAcceptedEncodings(headers("gzip;q=abc, deflate")))
+        .containsExactly("deflate");
+  }
+
+  @Test
+  void shouldNotEncodeWithoutAcceptEncoding() {
+    assertThat(negotiator.getAcceptedEncodings(new HttpHeaders())).isEmpty();
+  }
+
+  @Test
+  void shouldNotEncodeIfDisabled() {
+    var disabled = new ContentEncodingNegotiator(false, List.of("text/csv"),
+        DataSize.ofKilobytes(1), DataSize.ofKilobytes(8));
+
+    assertThat(disabled.getAcceptedEncodings(headers("gzip"))).isEmpty();
+    assertThat(disabled.isCompressible("text/csv", 10_000)).isFalse();
+  }
+
+  @Test
+  void shouldCompressOnlyLargeEnoughDocumentsOfCompressibleTypes() {
+    assertThat(negotiator.isCompressible("text/csv", 10_000)).isTrue();
+    assertThat(negotiator.isCompressible("text/csv;charset=UTF-8", 10_000)).isTrue();
+    assertThat(negotiator.isCompressible("text/csv", 100)).isFalse();
+    assertThat(negotiator.isCompressible("application/pdf", 10_000)).isFalse();
+    assertThat(negotiator.isCompressible("invalid", 10_000)).isFalse();
+  }
+
+  private static HttpHeaders headers(String acceptEncoding) {
+    var headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+    return headers;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.content;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+class DocumentContentFactoryTest {
+
+  @TempDir
+  Path directory;
+
+  private DocumentContentFactory factory;
+
+  @BeforeEach
+  void init() {
+    factory = new DocumentContentFactory(DataSize.ofBytes(16), directory.toString());
+  }
+
+  @Test
+  void shouldKeepSmallContentInMemory() throws IOException {
+    var data = new byte[]{1, 2, 3};
+
+    try (var content = factory.spool(new ByteArrayInputStream(data))) {
+      assertThat(content.isSpooled()).isFalse();
+      assertThat(content.getLength()).isEqualTo(data.length);
+      assertThat(content.getChecksum()).isEqualTo(DigestUtils.sha256Hex(data));
+      assertThat(content.newInputStream().readAllBytes()).isEqualTo(data);
+    }
+    assertThat(Files.list(directory)).isEmpty();
+  }
+
+  @Test
+  void shouldSpoolLargeContentToFile() throws IOException {
+    var data = new byte[100];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+
+    try (var content = factory.spool(new ByteArrayInputStream(data))) {
+      assertThat(content.isSpooled()).isTrue();
+      assertThat(content.getLength()).isEqualTo(data.length);
+      assertThat(content.getChecksum()).isEqualTo(DigestUtils.sha256Hex(data));
+      assertThat(content.newInputStream().readAllBytes()).isEqualTo(data);
+      assertThat(Files.list(directory)).hasSize(1);
+    }
+    assertThat(Files.list(directory)).isEmpty();
+  }
+
+  @Test
+  void shouldResetToMarkWithoutReadLimit() throws IOException {
+    var data = new byte[100];
+    data[50] = 42;
+
+    try (var content = factory.spool(new ByteArrayInputStream(data))) {
+      var inputStream = content.newInputStream();
+      assertThat(inputStream.skip(50)).isEqualTo(50);
+      inputStream.mark(1);
+      assertThat(inputStream.readAllBytes()).hasSize(50);
+      inputStream.reset();
+
+      assertThat(inputStream.available()).isEqualTo(50);
+      assertThat(inputStream.read()).isEqualTo(42);
+    }
+  }
+
+  @Test
+  void shouldReadRegionOfSpooledContent() throws IOException {
+    var data = new byte[20000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * 31);
+    }
+
+    try (var content = factory.spool(new ByteArrayInputStream(data));
+        var inputStream = content.newInputStream(100, 19000)) {
+      var read = new byte[19000];
+      for (int i = 0; i < 10; i++) {
+        read[i] = (byte) inputStream.read();
+      }
+      assertThat(inputStream.read(read, 10, 90)).isEqualTo(90);
+      assertThat(inputStream.readNBytes(read, 100, 18900)).isEqualTo(18900);
+
+      assertThat(read).isEqualTo(Arrays.copyOfRange(data, 100, 19100));
+      assertThat(inputStream.read()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  void shouldReadSpooledContentAfterOtherReaderHasBeenInterrupted() throws IOException {
+    var data = new byte[100];
+    data[99] = 42;
+
+    try (var content = factory.spool(new ByteArrayInputStream(data))) {
+      var interruptedInputStream = content.newInputStream();
+      Thread.currentThread().interrupt();
+      try {
+        assertThrows(IOException.class, interruptedInputStream::read);
+      } finally {
+        Thread.interrupted();
+      }
+
+      assertThat(content.newInputStream().readAllBytes()).isEqualTo(data);
+      assertThat(interruptedInputStream.readAllBytes()).isEqualTo(data);
+    }
+    assertThat(Files.list(directory)).isEmpty();
+  }
+}
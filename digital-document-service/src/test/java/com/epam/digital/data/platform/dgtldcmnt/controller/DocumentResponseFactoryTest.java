@@ -0,0 +1,244 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties.ContentConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.content.ContentEncodingNegotiator;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentRegionDto;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import javax.servlet.ServletRequestEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+
+class DocumentResponseFactoryTest {
+
+  private static final byte[] DATA = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+  private final DocumentResponseFactory factory = new DocumentResponseFactory(
+      new DigitalDocumentsConfigurationProperties(null, null,
+          new ContentConfigurationProperties("attachment")), null,
+      new ContentEncodingNegotiator(true, List.of("text/csv"), DataSize.ofBytes(4),
+          DataSize.ofBytes(4)));
+  private final List<String> openedRegions = new ArrayList<>();
+  private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+  @Test
+  void shouldIgnoreMalformedRange() {
+    var headers = new HttpHeaders();
+    headers.set(HttpHeaders.RANGE, "bytes=a-b");
+
+    assertThat(factory.getRanges(headers)).isEmpty();
+  }
+
+  @Test
+  void shouldReturnWholeDocument() throws IOException {
+    var document = DocumentDto.builder().name("test.txt").contentType("text/plain")
+        .size(DATA.length).checksum("abc").content(new ByteArrayInputStream(DATA)).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getHeaders().getETag()).isEqualTo("\"abc\"");
+    assertThat(response.getHeaders().getCacheControl()).isEqualTo("no-cache, private");
+    assertThat(response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(DATA.length);
+    assertThat(response.getBody().getInputStream().readAllBytes()).isEqualTo(DATA);
+  }
+
+  @Test
+  void shouldCompressWholeCompressibleDocument() throws IOException {
+    request.addHeader(HttpHeaders.ACCEPT_ENCODING, "deflate;q=0.5, gzip");
+    var document = DocumentDto.builder().name("test.csv").contentType("text/csv")
+        .size(DATA.length).checksum("abc").content(new ByteArrayInputStream(DATA)).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    assertThat(response.getHeaders().getETag()).isEqualTo("W/\"abc\"");
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(-1);
+    assertThat(new GZIPInputStream(response.getBody().getInputStream()).readAllBytes())
+        .isEqualTo(DATA);
+  }
+
+  @Test
+  void shouldNotCompressIfEncodingNotAccepted() throws IOException {
+    request.addHeader(HttpHeaders.ACCEPT_ENCODING, "br, gzip;q=0");
+    var document = DocumentDto.builder().name("test.csv").contentType("text/csv")
+        .size(DATA.length).checksum("abc").content(new ByteArrayInputStream(DATA)).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT_ENCODING);
+    assertThat(response.getHeaders().getETag()).isEqualTo("\"abc\"");
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(DATA.length);
+    assertThat(response.getBody().getInputStream().readAllBytes()).isEqualTo(DATA);
+  }
+
+  @Test
+  void shouldNotCompressRanges() throws IOException {
+    request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+    var document = DocumentDto.builder().name("test.csv").contentType("text/csv")
+        .size(DATA.length).regions(List.of(region(2, 4))).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+    assertThat(response.getBody().getInputStream().readAllBytes())
+        .isEqualTo("234".getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  void shouldSendStoredEncodedVariantAsIs() throws IOException {
+    var encoded = new byte[]{1, 2, 3};
+    var document = DocumentDto.builder().name("test.csv").contentType("text/csv")
+        .size(DATA.length).checksum("abc").content(new ByteArrayInputStream(encoded))
+        .contentEncoding("gzip").encodedSize(encoded.length).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(encoded.length);
+    assertThat(response.getBody().getInputStream().readAllBytes()).isEqualTo(encoded);
+  }
+
+  @Test
+  void shouldReturnNotModifiedWithoutBody() {
+    var document = DocumentDto.builder().name("test.txt").contentType("text/plain")
+        .size(DATA.length).checksum("abc").notModified(true).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    assertThat(response.getHeaders().getETag()).isEqualTo("\"abc\"");
+    assertThat(response.getBody()).isNull();
+  }
+
+  @Test
+  void shouldRedirectToStorage() throws MalformedURLException {
+    var document = DocumentDto.builder().name("test.txt").contentType("text/plain")
+        .size(DATA.length).checksum("abc")
+        .redirectUrl(new URL("http://ceph/bucket/key?X-Amz-Signature=abc")).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.TEMPORARY_REDIRECT);
+    assertThat(response.getHeaders().getLocation())
+        .hasToString("http://ceph/bucket/key?X-Amz-Signature=abc");
+    assertThat(response.getHeaders().getCacheControl()).isEqualTo("no-store");
+    assertThat(response.getBody()).isNull();
+  }
+
+  @Test
+  void shouldReturnSingleRange() throws IOException {
+    var document = DocumentDto.builder().name("test.txt").contentType("text/plain")
+        .size(DATA.length).regions(List.of(region(2, 4))).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+    assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE))
+        .isEqualTo("bytes 2-4/10");
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(3);
+    assertThat(response.getBody().getInputStream().readAllBytes())
+        .isEqualTo("234".getBytes(StandardCharsets.US_ASCII));
+  }
+
+  @Test
+  void shouldStreamCachedContentEvenIfSendfileSupported() throws IOException {
+    request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+    var document = DocumentDto.builder().name("test.txt").contentType("text/plain")
+        .size(DATA.length).content(new ByteArrayInputStream(DATA))
+        .contentReference(mock(AutoCloseable.class)).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getBody().getInputStream().readAllBytes()).isEqualTo(DATA);
+    assertThat(request.getAttribute("org.apache.tomcat.sendfile.filename")).isNull();
+  }
+
+  @Test
+  void shouldReleaseContentReferenceWhenRequestIsDestroyed() throws Exception {
+    var contentReference = mock(AutoCloseable.class);
+    var document = DocumentDto.builder().name("test.txt").contentType("text/plain")
+        .size(DATA.length).content(new ByteArrayInputStream(DATA))
+        .contentReference(contentReference).build();
+
+    factory.toResponse(document, request);
+    new ContentReferenceReleaser().requestDestroyed(
+        new ServletRequestEvent(request.getServletContext(), request));
+
+    verify(contentReference).close();
+  }
+
+  @Test
+  void shouldReturnMultipleRangesAsMultipartOnDemand() throws IOException {
+    var document = DocumentDto.builder().name("test.txt").contentType("text/plain")
+        .size(DATA.length).regions(List.of(region(0, 1), region(8, 9))).build();
+
+    var response = factory.toResponse(document, request);
+
+    assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+    var contentType = response.getHeaders().getContentType();
+    assertThat(contentType.toString()).startsWith("multipart/byteranges");
+    var boundary = contentType.getParameter("boundary");
+    assertThat(openedRegions).isEmpty();
+
+    var body = response.getBody().getInputStream().readAllBytes();
+
+    assertThat(openedRegions).containsExactly("0-1", "8-9");
+    assertThat(response.getHeaders().getContentLength()).isEqualTo(body.length);
+    assertThat(new String(body, StandardCharsets.US_ASCII)).isEqualTo(
+        "\r\n--" + boundary + "\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "Content-Range: bytes 0-1/10\r\n\r\n"
+            + "01"
+            + "\r\n--" + boundary + "\r\n"
+            + "Content-Type: text/plain\r\n"
+            + "Content-Range: bytes 8-9/10\r\n\r\n"
+            + "89"
+            + "\r\n--" + boundary + "--\r\n");
+  }
+
+  private DocumentRegionDto region(int start, int end) {
+    return DocumentRegionDto.builder().start(start).end(end)
+        .content(() -> {
+          openedRegions.add(start + "-" + end);
+          return new ByteArrayInputStream(DATA, start, end - start + 1);
+        })
+        .build();
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.facade;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.bpms.api.dto.DdmSignableTaskDto;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentInputStream;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentMetadataDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
+import com.epam.digital.data.platform.dgtldcmnt.mapper.DocumentMetadataDtoMapper;
+import com.epam.digital.data.platform.dgtldcmnt.service.AuthorizationService;
+import com.epam.digital.data.platform.dgtldcmnt.service.DirectUploadService;
+import com.epam.digital.data.platform.dgtldcmnt.service.DocumentArchiveService;
+import com.epam.digital.data.platform.dgtldcmnt.service.DocumentService;
+import com.epam.digital.data.platform.dgtldcmnt.service.TaskService;
+import com.epam.digital.data.platform.dgtldcmnt.service.UploadMemoryBudget;
+import com.epam.digital.data.platform.dgtldcmnt.service.ValidationService;
+import com.epam.digital.data.platform.dgtldcmnt.validator.RemoteFileSizeValidator;
+import com.epam.digital.data.platform.integration.ceph.exception.CephCommunicationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentFacadeTest {
+
+  private final String rootProcessInstanceId = "testProcessInstanceId";
+  private final String taskId = "testTaskId";
+  private final String fieldName = "testUpload1";
+  private final String formKey = "testFormKey";
+
+  @Mock
+  private DocumentService documentService;
+  @Mock
+  private DocumentArchiveService documentArchiveService;
+  @Mock
+  private DirectUploadService directUploadService;
+  @Mock
+  private AuthorizationService authorizationService;
+  @Mock
+  private ValidationService validationService;
+  @Mock
+  private TaskService taskService;
+  @Mock
+  private UploadMemoryBudget uploadMemoryBudget;
+  @Mock
+  private RemoteFileSizeValidator fileSizeValidator;
+  @Mock
+  private DocumentMetadataDtoMapper mapper;
+  @Mock
+  private Authentication authentication;
+
+  private final CountDownLatch release = new CountDownLatch(1);
+  private ThreadPoolTaskExecutor remoteCallExecutor;
+  private DocumentFacade documentFacade;
+
+  @BeforeEach
+  void init() {
+    remoteCallExecutor = new ThreadPoolTaskExecutor();
+    remoteCallExecutor.setCorePoolSize(1);
+    remoteCallExecutor.setMaxPoolSize(1);
+    remoteCallExecutor.setQueueCapacity(0);
+    remoteCallExecutor.setRejectedExecutionHandler(new CallerRunsPolicy());
+    remoteCallExecutor.initialize();
+    documentFacade = new DocumentFacade(documentService, documentArchiveService,
+        directUploadService, authorizationService, validationService, taskService,
+        uploadMemoryBudget, new DocumentContentFactory(DataSize.ofKilobytes(1),
+            System.getProperty("java.io.tmpdir")), fileSizeValidator, mapper, remoteCallExecutor);
+  }
+
+  @AfterEach
+  void shutdown() {
+    release.countDown();
+    remoteCallExecutor.shutdown();
+  }
+
+  @Test
+  void shouldPutAuthorizedAndValidatedDocument() {
+    var task = task();
+    when(taskService.getTask(taskId)).thenReturn(task);
+    var uploadDto = uploadDocumentDto();
+    var metadata = DocumentMetadataDto.builder().id("testId").build();
+    when(documentService.put(uploadDto)).thenAnswer(invocation -> {
+      assertThat(uploadDto.getFileInputStream()).isInstanceOf(DocumentContentInputStream.class);
+      return metadata;
+    });
+
+    var result = documentFacade.validateAndPut(uploadDto, authentication);
+
+    assertThat(result).isSameAs(metadata);
+    assertThat(uploadDto.getFormKey()).isEqualTo(formKey);
+    verify(validationService).validateFileField(uploadDto);
+    verify(validationService).getFilesUsage(rootProcessInstanceId);
+    verify(validationService).reserveTotalFilesSize(uploadDto);
+    verify(uploadMemoryBudget).reserve(uploadDto.getSize());
+  }
+
+  @Test
+  void shouldNotLoadFilesUsageIfUploadIsNotAuthorized() throws IOException {
+    var task = task();
+    when(taskService.getTask(taskId)).thenReturn(task);
+    when(taskService.getFreshTask(taskId)).thenReturn(task);
+    doThrow(new AccessDeniedException("Access denied")).when(authorizationService)
+        .authorize(rootProcessInstanceId, List.of(fieldName), task, authentication);
+    var uploadDto = uploadDocumentDto();
+
+    var inputStream = uploadDto.getFileInputStream();
+
+    assertThrows(AccessDeniedException.class,
+        () -> documentFacade.validateAndPut(uploadDto, authentication));
+
+    assertThat(inputStream.available()).isEqualTo(1000);
+    verify(validationService, never()).getFilesUsage(anyString());
+    verifyNoInteractions(documentService);
+  }
+
+  @Test
+  void shouldRethrowExceptionOfFilesUsageLoading() {
+    var task = task();
+    when(taskService.getTask(taskId)).thenReturn(task);
+    when(validationService.getFilesUsage(rootProcessInstanceId))
+        .thenThrow(new CephCommunicationException("Failed", null));
+    var uploadDto = uploadDocumentDto();
+
+    assertThrows(CephCommunicationException.class,
+        () -> documentFacade.validateAndPut(uploadDto, authentication));
+
+    verifyNoInteractions(documentService);
+  }
+
+  @Test
+  void shouldLoadFilesUsageInRequestThreadIfExecutorIsSaturated() {
+    remoteCallExecutor.execute(this::awaitRelease);
+    var task = task();
+    when(taskService.getTask(taskId)).thenReturn(task);
+    var usageThread = new AtomicReference<Thread>();
+    when(validationService.getFilesUsage(rootProcessInstanceId)).thenAnswer(invocation -> {
+      usageThread.set(Thread.currentThread());
+      return null;
+    });
+    when(documentService.put(any())).thenReturn(DocumentMetadataDto.builder().build());
+
+    documentFacade.validateAndPut(uploadDocumentDto(), authentication);
+
+    assertThat(usageThread.get()).isSameAs(Thread.currentThread());
+  }
+
+  private DdmSignableTaskDto task() {
+    var task = new DdmSignableTaskDto();
+    task.setId(taskId);
+    task.setFormKey(formKey);
+    task.setRootProcessInstanceId(rootProcessInstanceId);
+    return task;
+  }
+
+  private UploadDocumentFromUserFormDto uploadDocumentDto() {
+    return UploadDocumentFromUserFormDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .taskId(taskId)
+        .fieldName(fieldName)
+        .contentType("application/pdf")
+        .filename("test.pdf")
+        .size(1000L)
+        .fileInputStream(new ByteArrayInputStream(new byte[1000]))
+        .build();
+  }
+
+  private void awaitRelease() {
+    try {
+      release.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -20,22 +20,41 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.amazonaws.services.s3.model.S3Object;
+import com.epam.digital.data.platform.dgtldcmnt.cache.DocumentContentCache;
+import com.epam.digital.data.platform.dgtldcmnt.cache.ProcessFilesUsageCache;
+import com.epam.digital.data.platform.dgtldcmnt.compression.CompressionExecutor;
+import com.epam.digital.data.platform.dgtldcmnt.content.ContentEncodingNegotiator;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentIdDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.GetDocumentDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.GetDocumentsMetadataDto;
 import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
+import com.epam.digital.data.platform.dgtldcmnt.exception.RangeNotSatisfiableException;
 import com.epam.digital.data.platform.dgtldcmnt.mapper.DocumentMetadataDtoMapper;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephDocumentReader;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephDirectUploadStorage;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephEncodedVariantStorage;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephMultipartUploader;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephPresignedUrlGenerator;
 import com.epam.digital.data.platform.storage.file.dto.FileDataDto;
 import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
 import com.epam.digital.data.platform.storage.file.exception.FileNotFoundException;
 import com.epam.digital.data.platform.storage.file.service.FormDataFileStorageService;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
+import java.net.URL;
+import java.time.Duration;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -45,6 +64,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpRange;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.util.UriComponentsBuilder;
 
 @ExtendWith(MockitoExtension.class)
@@ -52,9 +73,24 @@ class CephDocumentServiceTest {
 
   @Mock
   private FormDataFileStorageService fromDataFileStorageService;
+  @Mock
+  private CephMultipartUploader multipartUploader;
+  @Mock
+  private CephDocumentReader documentReader;
+  @Mock
+  private CephPresignedUrlGenerator presignedUrlGenerator;
+  @Mock
+  private CephEncodedVariantStorage encodedVariantStorage;
+  @Mock
+  private CephDirectUploadStorage directUploadStorage;
+  @Mock
+  private ProcessFilesUsageCache processFilesUsageCache;
+  @Mock
+  private CompressionExecutor compressionExecutor;
   @Spy
   private DocumentMetadataDtoMapper mapper = Mappers.getMapper(DocumentMetadataDtoMapper.class);
 
+  private DocumentContentCache documentContentCache;
   private DocumentService service;
 
   private final String key = "testKey";
@@ -66,10 +102,21 @@ class CephDocumentServiceTest {
   private final String originRequestUrl = "test.com";
   private final Long contentLength = 1000L;
   private final byte[] data = new byte[]{1};
+  // sha256 of the data above
+  private final String checksum =
+      "4bf5122f344554c53bde2ebb8cd2b7e3d1600ad631c385a5d7cce23c7785459a";
 
   @BeforeEach
   public void init() {
-    service = new CephDocumentService(fromDataFileStorageService, mapper, List.of());
+    documentContentCache = new DocumentContentCache(new SimpleMeterRegistry(),
+        Duration.ofMinutes(1), DataSize.ofKilobytes(10), DataSize.ofKilobytes(2));
+    service = new CephDocumentService(fromDataFileStorageService, mapper,
+        new DocumentContentFactory(DataSize.ofKilobytes(1), System.getProperty("java.io.tmpdir")),
+        multipartUploader, documentReader, presignedUrlGenerator, encodedVariantStorage,
+        directUploadStorage,
+        new ContentEncodingNegotiator(true, List.of("text/csv"), DataSize.ofBytes(1),
+            DataSize.ofKilobytes(8)),
+        processFilesUsageCache, documentContentCache, List.of(), compressionExecutor, 2);
   }
 
   @Test
@@ -101,8 +148,8 @@ class CephDocumentServiceTest {
     assertThat(savedDocMetadata.getName()).isEqualTo(filename);
     FileMetadataDto userMetadata = captor.getValue().getMetadata();
     assertThat(userMetadata.getId()).isNotEmpty();
-    assertThat(userMetadata.getChecksum()).isNotEmpty();
     assertThat(userMetadata.getFilename()).isEqualTo(filename);
+    assertThat(userMetadata.getChecksum()).isEqualTo(checksum);
     assertThat(savedDocMetadata.getChecksum()).isEqualTo(userMetadata.getChecksum());
     assertThat(savedDocMetadata.getId()).isEqualTo(userMetadata.getId());
     assertThat(savedDocMetadata.getUrl()).contains(userMetadata.getId());
@@ -145,6 +192,267 @@ class CephDocumentServiceTest {
     assertThat(documentDto.getContent().readAllBytes()).isEqualTo(data);
   }
 
+  @Test
+  void shouldGetLargeDocumentInParallel() throws IOException {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .build();
+    when(documentReader.isParallelReadEnabled()).thenReturn(true);
+    when(documentReader.isParallelReadApplicable(contentLength)).thenReturn(true);
+    when(fromDataFileStorageService.getMetadata(rootProcessInstanceId, Set.of(key)))
+        .thenReturn(List.of(FileMetadataDto.builder()
+            .contentLength(contentLength)
+            .contentType(contentType)
+            .filename(filename)
+            .build()));
+    when(documentReader.readParallel(rootProcessInstanceId, key, contentLength))
+        .thenReturn(new ByteArrayInputStream(data));
+
+    var documentDto = service.get(getDocumentDto);
+
+    assertThat(documentDto.getSize()).isEqualTo(contentLength);
+    assertThat(documentDto.getContent().readAllBytes()).isEqualTo(data);
+    verify(fromDataFileStorageService, never())
+        .loadByProcessInstanceIdAndId(rootProcessInstanceId, key);
+  }
+
+  @Test
+  void shouldRedirectToLargeDocument() throws IOException {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .redirectAllowed(true)
+        .build();
+    var url = new URL("http://ceph/bucket/key?X-Amz-Signature=abc");
+    when(presignedUrlGenerator.isEnabled()).thenReturn(true);
+    when(presignedUrlGenerator.isApplicable(contentLength, contentType)).thenReturn(true);
+    when(fromDataFileStorageService.getMetadata(rootProcessInstanceId, Set.of(key)))
+        .thenReturn(List.of(FileMetadataDto.builder()
+            .contentLength(contentLength)
+            .contentType(contentType)
+            .filename(filename)
+            .build()));
+    when(presignedUrlGenerator.generate(rootProcessInstanceId, key, filename, contentType))
+        .thenReturn(url);
+
+    var documentDto = service.get(getDocumentDto);
+
+    assertThat(documentDto.getRedirectUrl()).isEqualTo(url);
+    assertThat(documentDto.getContent()).isNull();
+    verify(fromDataFileStorageService, never())
+        .loadByProcessInstanceIdAndId(rootProcessInstanceId, key);
+  }
+
+  @Test
+  void shouldNotRedirectIfNotAllowed() {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .build();
+    when(fromDataFileStorageService.loadByProcessInstanceIdAndId(rootProcessInstanceId, key))
+        .thenReturn(FileDataDto.builder()
+            .content(new ByteArrayInputStream(data))
+            .metadata(FileMetadataDto.builder()
+                .contentLength(contentLength)
+                .contentType(contentType)
+                .filename(filename)
+                .build())
+            .build());
+
+    var documentDto = service.get(getDocumentDto);
+
+    assertThat(documentDto.getRedirectUrl()).isNull();
+    verify(presignedUrlGenerator, never()).isApplicable(contentLength, contentType);
+  }
+
+  @Test
+  void shouldGetStoredEncodedVariant() throws IOException {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .acceptedEncodings(List.of("gzip", "deflate"))
+        .build();
+    var variant = new S3Object();
+    variant.setObjectContent(new ByteArrayInputStream(data));
+    variant.getObjectMetadata().setContentLength(data.length);
+    when(encodedVariantStorage.isEnabled()).thenReturn(true);
+    when(fromDataFileStorageService.getMetadata(rootProcessInstanceId, Set.of(key)))
+        .thenReturn(List.of(FileMetadataDto.builder()
+            .contentLength(contentLength)
+            .contentType("text/csv")
+            .filename(filename)
+            .build()));
+    when(encodedVariantStorage.find(rootProcessInstanceId, key))
+        .thenReturn(Optional.of(variant));
+
+    var documentDto = service.get(getDocumentDto);
+
+    assertThat(documentDto.getContentEncoding()).isEqualTo("gzip");
+    assertThat(documentDto.getEncodedSize()).isEqualTo(data.length);
+    assertThat(documentDto.getSize()).isEqualTo(contentLength);
+    assertThat(documentDto.getContent().readAllBytes()).isEqualTo(data);
+    verify(fromDataFileStorageService, never())
+        .loadByProcessInstanceIdAndId(rootProcessInstanceId, key);
+  }
+
+  @Test
+  void shouldGetRequestedRangesOfDocument() throws IOException {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .ranges(HttpRange.parseRanges("bytes=0-9, -10, 2000-"))
+        .build();
+    when(fromDataFileStorageService.getMetadata(rootProcessInstanceId, Set.of(key)))
+        .thenReturn(List.of(FileMetadataDto.builder()
+            .contentLength(contentLength)
+            .contentType(contentType)
+            .filename(filename)
+            .build()));
+    when(documentReader.read(rootProcessInstanceId, key, 990, 999))
+        .thenReturn(new ByteArrayInputStream(data));
+
+    var documentDto = service.get(getDocumentDto);
+
+    assertThat(documentDto.isPartial()).isTrue();
+    assertThat(documentDto.getSize()).isEqualTo(contentLength);
+    assertThat(documentDto.getContentType()).isEqualTo(contentType);
+    var regions = documentDto.getRegions();
+    assertThat(regions.size()).isEqualTo(2);
+    assertThat(regions.get(0).getStart()).isZero();
+    assertThat(regions.get(0).getEnd()).isEqualTo(9);
+    assertThat(regions.get(1).getStart()).isEqualTo(990);
+    assertThat(regions.get(1).getLength()).isEqualTo(10);
+    assertThat(regions.get(1).getContent().get().readAllBytes()).isEqualTo(data);
+    verify(documentReader, never()).read(rootProcessInstanceId, key, 0, 9);
+    verify(fromDataFileStorageService, never())
+        .loadByProcessInstanceIdAndId(rootProcessInstanceId, key);
+  }
+
+  @Test
+  void shouldGetWholeDocumentIfRangeNotMatched() {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .ranges(HttpRange.parseRanges("bytes=0-9"))
+        .ifRange("\"outdated\"")
+        .build();
+    when(fromDataFileStorageService.getMetadata(rootProcessInstanceId, Set.of(key)))
+        .thenReturn(List.of(FileMetadataDto.builder().contentLength(contentLength)
+            .checksum(checksum).build()));
+    when(documentReader.read(rootProcessInstanceId, key))
+        .thenReturn(new ByteArrayInputStream(data));
+
+    var documentDto = service.get(getDocumentDto);
+
+    assertThat(documentDto.isPartial()).isFalse();
+    assertThat(documentDto.getContent()).isNotNull();
+  }
+
+  @Test
+  void shouldThrowExceptionIfNoRangeSatisfiable() {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .ranges(HttpRange.parseRanges("bytes=1000-"))
+        .ifRange("\"" + checksum + "\"")
+        .build();
+    when(fromDataFileStorageService.getMetadata(rootProcessInstanceId, Set.of(key)))
+        .thenReturn(List.of(FileMetadataDto.builder().contentLength(contentLength)
+            .checksum(checksum).build()));
+
+    var exception = assertThrows(RangeNotSatisfiableException.class,
+        () -> service.get(getDocumentDto));
+
+    assertThat(exception.getContentLength()).isEqualTo(contentLength);
+  }
+
+  @Test
+  void shouldNotGetContentOfNotModifiedDocument() {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .ifNoneMatch(List.of("\"other\"", "W/\"" + checksum + "\""))
+        .build();
+    when(fromDataFileStorageService.getMetadata(rootProcessInstanceId, Set.of(key)))
+        .thenReturn(List.of(FileMetadataDto.builder().contentLength(contentLength)
+            .contentType(contentType).checksum(checksum).build()));
+
+    var documentDto = service.get(getDocumentDto);
+
+    assertThat(documentDto.isNotModified()).isTrue();
+    assertThat(documentDto.getChecksum()).isEqualTo(checksum);
+    assertThat(documentDto.getContent()).isNull();
+    verify(fromDataFileStorageService, never())
+        .loadByProcessInstanceIdAndId(rootProcessInstanceId, key);
+  }
+
+  @Test
+  void shouldGetModifiedDocument() throws IOException {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .ifNoneMatch(List.of("\"outdated\""))
+        .build();
+    var metadata = FileMetadataDto.builder().contentLength(contentLength)
+        .contentType(contentType).checksum(checksum).build();
+    when(fromDataFileStorageService.getMetadata(rootProcessInstanceId, Set.of(key)))
+        .thenReturn(List.of(metadata));
+    when(documentReader.read(rootProcessInstanceId, key))
+        .thenReturn(new ByteArrayInputStream(data));
+
+    var documentDto = service.get(getDocumentDto);
+
+    assertThat(documentDto.isNotModified()).isFalse();
+    assertThat(documentDto.getChecksum()).isEqualTo(checksum);
+    assertThat(documentDto.getContent().readAllBytes()).isEqualTo(data);
+    verify(fromDataFileStorageService, never())
+        .loadByProcessInstanceIdAndId(rootProcessInstanceId, key);
+  }
+
+  @Test
+  void shouldGetSmallDocumentFromContentCache() throws IOException {
+    var getDocumentDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .build();
+    var metadata = FileMetadataDto.builder().contentLength((long) data.length)
+        .contentType(contentType).checksum(checksum).build();
+    when(fromDataFileStorageService.loadByProcessInstanceIdAndId(rootProcessInstanceId, key))
+        .thenReturn(FileDataDto.builder()
+            .content(new ByteArrayInputStream(data))
+            .metadata(metadata)
+            .build());
+
+    assertThat(service.get(getDocumentDto).getContent().readAllBytes()).isEqualTo(data);
+    assertThat(service.get(getDocumentDto).getContent().readAllBytes()).isEqualTo(data);
+    var rangeDto = GetDocumentDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .id(key)
+        .ranges(HttpRange.parseRanges("bytes=0-0"))
+        .build();
+    var regions = service.get(rangeDto).getRegions();
+    assertThat(regions.get(0).getContent().get().readAllBytes()).isEqualTo(data);
+
+    verify(fromDataFileStorageService, times(1))
+        .loadByProcessInstanceIdAndId(rootProcessInstanceId, key);
+    verify(fromDataFileStorageService, never()).getMetadata(rootProcessInstanceId, Set.of(key));
+
+    service.delete(rootProcessInstanceId, key);
+
+    assertThat(documentContentCache.get(rootProcessInstanceId, key)).isEmpty();
+  }
+
+  @Test
+  void shouldDeleteStagedDirectUploadsWithDocumentsOfProcessInstance() {
+    when(directUploadStorage.isEnabled()).thenReturn(true);
+
+    service.delete(rootProcessInstanceId);
+
+    verify(fromDataFileStorageService).deleteByProcessInstanceId(rootProcessInstanceId);
+    verify(directUploadStorage).discardAll(rootProcessInstanceId);
+  }
+
   @Test
   void testGetDocumentThatNotFound() {
     when(fromDataFileStorageService.loadByProcessInstanceIdAndId(rootProcessInstanceId, key))
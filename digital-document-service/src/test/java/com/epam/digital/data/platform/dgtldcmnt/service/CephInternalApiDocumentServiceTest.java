@@ -16,15 +16,20 @@
 
 package com.epam.digital.data.platform.dgtldcmnt.service;
 
-import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
 import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties.ContentConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
 import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentDto;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephMultipartUploader;
 import com.epam.digital.data.platform.dgtldcmnt.util.unit.FractionalDataSize;
 import com.epam.digital.data.platform.dgtldcmnt.validator.RemoteFileSizeValidator;
 import com.epam.digital.data.platform.starter.errorhandling.exception.ValidationException;
@@ -42,12 +47,15 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
 
 @ExtendWith(MockitoExtension.class)
 class CephInternalApiDocumentServiceTest {
 
   @Mock
   private FileStorageService storageService;
+  @Mock
+  private CephMultipartUploader multipartUploader;
   private InternalApiDocumentService documentService;
 
   private static final String FILE_ID = "fileId";
@@ -55,10 +63,9 @@ class CephInternalApiDocumentServiceTest {
   private static final String CONTENT_TYPE = "image/png";
   private static final String PROCESS_INSTANCE_ID = "testProcessInstanceId";
   private static final long CONTENT_LENGTH = 1000L;
-  // expected checksum is checksum of empty inputStream because storageService is a mock and
-  // it doesn't read the stream
+  // sha256 of the data below
   private static final String EXPECTED_CHECKSUM =
-      "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+      "039058c6f2c0cb492c533b0a4d14ef77cc0f78abccced5287d84a1a2011cfb81";
   private static final byte[] DATA = new byte[]{1, 2, 3};
 
   @BeforeEach
@@ -68,7 +75,9 @@ class CephInternalApiDocumentServiceTest {
             new DigitalDocumentsConfigurationProperties(
                 FractionalDataSize.parse("1MB"),
                 FractionalDataSize.parse("1MB"),
-                new ContentConfigurationProperties(""))));
+                new ContentConfigurationProperties(""))),
+        multipartUploader,
+        new DocumentContentFactory(DataSize.ofKilobytes(1), System.getProperty("java.io.tmpdir")));
   }
 
   @Test
@@ -108,11 +117,13 @@ class CephInternalApiDocumentServiceTest {
     assertThat(savedDocMetadata.getSize()).isEqualTo(CONTENT_LENGTH);
 
     var fileMetadataDto = captor.getValue().getMetadata();
-    assertThat(fileMetadataDto.getContentLength()).isZero();
+    assertThat(fileMetadataDto.getContentLength()).isEqualTo(DATA.length);
     assertThat(fileMetadataDto.getContentType()).isEqualTo(CONTENT_TYPE);
     assertThat(fileMetadataDto.getId()).isNotEqualTo(FILE_ID); // should be generated
     assertThat(fileMetadataDto.getChecksum()).isEqualTo(EXPECTED_CHECKSUM);
     assertThat(fileMetadataDto.getFilename()).isEqualTo(FILENAME);
+    assertThat(captor.getValue().getContent()).hasBinaryContent(DATA);
+    verify(storageService, never()).setUserMetadata(anyString(), anyString(), anyMap());
   }
 
   private Map<String, String> buildUserMetadata() {
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.epam.digital.data.platform.dgtldcmnt.cache.ProcessFilesUsageCache;
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties.ContentConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
+import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto.UploadDocumentFromUserFormDtoBuilder;
+import com.epam.digital.data.platform.dgtldcmnt.storage.CephDirectUploadStorage;
+import com.epam.digital.data.platform.dgtldcmnt.util.unit.FractionalDataSize;
+import com.epam.digital.data.platform.starter.errorhandling.exception.ValidationException;
+import java.io.ByteArrayInputStream;
+import java.net.URL;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class DirectUploadServiceTest {
+
+  private final String rootProcessInstanceId = "testProcessInstanceId";
+  private final String id = "testId";
+  private final String contentType = "application/pdf";
+  private final byte[] data = new byte[]{1, 2, 3};
+  private final String eTag = "5289df737df57326fcdd22597afb1fac";
+
+  @Mock
+  private CephDirectUploadStorage storage;
+  @Mock
+  private ProcessFilesUsageCache processFilesUsageCache;
+
+  private DirectUploadService service;
+
+  @BeforeEach
+  void init() {
+    service = new DirectUploadService(storage, processFilesUsageCache,
+        new DigitalDocumentsConfigurationProperties(FractionalDataSize.parse("100MB"),
+            FractionalDataSize.parse("100MB"), new ContentConfigurationProperties("")),
+        Duration.ofMinutes(5));
+  }
+
+  @Test
+  void shouldInitDirectUpload() throws Exception {
+    var headers = Map.of("Content-Type", contentType, "Content-Length", "3");
+    when(storage.generateUploadUrl(eq(rootProcessInstanceId), anyString(), eq(contentType),
+        eq((long) data.length), any()))
+        .thenReturn(new URL("https://ceph/bucket/key?X-Amz-Signature=signature"));
+    when(storage.getUploadHeaders(contentType, data.length)).thenReturn(headers);
+
+    var result = service.init(uploadDocumentDto().build());
+
+    assertThat(result.getId()).isNotBlank();
+    assertThat(result.getUrl()).isEqualTo("https://ceph/bucket/key?X-Amz-Signature=signature");
+    assertThat(result.getMethod()).isEqualTo("PUT");
+    assertThat(result.getHeaders()).isEqualTo(headers);
+    assertThat(result.getMaxSize()).isEqualTo(100L * 1024 * 1024);
+    assertThat(result.getExpiresAt()).isNotNull();
+  }
+
+  @Test
+  void shouldReturnStagedMetadata() {
+    var metadata = new ObjectMetadata();
+    metadata.setContentType(contentType);
+    metadata.setContentLength(data.length);
+    when(storage.getStagedMetadata(rootProcessInstanceId, id)).thenReturn(Optional.of(metadata));
+    when(storage.hasDeclaredSize(metadata)).thenReturn(true);
+
+    assertThat(service.getStagedMetadata(uploadDocumentDto().build(), id)).isSameAs(metadata);
+  }
+
+  @Test
+  void shouldThrowValidationExceptionIfDocumentNotUploaded() {
+    when(storage.getStagedMetadata(rootProcessInstanceId, id)).thenReturn(Optional.empty());
+    var dto = uploadDocumentDto().build();
+
+    assertThrows(ValidationException.class, () -> service.getStagedMetadata(dto, id));
+  }
+
+  @Test
+  void shouldThrowValidationExceptionIfStagedContentTypeDiffers() {
+    var metadata = new ObjectMetadata();
+    metadata.setContentType("image/png");
+    when(storage.getStagedMetadata(rootProcessInstanceId, id)).thenReturn(Optional.of(metadata));
+    var dto = uploadDocumentDto().build();
+
+    assertThrows(ValidationException.class, () -> service.getStagedMetadata(dto, id));
+  }
+
+  @Test
+  void shouldThrowValidationExceptionIfStagedSizeDiffersFromDeclared() {
+    var metadata = new ObjectMetadata();
+    metadata.setContentType(contentType);
+    metadata.setContentLength(data.length + 1);
+    when(storage.getStagedMetadata(rootProcessInstanceId, id)).thenReturn(Optional.of(metadata));
+    when(storage.hasDeclaredSize(metadata)).thenReturn(false);
+    var dto = uploadDocumentDto().build();
+
+    assertThrows(ValidationException.class, () -> service.getStagedMetadata(dto, id));
+  }
+
+  @Test
+  void shouldThrowValidationExceptionIfStagedDocumentReplacedBeforeRead() {
+    when(storage.openStaged(rootProcessInstanceId, id, eTag)).thenReturn(Optional.empty());
+
+    assertThrows(ValidationException.class,
+        () -> service.openStaged(rootProcessInstanceId, id, eTag));
+  }
+
+  @Test
+  void shouldCommitVerifiedDocument() {
+    var checksum = DigestUtils.sha256Hex(data);
+    var dto = uploadDocumentDto()
+        .fileInputStream(new ByteArrayInputStream(data))
+        .build();
+
+    when(storage.commit(eq(rootProcessInstanceId), eq(id), eq(eTag), eq(contentType), anyMap()))
+        .thenReturn(true);
+
+    var result = service.complete(dto, id, eTag, checksum.toUpperCase());
+
+    verify(storage).commit(eq(rootProcessInstanceId), eq(id), eq(eTag), eq(contentType),
+        anyMap());
+    verify(processFilesUsageCache).fileAdded(rootProcessInstanceId, id, "testFormKey",
+        "testFieldName", data.length);
+    assertThat(result.getId()).isEqualTo(id);
+    assertThat(result.getChecksum()).isEqualTo(checksum);
+    assertThat(result.getSize()).isEqualTo(data.length);
+    assertThat(result.getUrl()).isEqualTo(
+        "https://test.com/documents/testProcessInstanceId/testTaskId/testFieldName/testId");
+  }
+
+  @Test
+  void shouldThrowValidationExceptionIfChecksumDiffers() {
+    var dto = uploadDocumentDto()
+        .fileInputStream(new ByteArrayInputStream(data))
+        .build();
+
+    assertThrows(ValidationException.class, () -> service.complete(dto, id, eTag, "checksum"));
+
+    verify(storage, never()).commit(anyString(), anyString(), anyString(), anyString(), anyMap());
+  }
+
+  @Test
+  void shouldThrowValidationExceptionIfStagedDocumentReplacedBeforeCommit() {
+    var dto = uploadDocumentDto()
+        .fileInputStream(new ByteArrayInputStream(data))
+        .build();
+    when(storage.commit(eq(rootProcessInstanceId), eq(id), eq(eTag), eq(contentType), anyMap()))
+        .thenReturn(false);
+
+    assertThrows(ValidationException.class, () -> service.complete(dto, id, eTag, null));
+
+    verify(processFilesUsageCache, never()).fileAdded(anyString(), anyString(), anyString(),
+        anyString(), anyLong());
+  }
+
+  private UploadDocumentFromUserFormDtoBuilder<?, ?> uploadDocumentDto() {
+    return UploadDocumentFromUserFormDto.builder()
+        .filename("test.pdf")
+        .contentType(contentType)
+        .size(data.length)
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .taskId("testTaskId")
+        .fieldName("testFieldName")
+        .formKey("testFormKey")
+        .originRequestUrl("test.com");
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.dgtldcmnt.cache.DocumentContentCache;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
+import com.epam.digital.data.platform.dgtldcmnt.dto.DocumentArchiveDto;
+import com.epam.digital.data.platform.storage.file.dto.FileDataDto;
+import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class DocumentArchiveServiceTest {
+
+  private final String rootProcessInstanceId = "testProcessInstanceId";
+  private final byte[] pdf = "%PDF-1.4 test".getBytes(StandardCharsets.US_ASCII);
+  private final byte[] csv = "a,b\n1,2\n1,2\n1,2\n".getBytes(StandardCharsets.US_ASCII);
+
+  @Mock
+  private FormDataFileStorageService storage;
+
+  private DocumentContentCache documentContentCache;
+  private DocumentArchiveService service;
+
+  @BeforeEach
+  void init() {
+    var documentContentFactory = new DocumentContentFactory(DataSize.ofKilobytes(1),
+        System.getProperty("java.io.tmpdir"));
+    documentContentCache = new DocumentContentCache(new SimpleMeterRegistry(),
+        Duration.ofMinutes(1), DataSize.ofKilobytes(10), DataSize.ofKilobytes(2));
+    service = new DocumentArchiveService(storage, documentContentFactory, documentContentCache);
+  }
+
+  @Test
+  void shouldGetAllDocuments() {
+    var metadata = List.of(metadata("id1", "a.pdf", "application/pdf"));
+    when(storage.getMetadata(rootProcessInstanceId)).thenReturn(metadata);
+
+    var archive = service.getArchive(rootProcessInstanceId);
+
+    assertThat(archive.getRootProcessInstanceId()).isEqualTo(rootProcessInstanceId);
+    assertThat(archive.getDocuments()).isEqualTo(metadata);
+  }
+
+  @Test
+  void shouldGetOnlyRequestedDocuments() {
+    when(storage.getMetadata(rootProcessInstanceId, Set.of())).thenReturn(List.of());
+
+    var archive = service.getArchive(rootProcessInstanceId, List.of());
+
+    assertThat(archive.getDocuments()).isEmpty();
+    verify(storage, never()).getMetadata(rootProcessInstanceId);
+  }
+
+  @Test
+  void shouldWriteStoredAndDeflatedEntries() throws IOException {
+    var archive = DocumentArchiveDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .documents(List.of(
+            metadata("id1", "scan.pdf", "application/pdf"),
+            metadata("id2", "data.csv", "text/csv"),
+            metadata("id3", "scan.pdf", "application/pdf")))
+        .build();
+    mockContent("id1", pdf);
+    mockContent("id2", csv);
+    mockContent("id3", pdf);
+
+    var outputStream = new ByteArrayOutputStream();
+    service.write(archive, outputStream);
+
+    var entries = new ArrayList<ZipEntry>();
+    var contents = new ArrayList<byte[]>();
+    try (var zipInputStream = new ZipInputStream(
+        new ByteArrayInputStream(outputStream.toByteArray()))) {
+      ZipEntry entry;
+      while ((entry = zipInputStream.getNextEntry()) != null) {
+        entries.add(entry);
+        contents.add(zipInputStream.readAllBytes());
+      }
+    }
+    assertThat(entries).extracting(ZipEntry::getName)
+        .containsExactly("scan.pdf", "data.csv", "scan (1).pdf");
+    assertThat(entries).extracting(ZipEntry::getMethod)
+        .containsExactly(ZipEntry.STORED, ZipEntry.DEFLATED, ZipEntry.STORED);
+    assertThat(contents).containsExactly(pdf, csv, pdf);
+  }
+
+  @Test
+  void shouldWriteCachedDocumentWithoutLoadingIt() throws IOException {
+    var metadata = metadata("id1", "scan.pdf", "application/pdf");
+    documentContentCache.put(rootProcessInstanceId, "id1", metadata,
+        new DocumentContentFactory(DataSize.ofKilobytes(1), System.getProperty("java.io.tmpdir"))
+            .spool(new ByteArrayInputStream(pdf))).close();
+    var archive = DocumentArchiveDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .documents(List.of(metadata))
+        .build();
+
+    var outputStream = new ByteArrayOutputStream();
+    service.write(archive, outputStream);
+
+    try (var zipInputStream = new ZipInputStream(
+        new ByteArrayInputStream(outputStream.toByteArray()))) {
+      assertThat(zipInputStream.getNextEntry().getName()).isEqualTo("scan.pdf");
+      assertThat(zipInputStream.readAllBytes()).isEqualTo(pdf);
+    }
+    verify(storage, never()).loadByProcessInstanceIdAndId(rootProcessInstanceId, "id1");
+  }
+
+  private void mockContent(String id, byte[] data) {
+    when(storage.loadByProcessInstanceIdAndId(rootProcessInstanceId, id))
+        .thenReturn(FileDataDto.builder().content(new ByteArrayInputStream(data)).build());
+  }
+
+  private FileMetadataDto metadata(String id, String filename, String contentType) {
+    return FileMetadataDto.builder()
+        .id(id)
+        .filename(URLEncoder.encode(filename, StandardCharsets.UTF_8))
+        .contentType(contentType)
+        .build();
+  }
+}
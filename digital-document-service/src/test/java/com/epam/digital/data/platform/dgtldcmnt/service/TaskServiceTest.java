@@ -0,0 +1,89 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.bpms.api.dto.DdmSignableTaskDto;
+import com.epam.digital.data.platform.bpms.client.TaskRestClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class TaskServiceTest {
+
+  private final String taskId = "testTaskId";
+
+  @Mock
+  private TaskRestClient taskRestClient;
+  private SimpleMeterRegistry meterRegistry;
+
+  private TaskService taskService;
+
+  @BeforeEach
+  public void init() {
+    meterRegistry = new SimpleMeterRegistry();
+    taskService = new TaskService(taskRestClient, meterRegistry, Duration.ofMinutes(1), 10);
+  }
+
+  @Test
+  void shouldLoadTaskOnce() {
+    var taskDto = new DdmSignableTaskDto();
+    taskDto.setId(taskId);
+    when(taskRestClient.getTaskById(taskId)).thenReturn(taskDto);
+
+    assertThat(taskService.getTask(taskId)).isSameAs(taskDto);
+    assertThat(taskService.getTask(taskId)).isSameAs(taskDto);
+
+    verify(taskRestClient).getTaskById(taskId);
+    assertThat(meterRegistry.get("cache.gets").tag("cache", "bpms-tasks").tag("result", "hit")
+        .functionCounter().count()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldReplaceCachedTaskWithFreshOne() {
+    var cachedTaskDto = new DdmSignableTaskDto();
+    var freshTaskDto = new DdmSignableTaskDto();
+    when(taskRestClient.getTaskById(taskId)).thenReturn(cachedTaskDto, freshTaskDto);
+
+    taskService.getTask(taskId);
+
+    assertThat(taskService.getFreshTask(taskId)).isSameAs(freshTaskDto);
+    assertThat(taskService.getTask(taskId)).isSameAs(freshTaskDto);
+    verify(taskRestClient, times(2)).getTaskById(taskId);
+  }
+
+  @Test
+  void shouldNotCacheFailedLoad() {
+    var taskDto = new DdmSignableTaskDto();
+    when(taskRestClient.getTaskById(taskId))
+        .thenThrow(new IllegalStateException("bpms is unavailable"))
+        .thenReturn(taskDto);
+
+    assertThrows(IllegalStateException.class, () -> taskService.getTask(taskId));
+    assertThat(taskService.getTask(taskId)).isSameAs(taskDto);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.epam.digital.data.platform.dgtldcmnt.exception.UploadMemoryBudgetExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+class UploadMemoryBudgetTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private UploadMemoryBudget budget;
+
+  @BeforeEach
+  void init() {
+    meterRegistry = new SimpleMeterRegistry();
+    budget = new UploadMemoryBudget(meterRegistry, DataSize.ofKilobytes(10),
+        Duration.ofMillis(50), Duration.ofSeconds(5));
+  }
+
+  @Test
+  void shouldReserveMemoryUntilReservationIsClosed() {
+    var reservation = budget.reserve(DataSize.ofKilobytes(6).toBytes());
+    assertThat(reservedBytes()).isEqualTo(DataSize.ofKilobytes(6).toBytes());
+
+    var exception = assertThrows(UploadMemoryBudgetExceededException.class,
+        () -> budget.reserve(DataSize.ofKilobytes(6).toBytes()));
+    assertThat(exception.getRetryAfter()).isEqualTo(Duration.ofSeconds(5));
+
+    reservation.close();
+    reservation.close();
+    assertThat(reservedBytes()).isZero();
+
+    try (var ignored = budget.reserve(DataSize.ofKilobytes(6).toBytes())) {
+      assertThat(reservedBytes()).isEqualTo(DataSize.ofKilobytes(6).toBytes());
+    }
+  }
+
+  @Test
+  void shouldReserveWholeBudgetForLargerDocument() {
+    try (var ignored = budget.reserve(DataSize.ofMegabytes(1).toBytes())) {
+      assertThat(reservedBytes()).isEqualTo(DataSize.ofKilobytes(10).toBytes());
+    }
+  }
+
+  @Test
+  void shouldReserveAtLeastOneKilobyte() {
+    try (var ignored = budget.reserve(0)) {
+      assertThat(reservedBytes()).isEqualTo(DataSize.ofKilobytes(1).toBytes());
+    }
+  }
+
+  private double reservedBytes() {
+    return meterRegistry.get("digital-documents.upload.memory.reserved").gauge().value();
+  }
+}
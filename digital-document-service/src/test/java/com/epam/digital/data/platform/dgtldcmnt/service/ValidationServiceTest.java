@@ -20,8 +20,13 @@ import static com.epam.digital.data.platform.dgtldcmnt.service.ValidationService
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import com.epam.digital.data.platform.dgtldcmnt.cache.FormFieldsCache;
+import com.epam.digital.data.platform.dgtldcmnt.cache.ProcessFilesUsageCache;
 import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
 import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties.ContentConfigurationProperties;
 import com.epam.digital.data.platform.dgtldcmnt.dto.UploadDocumentFromUserFormDto;
@@ -29,6 +34,7 @@ import com.epam.digital.data.platform.dgtldcmnt.exception.BatchFileMaxSizeExcept
 import com.epam.digital.data.platform.dgtldcmnt.util.unit.FractionalDataSize;
 import com.epam.digital.data.platform.integration.formprovider.client.FormValidationClient;
 import com.epam.digital.data.platform.integration.formprovider.dto.FileDataValidationDto;
+import com.epam.digital.data.platform.integration.formprovider.dto.FormFieldListValidationDto;
 import com.epam.digital.data.platform.integration.formprovider.exception.SubmissionValidationException;
 import com.epam.digital.data.platform.starter.errorhandling.dto.ErrorDetailDto;
 import com.epam.digital.data.platform.starter.errorhandling.dto.ErrorsListDto;
@@ -36,6 +42,8 @@ import com.epam.digital.data.platform.starter.errorhandling.dto.ValidationErrorD
 import com.epam.digital.data.platform.starter.errorhandling.exception.ValidationException;
 import com.epam.digital.data.platform.storage.file.dto.FileMetadataDto;
 import com.epam.digital.data.platform.storage.file.service.FormDataFileStorageService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeEach;
@@ -43,6 +51,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.access.AccessDeniedException;
 
 @ExtendWith(MockitoExtension.class)
 class ValidationServiceTest {
@@ -68,8 +77,11 @@ class ValidationServiceTest {
 
   @BeforeEach
   public void init() {
+    var meterRegistry = new SimpleMeterRegistry();
     validationService = new ValidationService(properties, formValidationClient,
-        formDataFileStorageService);
+        new ProcessFilesUsageCache(formDataFileStorageService, meterRegistry,
+            Duration.ofMinutes(1), 10, 0.8),
+        new FormFieldsCache(meterRegistry, Duration.ofMinutes(1), 10, Duration.ofMinutes(1)));
   }
 
   @Test
@@ -115,6 +127,25 @@ class ValidationServiceTest {
             properties.getMaxTotalFileSize().toMegabytes()));
   }
 
+  @Test
+  void shouldNotReserveTotalFilesSizeOfConcurrentUploadsExceedingMaxBatchFileSize() {
+    var uploadDto = UploadDocumentFromUserFormDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .contentType(filePattern)
+        .fieldName(fieldName)
+        .formKey(formKey)
+        .taskId(taskId)
+        .size(60L * 1024 * 1024)
+        .build();
+    when(formDataFileStorageService.getMetadata(rootProcessInstanceId)).thenReturn(List.of());
+
+    try (var reservation = validationService.reserveTotalFilesSize(uploadDto)) {
+      assertThrows(BatchFileMaxSizeException.class,
+          () -> validationService.reserveTotalFilesSize(uploadDto));
+    }
+    validationService.reserveTotalFilesSize(uploadDto).close();
+  }
+
   @Test
   void shouldNotValidateDocumentTypeNotSupported() {
     var unsupportedContentType = "image/png";
@@ -146,4 +177,73 @@ class ValidationServiceTest {
 
     assertThat(exception.getMessage()).isEqualTo(errorMessage);
   }
+
+  @Test
+  void shouldCheckOnlyUncheckedFieldNames() {
+    validationService.checkFieldNamesExistence(List.of(fieldName), formKey);
+    validationService.checkFieldNamesExistence(List.of(fieldName, "testUpload2"), formKey);
+    validationService.checkFieldNamesExistence(List.of("testUpload2", fieldName), formKey);
+
+    verify(formValidationClient).checkFieldNames(formKey,
+        FormFieldListValidationDto.builder().fields(List.of(fieldName)).build());
+    verify(formValidationClient).checkFieldNames(formKey,
+        FormFieldListValidationDto.builder().fields(List.of("testUpload2")).build());
+    verifyNoMoreInteractions(formValidationClient);
+  }
+
+  @Test
+  void shouldNotCacheNotExistingFieldNames() {
+    var fieldNames = List.of("notExistingField");
+    var fieldListDto = FormFieldListValidationDto.builder().fields(fieldNames).build();
+    doThrow(new SubmissionValidationException(
+        ValidationErrorDto.builder().code("VALIDATION_ERROR").message("Fields not found")
+            .traceId("traceId").build()))
+        .when(formValidationClient).checkFieldNames(formKey, fieldListDto);
+
+    assertThrows(AccessDeniedException.class,
+        () -> validationService.checkFieldNamesExistence(fieldNames, formKey));
+    assertThrows(AccessDeniedException.class,
+        () -> validationService.checkFieldNamesExistence(fieldNames, formKey));
+
+    verify(formValidationClient, times(2)).checkFieldNames(formKey, fieldListDto);
+  }
+
+  @Test
+  void shouldValidateFileFieldByAcceptedFiles() {
+    validationService.validateFileField(buildUploadDto(filePattern, "file.pdf", size));
+    validationService.validateFileField(buildUploadDto(filePattern, "other.PDF", size / 2));
+    validationService.validateFileField(buildUploadDto(filePattern, "file.pdf", size * 2));
+    validationService.validateFileField(buildUploadDto("image/png", "file.png", size / 2));
+
+    verify(formValidationClient).validateFileField(formKey, fieldName,
+        buildFileDataValidationDto(filePattern, "file.pdf", size));
+    verify(formValidationClient).validateFileField(formKey, fieldName,
+        buildFileDataValidationDto(filePattern, "file.pdf", size * 2));
+    verify(formValidationClient).validateFileField(formKey, fieldName,
+        buildFileDataValidationDto("image/png", "file.png", size / 2));
+    verifyNoMoreInteractions(formValidationClient);
+  }
+
+  private UploadDocumentFromUserFormDto buildUploadDto(String contentType, String filename,
+      long size) {
+    return UploadDocumentFromUserFormDto.builder()
+        .rootProcessInstanceId(rootProcessInstanceId)
+        .contentType(contentType)
+        .fieldName(fieldName)
+        .formKey(formKey)
+        .taskId(taskId)
+        .size(size)
+        .filename(filename)
+        .build();
+  }
+
+  private FileDataValidationDto buildFileDataValidationDto(String contentType, String filename,
+      long size) {
+    return FileDataValidationDto.builder()
+        .contentType(contentType)
+        .size(size)
+        .fileName(filename)
+        .documentKey(fieldName)
+        .build();
+  }
 }
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CopyObjectResult;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest;
+import com.amazonaws.services.s3.model.DeleteObjectsRequest.KeyVersion;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import java.net.URL;
+import java.time.Instant;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CephDirectUploadStorageTest {
+
+  private static final String BUCKET = "bucket";
+  private static final String KEY = "process/testProcessInstanceId/files/testId";
+  private static final String STAGING_KEY = "direct-uploads/" + KEY;
+  private static final String E_TAG = "5289df737df57326fcdd22597afb1fac";
+
+  @Mock
+  private AmazonS3 amazonS3;
+  @Mock
+  private AmazonS3 presigningAmazonS3;
+  @Mock
+  private FormDataFileKeyProvider keyProvider;
+  @Mock
+  private FileDataCephStorageConfiguration cephStorageConfiguration;
+
+  private CephDirectUploadStorage storage;
+
+  @BeforeEach
+  void init() {
+    when(cephStorageConfiguration.getBucket()).thenReturn(BUCKET);
+    lenient().when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+    storage = new CephDirectUploadStorage(amazonS3, presigningAmazonS3, keyProvider,
+        cephStorageConfiguration, true);
+  }
+
+  @Test
+  void shouldSignContentTypeAndSizeOfUpload() throws Exception {
+    var url = new URL("https://ceph/bucket/key?X-Amz-Signature=signature");
+    when(presigningAmazonS3.generatePresignedUrl(any(GeneratePresignedUrlRequest.class)))
+        .thenReturn(url);
+
+    var result = storage.generateUploadUrl("testProcessInstanceId", "testId", "application/pdf",
+        1000, Instant.now());
+
+    assertThat(result).isSameAs(url);
+    var captor = ArgumentCaptor.forClass(GeneratePresignedUrlRequest.class);
+    verify(presigningAmazonS3).generatePresignedUrl(captor.capture());
+    assertThat(captor.getValue().getKey()).isEqualTo(STAGING_KEY);
+    assertThat(captor.getValue().getCustomRequestHeaders())
+        .isEqualTo(storage.getUploadHeaders("application/pdf", 1000))
+        .containsEntry("Content-Type", "application/pdf")
+        .containsEntry("Content-Length", "1000")
+        .containsEntry("x-amz-meta-declared-size", "1000");
+  }
+
+  @Test
+  void shouldCheckSizeOfStagedDocumentAgainstDeclaredSize() {
+    var metadata = new ObjectMetadata();
+    metadata.setContentLength(1000);
+    metadata.addUserMetadata("declared-size", "1000");
+    var largerMetadata = new ObjectMetadata();
+    largerMetadata.setContentLength(2000);
+    largerMetadata.addUserMetadata("declared-size", "1000");
+    var undeclaredMetadata = new ObjectMetadata();
+    undeclaredMetadata.setContentLength(1000);
+
+    assertThat(storage.hasDeclaredSize(metadata)).isTrue();
+    assertThat(storage.hasDeclaredSize(largerMetadata)).isFalse();
+    assertThat(storage.hasDeclaredSize(undeclaredMetadata)).isFalse();
+  }
+
+  @Test
+  void shouldReturnStagedMetadata() {
+    var metadata = new ObjectMetadata();
+    when(amazonS3.getObjectMetadata(BUCKET, STAGING_KEY)).thenReturn(metadata);
+
+    assertThat(storage.getStagedMetadata("testProcessInstanceId", "testId")).contains(metadata);
+  }
+
+  @Test
+  void shouldReturnEmptyMetadataIfNotUploaded() {
+    var exception = new AmazonS3Exception("Not Found");
+    exception.setStatusCode(404);
+    when(amazonS3.getObjectMetadata(BUCKET, STAGING_KEY)).thenThrow(exception);
+
+    assertThat(storage.getStagedMetadata("testProcessInstanceId", "testId")).isEmpty();
+  }
+
+  @Test
+  void shouldRethrowOtherMetadataErrors() {
+    var exception = new AmazonS3Exception("Forbidden");
+    exception.setStatusCode(403);
+    when(amazonS3.getObjectMetadata(BUCKET, STAGING_KEY)).thenThrow(exception);
+
+    assertThrows(AmazonS3Exception.class,
+        () -> storage.getStagedMetadata("testProcessInstanceId", "testId"));
+  }
+
+  @Test
+  void shouldOpenStagedDocumentWithMatchingEntityTag() {
+    var content = mock(S3ObjectInputStream.class);
+    var object = new S3Object();
+    object.setObjectContent(content);
+    when(amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(object);
+
+    var result = storage.openStaged("testProcessInstanceId", "testId", E_TAG);
+
+    assertThat(result).containsSame(content);
+    var captor = ArgumentCaptor.forClass(GetObjectRequest.class);
+    verify(amazonS3).getObject(captor.capture());
+    assertThat(captor.getValue().getKey()).isEqualTo(STAGING_KEY);
+    assertThat(captor.getValue().getMatchingETagConstraints()).containsExactly(E_TAG);
+  }
+
+  @Test
+  void shouldNotOpenReplacedStagedDocument() {
+    when(amazonS3.getObject(any(GetObjectRequest.class))).thenReturn(null);
+
+    assertThat(storage.openStaged("testProcessInstanceId", "testId", E_TAG)).isEmpty();
+  }
+
+  @Test
+  void shouldCopyStagedDocumentWithNewMetadataAndDeleteIt() {
+    when(amazonS3.copyObject(any(CopyObjectRequest.class))).thenReturn(new CopyObjectResult());
+
+    var result = storage.commit("testProcessInstanceId", "testId", E_TAG, "application/pdf",
+        Map.of("id", "testId"));
+
+    assertThat(result).isTrue();
+    var captor = ArgumentCaptor.forClass(CopyObjectRequest.class);
+    verify(amazonS3).copyObject(captor.capture());
+    var request = captor.getValue();
+    assertThat(request.getMatchingETagConstraints()).containsExactly(E_TAG);
+    assertThat(request.getSourceBucketName()).isEqualTo(BUCKET);
+    assertThat(request.getSourceKey()).isEqualTo(STAGING_KEY);
+    assertThat(request.getDestinationBucketName()).isEqualTo(BUCKET);
+    assertThat(request.getDestinationKey()).isEqualTo(KEY);
+    assertThat(request.getNewObjectMetadata().getContentType()).isEqualTo("application/pdf");
+    assertThat(request.getNewObjectMetadata().getUserMetadata()).containsEntry("id", "testId");
+    verify(amazonS3).deleteObject(BUCKET, STAGING_KEY);
+  }
+
+  @Test
+  void shouldNotCommitReplacedStagedDocument() {
+    when(amazonS3.copyObject(any(CopyObjectRequest.class))).thenReturn(null);
+
+    var result = storage.commit("testProcessInstanceId", "testId", E_TAG, "application/pdf",
+        Map.of());
+
+    assertThat(result).isFalse();
+    verify(amazonS3, never()).deleteObject(BUCKET, STAGING_KEY);
+  }
+
+  @Test
+  void shouldDiscardAllStagedDocumentsOfProcessInstance() {
+    when(keyProvider.generateKey("testProcessInstanceId", ""))
+        .thenReturn("process/testProcessInstanceId/files/");
+    var summary = new S3ObjectSummary();
+    summary.setKey(STAGING_KEY);
+    var listing = new ListObjectsV2Result();
+    listing.getObjectSummaries().add(summary);
+    when(amazonS3.listObjectsV2(any(ListObjectsV2Request.class))).thenReturn(listing);
+
+    storage.discardAll("testProcessInstanceId");
+
+    var listCaptor = ArgumentCaptor.forClass(ListObjectsV2Request.class);
+    verify(amazonS3).listObjectsV2(listCaptor.capture());
+    assertThat(listCaptor.getValue().getPrefix())
+        .isEqualTo("direct-uploads/process/testProcessInstanceId/files/");
+    var deleteCaptor = ArgumentCaptor.forClass(DeleteObjectsRequest.class);
+    verify(amazonS3).deleteObjects(deleteCaptor.capture());
+    assertThat(deleteCaptor.getValue().getKeys()).extracting(KeyVersion::getKey)
+        .containsExactly(STAGING_KEY);
+  }
+
+  @Test
+  void shouldNotFailIfStagedDocumentCannotBeDeleted() {
+    doThrow(new SdkClientException("error")).when(amazonS3).deleteObject(BUCKET, STAGING_KEY);
+
+    storage.discard("testProcessInstanceId", "testId");
+
+    verify(amazonS3).deleteObject(BUCKET, STAGING_KEY);
+  }
+
+  @Test
+  void shouldNotDeleteStagedDocumentIfCopyFailed() {
+    when(amazonS3.copyObject(any(CopyObjectRequest.class)))
+        .thenThrow(new SdkClientException("error"));
+
+    assertThrows(SdkClientException.class, () -> storage.commit("testProcessInstanceId",
+        "testId", E_TAG, "application/pdf", Map.of()));
+
+    verify(amazonS3, never()).deleteObject(BUCKET, STAGING_KEY);
+  }
+}
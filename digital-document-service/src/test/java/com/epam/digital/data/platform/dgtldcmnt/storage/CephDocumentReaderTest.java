@@ -0,0 +1,166 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class CephDocumentReaderTest {
+
+  private static final String BUCKET = "bucket";
+  private static final String KEY = "process/testProcessInstanceId/files/testId";
+
+  @Mock
+  private AmazonS3 amazonS3;
+  @Mock
+  private AmazonS3 alternateAmazonS3;
+  @Mock
+  private FormDataFileKeyProvider keyProvider;
+  @Mock
+  private FileDataCephStorageConfiguration cephStorageConfiguration;
+
+  private final byte[] data = new byte[100];
+  private final List<long[]> requestedRanges = new CopyOnWriteArrayList<>();
+  private final CountDownLatch primaryRelease = new CountDownLatch(1);
+  private ThreadPoolTaskExecutor executor;
+  private CephDocumentReader reader;
+
+  @BeforeEach
+  void init() {
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) i;
+    }
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(2);
+    executor.initialize();
+    when(cephStorageConfiguration.getBucket()).thenReturn(BUCKET);
+    reader = new CephDocumentReader(amazonS3, keyProvider, executor, cephStorageConfiguration,
+        true, DataSize.ofBytes(50), DataSize.ofBytes(8), DataSize.ofBytes(16), 3, 2, null);
+  }
+
+  @AfterEach
+  void tearDown() {
+    primaryRelease.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  void shouldReadOnlyLargeDocumentsInParallel() {
+    assertThat(reader.isParallelReadEnabled()).isTrue();
+    assertThat(reader.isParallelReadApplicable(49)).isFalse();
+    assertThat(reader.isParallelReadApplicable(50)).isTrue();
+  }
+
+  @Test
+  void shouldReassembleChunksInOrder() throws IOException {
+    when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+    when(amazonS3.getObject(any(GetObjectRequest.class))).thenAnswer(
+        invocation -> s3Object(invocation.getArgument(0)));
+
+    try (var inputStream = reader.readParallel("testProcessInstanceId", "testId", data.length)) {
+      assertThat(inputStream.readAllBytes()).isEqualTo(data);
+    }
+
+    // 100 bytes by 3 requests makes 34 byte chunks that are cut to 16 bytes
+    assertThat(requestedRanges).hasSize(7);
+    assertThat(requestedRanges).allMatch(range -> range[1] - range[0] < 16);
+  }
+
+  @Test
+  void shouldRetryFailedChunk() throws IOException {
+    when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+    when(amazonS3.getObject(any(GetObjectRequest.class)))
+        .thenThrow(new SdkClientException("Connection reset"))
+        .thenAnswer(invocation -> s3Object(invocation.getArgument(0)));
+
+    try (var inputStream = reader.readParallel("testProcessInstanceId", "testId", 16)) {
+      assertThat(inputStream.readAllBytes()).isEqualTo(Arrays.copyOf(data, 16));
+    }
+    verify(amazonS3, times(3)).getObject(any(GetObjectRequest.class));
+  }
+
+  @Test
+  void shouldFailIfChunkCannotBeRead() {
+    when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+    when(amazonS3.getObject(any(GetObjectRequest.class)))
+        .thenThrow(new SdkClientException("Connection reset"));
+
+    var inputStream = reader.readParallel("testProcessInstanceId", "testId", data.length);
+
+    assertThrows(IOException.class, inputStream::readAllBytes);
+  }
+
+  @Test
+  void shouldHedgeSlowRangedRead() throws IOException {
+    var meterRegistry = new SimpleMeterRegistry();
+    var readHedger = new ReadHedger<>(amazonS3, List.of(alternateAmazonS3), executor,
+        meterRegistry, 0.95, Duration.ofMillis(10), Duration.ofMillis(10), 1.0);
+    reader = new CephDocumentReader(amazonS3, keyProvider, executor, cephStorageConfiguration,
+        true, DataSize.ofBytes(50), DataSize.ofBytes(8), DataSize.ofBytes(16), 3, 2, readHedger);
+    when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+    when(amazonS3.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> {
+      primaryRelease.await();
+      return s3Object(invocation.getArgument(0));
+    });
+    when(alternateAmazonS3.getObject(any(GetObjectRequest.class))).thenAnswer(
+        invocation -> s3Object(invocation.getArgument(0)));
+
+    try (var inputStream = reader.read("testProcessInstanceId", "testId", 10, 19)) {
+      assertThat(inputStream.readAllBytes()).isEqualTo(Arrays.copyOfRange(data, 10, 20));
+    }
+
+    assertThat(meterRegistry.get("digital-documents.hedged-reads.alternate-wins")
+        .tag("operation", "get-range").counter().count()).isEqualTo(1);
+  }
+
+  private S3Object s3Object(GetObjectRequest request) {
+    var range = request.getRange();
+    requestedRanges.add(range);
+    var s3Object = new S3Object();
+    s3Object.setObjectContent(new ByteArrayInputStream(
+        Arrays.copyOfRange(data, (int) range[0], (int) range[1] + 1)));
+    return s3Object;
+  }
+}
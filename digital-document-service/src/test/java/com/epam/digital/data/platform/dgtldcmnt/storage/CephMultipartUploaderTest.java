@@ -0,0 +1,229 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContent;
+import com.epam.digital.data.platform.dgtldcmnt.content.DocumentContentFactory;
+import com.epam.digital.data.platform.integration.ceph.exception.CephCommunicationException;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class CephMultipartUploaderTest {
+
+  private static final String BUCKET = "bucket";
+  private static final String KEY = "process/testProcessInstanceId/files/testId";
+  private static final String UPLOAD_ID = "uploadId";
+  private static final DataSize PART_SIZE = CephMultipartUploader.MIN_PART_SIZE;
+
+  @Mock
+  private AmazonS3 amazonS3;
+  @Mock
+  private FormDataFileKeyProvider keyProvider;
+  @Mock
+  private FileDataCephStorageConfiguration cephStorageConfiguration;
+
+  private ThreadPoolTaskExecutor executor;
+  private CephMultipartUploader uploader;
+
+  @BeforeEach
+  void init() {
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(2);
+    executor.initialize();
+    when(cephStorageConfiguration.getBucket()).thenReturn(BUCKET);
+    uploader = new CephMultipartUploader(amazonS3, keyProvider, executor,
+        cephStorageConfiguration, true, DataSize.ofMegabytes(10), PART_SIZE, 2, 2);
+  }
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdown();
+  }
+
+  @Test
+  void shouldBeApplicableForLargeLength() {
+    assertThat(uploader.isApplicable(DataSize.ofMegabytes(10).toBytes() - 1)).isFalse();
+    assertThat(uploader.isApplicable(DataSize.ofMegabytes(10).toBytes())).isTrue();
+  }
+
+  @Test
+  void shouldUploadContentInParts() {
+    when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+    when(amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+        .thenReturn(initiateResult());
+    var uploadedParts = new ConcurrentHashMap<Integer, byte[]>();
+    when(amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+      UploadPartRequest request = invocation.getArgument(0);
+      uploadedParts.put(request.getPartNumber(), request.getInputStream().readAllBytes());
+      var result = new UploadPartResult();
+      result.setPartNumber(request.getPartNumber());
+      result.setETag("etag" + request.getPartNumber());
+      return result;
+    });
+    when(amazonS3.completeMultipartUpload(any(CompleteMultipartUploadRequest.class)))
+        .thenReturn(new CompleteMultipartUploadResult());
+
+    var data = data(2 * PART_SIZE.toBytes() + 10);
+    var length = uploader.upload("testProcessInstanceId", "testId", "application/pdf",
+        Map.of("id", "testId"), spool(data));
+
+    var partSize = (int) PART_SIZE.toBytes();
+    assertThat(length).isEqualTo(data.length);
+    assertThat(uploadedParts).hasSize(3);
+    assertThat(uploadedParts.get(1)).isEqualTo(Arrays.copyOfRange(data, 0, partSize));
+    assertThat(uploadedParts.get(2))
+        .isEqualTo(Arrays.copyOfRange(data, partSize, 2 * partSize));
+    assertThat(uploadedParts.get(3))
+        .isEqualTo(Arrays.copyOfRange(data, 2 * partSize, data.length));
+
+    var initiateCaptor = ArgumentCaptor.forClass(InitiateMultipartUploadRequest.class);
+    verify(amazonS3).initiateMultipartUpload(initiateCaptor.capture());
+    assertThat(initiateCaptor.getValue().getBucketName()).isEqualTo(BUCKET);
+    assertThat(initiateCaptor.getValue().getKey()).isEqualTo(KEY);
+    assertThat(initiateCaptor.getValue().getObjectMetadata().getContentType())
+        .isEqualTo("application/pdf");
+    assertThat(initiateCaptor.getValue().getObjectMetadata().getUserMetadata())
+        .containsEntry("id", "testId");
+
+    var completeCaptor = ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+    verify(amazonS3).completeMultipartUpload(completeCaptor.capture());
+    assertThat(completeCaptor.getValue().getPartETags())
+        .extracting(PartETag::getETag)
+        .containsExactly("etag1", "etag2", "etag3");
+    verify(amazonS3, never()).abortMultipartUpload(any());
+  }
+
+  @Test
+  void shouldAbortUploadWhenPartFailsAfterAllAttempts() {
+    when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+    when(amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+        .thenReturn(initiateResult());
+    when(amazonS3.uploadPart(any(UploadPartRequest.class)))
+        .thenThrow(new SdkClientException("Connection reset"));
+
+    var content = spool(new byte[]{1, 2, 3});
+    assertThrows(CephCommunicationException.class,
+        () -> uploader.upload("testProcessInstanceId", "testId", "application/pdf", Map.of(),
+            content));
+
+    verify(amazonS3, times(2)).uploadPart(any(UploadPartRequest.class));
+    var abortCaptor = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+    verify(amazonS3).abortMultipartUpload(abortCaptor.capture());
+    assertThat(abortCaptor.getValue().getUploadId()).isEqualTo(UPLOAD_ID);
+    verify(amazonS3, never()).completeMultipartUpload(any());
+  }
+
+  @Test
+  void shouldNotRetryPartRejectedByStorage() {
+    when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+    when(amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+        .thenReturn(initiateResult());
+    var exception = new AmazonServiceException("Access Denied");
+    exception.setStatusCode(403);
+    when(amazonS3.uploadPart(any(UploadPartRequest.class))).thenThrow(exception);
+
+    var content = spool(new byte[]{1, 2, 3});
+    assertThrows(CephCommunicationException.class,
+        () -> uploader.upload("testProcessInstanceId", "testId", "application/pdf", Map.of(),
+            content));
+
+    verify(amazonS3).uploadPart(any(UploadPartRequest.class));
+    verify(amazonS3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+  }
+
+  @Test
+  void shouldNotSubmitPartsAfterPartFailed() {
+    when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+    when(amazonS3.initiateMultipartUpload(any(InitiateMultipartUploadRequest.class)))
+        .thenReturn(initiateResult());
+    var uploadedPartNumbers = ConcurrentHashMap.<Integer>newKeySet();
+    when(amazonS3.uploadPart(any(UploadPartRequest.class))).thenAnswer(invocation -> {
+      UploadPartRequest request = invocation.getArgument(0);
+      uploadedPartNumbers.add(request.getPartNumber());
+      throw new SdkClientException("Connection reset");
+    });
+
+    var content = spool(data(4 * PART_SIZE.toBytes()));
+    assertThrows(CephCommunicationException.class,
+        () -> uploader.upload("testProcessInstanceId", "testId", "application/pdf", Map.of(),
+            content));
+
+    assertThat(uploadedPartNumbers).containsOnly(1, 2);
+    verify(amazonS3).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+  }
+
+  @Test
+  void shouldRejectPartSizeBelowMinimum() {
+    var partSize = DataSize.ofBytes(PART_SIZE.toBytes() - 1);
+
+    assertThrows(IllegalArgumentException.class,
+        () -> new CephMultipartUploader(amazonS3, keyProvider, executor,
+            cephStorageConfiguration, true, DataSize.ofMegabytes(10), partSize, 2, 2));
+  }
+
+  private static byte[] data(long length) {
+    var data = new byte[Math.toIntExact(length)];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 251);
+    }
+    return data;
+  }
+
+  private DocumentContent spool(byte[] data) {
+    return new DocumentContentFactory(DataSize.ofKilobytes(1), System.getProperty("java.io.tmpdir"))
+        .spool(new ByteArrayInputStream(data));
+  }
+
+  private InitiateMultipartUploadResult initiateResult() {
+    var result = new InitiateMultipartUploadResult();
+    result.setUploadId(UPLOAD_ID);
+    return result;
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.client.builder.AwsClientBuilder.EndpointConfiguration;
+import com.amazonaws.services.s3.AmazonS3ClientBuilder;
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties;
+import com.epam.digital.data.platform.dgtldcmnt.config.DigitalDocumentsConfigurationProperties.ContentConfigurationProperties;
+import com.epam.digital.data.platform.storage.file.config.FileDataCephStorageConfiguration;
+import com.epam.digital.data.platform.storage.file.service.FormDataFileKeyProvider;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+@ExtendWith(MockitoExtension.class)
+class CephPresignedUrlGeneratorTest {
+
+  private static final String KEY = "process/testProcessInstanceId/files/testId";
+
+  @Mock
+  private FormDataFileKeyProvider keyProvider;
+  @Mock
+  private FileDataCephStorageConfiguration cephStorageConfiguration;
+
+  private final DigitalDocumentsConfigurationProperties digitalDocumentsProperties =
+      new DigitalDocumentsConfigurationProperties(null, null,
+          new ContentConfigurationProperties("attachment"));
+
+  @BeforeEach
+  void init() {
+    when(cephStorageConfiguration.getBucket()).thenReturn("bucket");
+  }
+
+  @Test
+  void shouldRedirectOnlyLargeDocumentsOfConfiguredTypes() {
+    var generator = generator(List.of("application/pdf", "image/*"));
+
+    assertThat(generator.isApplicable(100, "application/pdf")).isTrue();
+    assertThat(generator.isApplicable(100, "image/png")).isTrue();
+    assertThat(generator.isApplicable(99, "application/pdf")).isFalse();
+    assertThat(generator.isApplicable(100, "text/csv")).isFalse();
+    assertThat(generator.isApplicable(100, null)).isFalse();
+  }
+
+  @Test
+  void shouldRedirectAllTypesIfNoneConfigured() {
+    var generator = generator(List.of(""));
+
+    assertThat(generator.isApplicable(100, "text/csv")).isTrue();
+  }
+
+  @Test
+  void shouldGenerateUrlWithResponseHeaders() {
+    when(keyProvider.generateKey("testProcessInstanceId", "testId")).thenReturn(KEY);
+
+    var url = generator(List.of()).generate("testProcessInstanceId", "testId", "звіт.pdf",
+        "application/pdf");
+
+    assertThat(url.getHost()).isEqualTo("ceph.example.com");
+    assertThat(url.getPath()).isEqualTo("/bucket/" + KEY);
+    var query = URLDecoder.decode(url.getQuery(), StandardCharsets.UTF_8);
+    assertThat(query).contains("response-content-type=application/pdf")
+        .contains("response-content-disposition=attachment; filename*=UTF-8''")
+        .contains("X-Amz-Expires=");
+  }
+
+  private CephPresignedUrlGenerator generator(List<String> mediaTypes) {
+    var amazonS3 = AmazonS3ClientBuilder.standard()
+        .withEndpointConfiguration(
+            new EndpointConfiguration("https://ceph.example.com", "us-east-1"))
+        .withCredentials(
+            new AWSStaticCredentialsProvider(new BasicAWSCredentials("access", "secret")))
+        .withPathStyleAccessEnabled(true)
+        .build();
+    return new CephPresignedUrlGenerator(amazonS3, keyProvider, cephStorageConfiguration,
+        digitalDocumentsProperties, true, DataSize.ofBytes(100), mediaTypes,
+        Duration.ofMinutes(1));
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.epam.digital.data.platform.integration.ceph.exception.CephCommunicationException;
+import com.epam.digital.data.platform.integration.ceph.model.CephObject;
+import com.epam.digital.data.platform.integration.ceph.model.CephObjectMetadata;
+import com.epam.digital.data.platform.integration.ceph.service.CephService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@ExtendWith(MockitoExtension.class)
+class HedgingCephServiceTest {
+
+  private static final String BUCKET = "bucket";
+  private static final String KEY = "process/testProcessInstanceId/files/testId";
+
+  @Mock
+  private CephService primary;
+  @Mock
+  private CephService alternate;
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+  private final CountDownLatch primaryRelease = new CountDownLatch(1);
+  private ThreadPoolTaskExecutor executor;
+
+  @BeforeEach
+  void init() {
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(4);
+    executor.initialize();
+  }
+
+  @AfterEach
+  void tearDown() {
+    primaryRelease.countDown();
+    executor.shutdown();
+  }
+
+  @Test
+  void shouldNotHedgeFastRead() {
+    var metadata = List.of(CephObjectMetadata.builder().contentLength(10L).build());
+    when(primary.getMetadata(BUCKET, Set.of(KEY))).thenReturn(metadata);
+
+    var result = hedgingCephService(1.0).getMetadata(BUCKET, Set.of(KEY));
+
+    assertThat(result).isEqualTo(metadata);
+    verifyNoInteractions(alternate);
+    assertThat(counter("requests", "head")).isEqualTo(1);
+    assertThat(counter("hedges", "head")).isZero();
+  }
+
+  @Test
+  void shouldUseAlternateGatewayIfPrimaryIsSlow() {
+    var cephObject = Optional.of(CephObject.builder()
+        .content(new ByteArrayInputStream(new byte[]{1}))
+        .build());
+    when(primary.get(BUCKET, KEY)).thenAnswer(invocation -> {
+      primaryRelease.await();
+      return Optional.empty();
+    });
+    when(alternate.get(BUCKET, KEY)).thenReturn(cephObject);
+
+    var result = hedgingCephService(1.0).get(BUCKET, KEY);
+
+    assertThat(result).isSameAs(cephObject);
+    assertThat(counter("hedges", "get")).isEqualTo(1);
+    assertThat(counter("alternate-wins", "get")).isEqualTo(1);
+  }
+
+  @Test
+  void shouldCloseContentOfPrimaryAnswerThatCameAfterAlternate() throws InterruptedException {
+    var closed = new CountDownLatch(1);
+    var primaryContent = new ByteArrayInputStream(new byte[]{1}) {
+      @Override
+      public void close() {
+        closed.countDown();
+      }
+    };
+    when(primary.get(BUCKET, KEY)).thenAnswer(invocation -> {
+      primaryRelease.await();
+      return Optional.of(CephObject.builder().content(primaryContent).build());
+    });
+    var cephObject = Optional.of(CephObject.builder()
+        .content(new ByteArrayInputStream(new byte[]{1}))
+        .build());
+    when(alternate.get(BUCKET, KEY)).thenReturn(cephObject);
+
+    var result = hedgingCephService(1.0).get(BUCKET, KEY);
+    primaryRelease.countDown();
+
+    assertThat(result).isSameAs(cephObject);
+    assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+  }
+
+  @Test
+  void shouldReadWithoutHedgingIfPoolIsSaturated() {
+    executor.shutdown();
+    executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(1);
+    executor.setMaxPoolSize(1);
+    executor.setQueueCapacity(0);
+    executor.initialize();
+    executor.execute(this::awaitPrimaryRelease);
+    var metadata = List.of(CephObjectMetadata.builder().contentLength(10L).build());
+    when(primary.getMetadata(BUCKET, Set.of(KEY))).thenReturn(metadata);
+
+    var result = hedgingCephService(1.0).getMetadata(BUCKET, Set.of(KEY));
+
+    assertThat(result).isEqualTo(metadata);
+    verifyNoInteractions(alternate);
+    assertThat(counter("pool-rejections", "head")).isEqualTo(1);
+  }
+
+  @Test
+  void shouldWaitForPrimaryIfHedgeBudgetIsExhausted() {
+    var metadata = List.of(CephObjectMetadata.builder().contentLength(10L).build());
+    when(primary.getMetadata(BUCKET, Set.of(KEY))).thenAnswer(invocation -> {
+      Thread.sleep(50);
+      return metadata;
+    });
+
+    var result = hedgingCephService(0.0).getMetadata(BUCKET, Set.of(KEY));
+
+    assertThat(result).isEqualTo(metadata);
+    verifyNoInteractions(alternate);
+    assertThat(counter("hedges.rejected", "head")).isEqualTo(1);
+  }
+
+  @Test
+  void shouldThrowExceptionIfPrimaryFailsBeforeHedging() {
+    when(primary.get(BUCKET, KEY)).thenThrow(new CephCommunicationException("Failed", null));
+
+    var service = hedgingCephService(1.0, Duration.ofSeconds(10));
+
+    assertThrows(CephCommunicationException.class, () -> service.get(BUCKET, KEY));
+    verifyNoInteractions(alternate);
+  }
+
+  @Test
+  void shouldSendWritesToPrimaryOnly() {
+    hedgingCephService(1.0).delete(BUCKET, Set.of(KEY));
+
+    verify(primary).delete(BUCKET, Set.of(KEY));
+    verify(alternate, never()).delete(BUCKET, Set.of(KEY));
+  }
+
+  private HedgingCephService hedgingCephService(double maxHedgeRatio) {
+    return hedgingCephService(maxHedgeRatio, Duration.ofMillis(10));
+  }
+
+  private HedgingCephService hedgingCephService(double maxHedgeRatio, Duration initialDelay) {
+    return new HedgingCephService(primary, List.of(alternate), executor, meterRegistry, 0.95,
+        Duration.ofMillis(1), initialDelay, maxHedgeRatio);
+  }
+
+  private void awaitPrimaryRelease() {
+    try {
+      primaryRelease.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private double counter(String name, String operation) {
+    return meterRegistry.get("digital-documents.hedged-reads." + name)
+        .tag("operation", operation)
+        .counter()
+        .count();
+  }
+}
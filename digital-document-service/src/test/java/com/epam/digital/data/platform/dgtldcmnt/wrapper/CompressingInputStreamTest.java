@@ -0,0 +1,78 @@
+/*
+ * Copyright 2023 EPAM Systems.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.epam.digital.data.platform.dgtldcmnt.wrapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.jupiter.api.Test;
+
+class CompressingInputStreamTest {
+
+  private final byte[] data = "id,name,value\n1,test,42\n".repeat(1000)
+      .getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  void shouldCompressWithGzip() throws IOException {
+    byte[] compressed;
+    try (var inputStream = CompressingInputStream.gzip(new ByteArrayInputStream(data), 64)) {
+      compressed = inputStream.readAllBytes();
+    }
+
+    assertThat(compressed.length).isLessThan(data.length / 10);
+    assertThat(new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes())
+        .isEqualTo(data);
+  }
+
+  @Test
+  void shouldCompressWithDeflate() throws IOException {
+    byte[] compressed;
+    try (var inputStream = CompressingInputStream.deflate(new ByteArrayInputStream(data), 64)) {
+      compressed = inputStream.readAllBytes();
+    }
+
+    assertThat(new InflaterInputStream(new ByteArrayInputStream(compressed)).readAllBytes())
+        .isEqualTo(data);
+  }
+
+  @Test
+  void shouldCompressByOneByte() throws IOException {
+    var output = new ByteArrayOutputStream();
+    try (var inputStream = CompressingInputStream.gzip(new ByteArrayInputStream(data), 64)) {
+      int b;
+      while ((b = inputStream.read()) >= 0) {
+        output.write(b);
+      }
+    }
+
+    assertThat(new GZIPInputStream(new ByteArrayInputStream(output.toByteArray())).readAllBytes())
+        .isEqualTo(data);
+  }
+
+  @Test
+  void shouldCompressEmptyContent() throws IOException {
+    var compressed = CompressingInputStream.gzip(new ByteArrayInputStream(new byte[0]), 64)
+        .readAllBytes();
+
+    assertThat(new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes()).isEmpty();
+  }
+}